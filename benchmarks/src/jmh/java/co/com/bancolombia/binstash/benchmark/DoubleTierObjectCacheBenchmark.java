@@ -0,0 +1,85 @@
+package co.com.bancolombia.binstash.benchmark;
+
+import co.com.bancolombia.binstash.DoubleTierObjectCacheUseCase;
+import co.com.bancolombia.binstash.RuleEvaluatorUseCase;
+import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.SingleTierObjectCacheUseCase;
+import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.adapter.redis.RedisProperties;
+import co.com.bancolombia.binstash.adapter.redis.RedisStashFactory;
+import co.com.bancolombia.binstash.model.SyncRule;
+import co.com.bancolombia.binstash.model.SyncType;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import redis.embedded.RedisServer;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit and miss paths of <pre>DoubleTierObjectCacheUseCase</pre>, with the centralized tier on an embedded Redis.
+ * Keys prefixed with <pre>miss:</pre> are never synced downstream, so every read of them goes to Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DoubleTierObjectCacheBenchmark {
+
+    private static final int REDIS_PORT = 16381;
+    private static final String HIT_KEY = "hit:payload";
+    private static final String MISS_KEY = "miss:payload";
+
+    private RedisServer redisServer;
+    private ObjectCache<Payload> cache;
+
+    @Setup
+    public void setup() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final ObjectCache<Payload> localCache = new SingleTierObjectCacheUseCase<>(
+                new MemoryStash.Builder().expireAfter(3600).maxSize(1_000).build(),
+                new SerializatorHelper<>(objectMapper));
+
+        final RedisProperties properties = new RedisProperties();
+        properties.setHost("127.0.0.1");
+        properties.setPort(REDIS_PORT);
+        properties.setExpireTime(3600);
+        final ObjectCache<Payload> centralizedCache = new SingleTierObjectCacheUseCase<>(
+                RedisStashFactory.redisStash(properties), new SerializatorHelper<>(objectMapper));
+
+        final SyncRule noDownstreamForMisses = (key, syncType) ->
+                !(syncType == SyncType.DOWNSTREAM && key.startsWith("miss:"));
+        cache = new DoubleTierObjectCacheUseCase<>(localCache, centralizedCache,
+                new RuleEvaluatorUseCase(List.of(noDownstreamForMisses)));
+
+        final Payload payload = Payload.withItems(10);
+        localCache.save(HIT_KEY, payload).block();
+        centralizedCache.save(MISS_KEY, payload).block();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public Payload localHit() {
+        return cache.get(HIT_KEY, Payload.class).block();
+    }
+
+    @Benchmark
+    public Payload localMissCentralizedHit() {
+        return cache.get(MISS_KEY, Payload.class).block();
+    }
+}
@@ -0,0 +1,79 @@
+package co.com.bancolombia.binstash.benchmark;
+
+import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the basic <pre>MemoryStash</pre> operations, on caches of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MemoryStashBenchmark {
+
+    private static final String VALUE = "{\"name\":\"Peter Parker\",\"city\":\"New York\"}";
+    private static final int HASH_FIELDS = 10;
+
+    @Param({"1000", "100000"})
+    private int cacheSize;
+
+    private MemoryStash stash;
+
+    @Setup
+    public void setup() {
+        stash = new MemoryStash.Builder()
+                .expireAfter(3600)
+                .maxSize(cacheSize * 2)
+                .build();
+        final Map<String, String> hash = new HashMap<>();
+        for (int field = 0; field < HASH_FIELDS; field++) {
+            hash.put("field" + field, VALUE);
+        }
+        for (int i = 0; i < cacheSize; i++) {
+            stash.save("key:" + i, VALUE).block();
+            stash.hSave("hash:" + i, hash).block();
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        return stash.get(randomKey("key:")).block();
+    }
+
+    @Benchmark
+    public String save() {
+        return stash.save(randomKey("key:"), VALUE).block();
+    }
+
+    @Benchmark
+    public Map<String, String> hGetAll() {
+        return stash.hGetAll(randomKey("hash:")).block();
+    }
+
+    @Benchmark
+    public List<String> keysByPrefix() {
+        return stash.keys(randomKey("key:") + "*", 100).collectList().block();
+    }
+
+    @Benchmark
+    public List<String> keysByGlob() {
+        return stash.keys("key:?5*", 100).collectList().block();
+    }
+
+    private String randomKey(String prefix) {
+        return prefix + ThreadLocalRandom.current().nextInt(cacheSize);
+    }
+}
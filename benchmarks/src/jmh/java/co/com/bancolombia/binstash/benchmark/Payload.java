@@ -0,0 +1,92 @@
+package co.com.bancolombia.binstash.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cached object used by the serialization benchmarks.
+ */
+public class Payload {
+
+    private String id;
+    private String description;
+    private List<Item> items = new ArrayList<>();
+
+    public static Payload withItems(int count) {
+        final Payload payload = new Payload();
+        payload.setId("order-" + count);
+        payload.setDescription("Benchmark payload with " + count + " items");
+        for (int i = 0; i < count; i++) {
+            final Item item = new Item();
+            item.setSku("SKU-" + i);
+            item.setName("Item number " + i);
+            item.setPrice(i * 1.5);
+            item.setQuantity(i % 10);
+            payload.getItems().add(item);
+        }
+        return payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public static class Item {
+        private String sku;
+        private String name;
+        private double price;
+        private int quantity;
+
+        public String getSku() {
+            return sku;
+        }
+
+        public void setSku(String sku) {
+            this.sku = sku;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
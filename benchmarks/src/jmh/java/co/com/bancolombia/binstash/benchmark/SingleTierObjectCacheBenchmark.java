@@ -0,0 +1,56 @@
+package co.com.bancolombia.binstash.benchmark;
+
+import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.SingleTierObjectCacheUseCase;
+import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of <pre>SingleTierObjectCacheUseCase</pre> over a <pre>MemoryStash</pre>, for small and large
+ * objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SingleTierObjectCacheBenchmark {
+
+    private static final String KEY = "payload";
+
+    @Param({"2", "2000"})
+    private int items;
+
+    private ObjectCache<Payload> cache;
+    private Payload payload;
+
+    @Setup
+    public void setup() {
+        final MemoryStash stash = new MemoryStash.Builder()
+                .expireAfter(3600)
+                .maxSize(1_000)
+                .build();
+        cache = new SingleTierObjectCacheUseCase<>(stash, new SerializatorHelper<>(new ObjectMapper()));
+        payload = Payload.withItems(items);
+        cache.save(KEY, payload).block();
+    }
+
+    @Benchmark
+    public Payload save() {
+        return cache.save(KEY, payload).block();
+    }
+
+    @Benchmark
+    public Payload get() {
+        return cache.get(KEY, Payload.class).block();
+    }
+}
@@ -1,5 +1,8 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
+import co.com.bancolombia.binstash.model.api.BinaryStash;
+import co.com.bancolombia.binstash.model.api.DistributedLease;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import co.com.bancolombia.binstash.model.api.Stash;
@@ -9,15 +12,63 @@ import tools.jackson.databind.ObjectMapper;
 @RequiredArgsConstructor
 public class CentralizedCacheFactory {
 
+    private static final String DEFAULT_NAME = "centralized";
+
     private final Stash centralizedStash;
     private final ObjectMapper objectMapper;
+    private final DistributedLease loadLease;
+    private final double refreshBeta;
+    private final int compressionThreshold;
+    private final CacheMetrics cacheMetrics;
+
+    public CentralizedCacheFactory(Stash centralizedStash, ObjectMapper objectMapper) {
+        this(centralizedStash, objectMapper, null, 0);
+    }
+
+    public CentralizedCacheFactory(Stash centralizedStash, ObjectMapper objectMapper,
+                                   DistributedLease loadLease, double refreshBeta) {
+        this(centralizedStash, objectMapper, loadLease, refreshBeta, CacheMetrics.NONE);
+    }
+
+    public CentralizedCacheFactory(Stash centralizedStash, ObjectMapper objectMapper,
+                                   DistributedLease loadLease, double refreshBeta, CacheMetrics cacheMetrics) {
+        this(centralizedStash, objectMapper, loadLease, refreshBeta, 0, cacheMetrics);
+    }
 
     public <V> ObjectCache<V> newObjectCache() {
-        return new SingleTierObjectCacheUseCase<>(this.centralizedStash,
-                new SerializatorHelper<>(objectMapper));
+        return this.newObjectCache(DEFAULT_NAME);
+    }
+
+    /**
+     * @param name identifies the cache in its metrics
+     */
+    public <V> ObjectCache<V> newObjectCache(String name) {
+        return cacheMetrics.objectCache(name, new SingleTierObjectCacheUseCase<>(this.centralizedStash,
+                cacheMetrics.serializatorHelper(name, objectMapper,
+                        cacheMetrics.compressor(name, this.compressionThreshold)),
+                this.loadLease, this.refreshBeta));
+    }
+
+    /**
+     * Creates a cache keeping values as bytes, serialized in a binary format, in a stash of its own.
+     * @param name identifies the cache in its metrics
+     * @param binaryStash where values are kept, eg. <pre>RedisStashFactory.redisBinaryStash(properties)</pre>
+     * @param serializatorHelper serializes values, eg. over a Smile or CBOR <pre>ObjectMapper</pre>
+     */
+    public <V> ObjectCache<V> newBinaryObjectCache(String name, BinaryStash binaryStash,
+                                                   BinarySerializatorHelper<V> serializatorHelper) {
+        return cacheMetrics.objectCache(name, new SingleTierBinaryObjectCacheUseCase<>(binaryStash,
+                serializatorHelper, this.loadLease, this.refreshBeta));
     }
 
     public MapCache newMapCache() {
-        return new SingleTierMapCacheUseCase(this.centralizedStash);
+        return this.newMapCache(DEFAULT_NAME);
+    }
+
+    /**
+     * @param name identifies the cache in its metrics
+     */
+    public MapCache newMapCache(String name) {
+        return cacheMetrics.mapCache(name, new SingleTierMapCacheUseCase(this.centralizedStash));
     }
 }
@@ -3,6 +3,7 @@ package co.com.bancolombia.binstash.config;
 import co.com.bancolombia.binstash.CentralizedCacheFactory;
 import co.com.bancolombia.binstash.adapter.redis.RedisProperties;
 import co.com.bancolombia.binstash.adapter.redis.RedisStashFactory;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
 import co.com.bancolombia.binstash.model.api.Stash;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -26,7 +27,11 @@ public class CentralizedCacheConfig {
 
     @Bean
     public CentralizedCacheFactory newFactory(@Qualifier("centralMemStashBean") Stash centralizedStash,
-                                              ObjectMapper objectMapper) {
-        return new CentralizedCacheFactory(centralizedStash, objectMapper);
+                                              ObjectMapper objectMapper,
+                                              RedisProperties redisProperties,
+                                              CacheMetrics cacheMetrics) {
+        return new CentralizedCacheFactory(centralizedStash, objectMapper,
+                RedisStashFactory.loadLease(centralizedStash, redisProperties), redisProperties.getRefreshBeta(),
+                redisProperties.getCompressionThreshold(), cacheMetrics);
     }
 }
@@ -2,6 +2,7 @@ package co.com.bancolombia.binstash;
 
 import co.com.bancolombia.binstash.adapter.redis.RedisProperties;
 import co.com.bancolombia.binstash.config.CentralizedCacheConfig;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
 import org.junit.jupiter.api.*;
 import redis.embedded.RedisServer;
 import tools.jackson.databind.ObjectMapper;
@@ -44,6 +45,16 @@ class CentralizedCacheConfigTest {
     @Test
     @DisplayName("Create factory")
     void createFactory() {
-        assertNotNull(config.newFactory(config.redisStash(redisProperties), new ObjectMapper()));
+        assertNotNull(config.newFactory(config.redisStash(redisProperties), new ObjectMapper(), redisProperties,
+                CacheMetrics.NONE));
+    }
+
+    @Test
+    @DisplayName("Create factory with distributed load")
+    void createFactoryWithDistributedLoad() {
+        redisProperties.setDistributedLoad(true);
+        assertNotNull(config.newFactory(config.redisStash(redisProperties), new ObjectMapper(), redisProperties,
+                CacheMetrics.NONE)
+                .newObjectCache());
     }
 }
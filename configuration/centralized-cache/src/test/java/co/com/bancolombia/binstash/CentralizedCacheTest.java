@@ -1,5 +1,6 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.model.api.BinaryStash;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import co.com.bancolombia.binstash.model.api.Stash;
@@ -17,6 +18,9 @@ class CentralizedCacheTest {
     @Mock
     private Stash redisStash;
 
+    @Mock
+    private BinaryStash binaryStash;
+
     @Mock
     private ObjectMapper objectMapper;
 
@@ -26,6 +30,13 @@ class CentralizedCacheTest {
         assertNotNull(cache);
     }
 
+    @Test
+    void createBinaryCache() {
+        ObjectCache<Employee> cache = new CentralizedCacheFactory(redisStash, objectMapper)
+                .newBinaryObjectCache("employees", binaryStash, new BinarySerializatorHelper<>(objectMapper));
+        assertNotNull(cache);
+    }
+
     @Test
     void createMapCache() {
         MapCache cache = new CentralizedCacheFactory(redisStash, objectMapper).newMapCache();
@@ -1,28 +1,96 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
+import co.com.bancolombia.binstash.model.StaleConfig;
 import co.com.bancolombia.binstash.model.SyncRule;
+import co.com.bancolombia.binstash.model.WriteBehindConfig;
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+@Log
 @RequiredArgsConstructor
-public class HybridCacheFactory<V> {
+public class HybridCacheFactory<V> implements AutoCloseable {
+
+    private static final String DEFAULT_NAME = "hybrid";
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
 
     private final ObjectCache<V> localCache;
     private final ObjectCache<V> centralizedCache;
     private final MapCache localMapCache;
     private final MapCache centralizedMapCache;
+    private final DistributedLease loadLease;
+    private final double refreshBeta;
+    private final StaleConfig staleConfig;
+    private final InvalidationBus invalidationBus;
+    private final CacheMetrics cacheMetrics;
+    private final WriteBehindConfig writeBehindConfig;
+    private final List<WriteBehindQueue<V>> writeBehindQueues = new CopyOnWriteArrayList<>();
+
+    public HybridCacheFactory(ObjectCache<V> localCache,
+                              ObjectCache<V> centralizedCache,
+                              MapCache localMapCache,
+                              MapCache centralizedMapCache) {
+        this(localCache, centralizedCache, localMapCache, centralizedMapCache, null, 0, null, null);
+    }
+
+    public HybridCacheFactory(ObjectCache<V> localCache,
+                              ObjectCache<V> centralizedCache,
+                              MapCache localMapCache,
+                              MapCache centralizedMapCache,
+                              DistributedLease loadLease,
+                              double refreshBeta,
+                              StaleConfig staleConfig,
+                              InvalidationBus invalidationBus) {
+        this(localCache, centralizedCache, localMapCache, centralizedMapCache, loadLease, refreshBeta, staleConfig,
+                invalidationBus, CacheMetrics.NONE);
+    }
+
+    public HybridCacheFactory(ObjectCache<V> localCache,
+                              ObjectCache<V> centralizedCache,
+                              MapCache localMapCache,
+                              MapCache centralizedMapCache,
+                              DistributedLease loadLease,
+                              double refreshBeta,
+                              StaleConfig staleConfig,
+                              InvalidationBus invalidationBus,
+                              CacheMetrics cacheMetrics) {
+        this(localCache, centralizedCache, localMapCache, centralizedMapCache, loadLease, refreshBeta, staleConfig,
+                invalidationBus, cacheMetrics, WriteBehindConfig.DEFAULT);
+    }
 
     public ObjectCache<V> newObjectCache() {
         return this.newObjectCache(null);
     }
 
     public ObjectCache<V> newObjectCache(List<SyncRule> syncRules) {
+        return this.newObjectCache(DEFAULT_NAME, syncRules);
+    }
+
+    /**
+     * @param name identifies the cache in its metrics. Its local and centralized tiers are reported as
+     *             <pre>name.local</pre> and <pre>name.centralized</pre>
+     * @param syncRules rules to sync keys between tiers
+     */
+    public ObjectCache<V> newObjectCache(String name, List<SyncRule> syncRules) {
         final RuleEvaluatorUseCase ruleEvaluatorUseCase = new RuleEvaluatorUseCase(syncRules);
-        return new DoubleTierObjectCacheUseCase<>(this.localCache,
-                this.centralizedCache, ruleEvaluatorUseCase);
+        final ObjectCache<V> centralized = cacheMetrics.upstreamObjectCache(name + ".centralized",
+                this.centralizedCache);
+        final WriteBehindQueue<V> writeBehindQueue = cacheMetrics.monitor(name,
+                new WriteBehindQueue<>(centralized, this.writeBehindConfig));
+        writeBehindQueues.add(writeBehindQueue);
+        return cacheMetrics.objectCache(name, new DoubleTierObjectCacheUseCase<>(
+                cacheMetrics.objectCache(name + ".local", this.localCache), centralized,
+                ruleEvaluatorUseCase, this.loadLease, this.refreshBeta, this.staleConfig, this.invalidationBus,
+                writeBehindQueue));
     }
 
     public MapCache newMapCache() {
@@ -30,8 +98,35 @@ public class HybridCacheFactory<V> {
     }
 
     public MapCache newMapCache(List<SyncRule> syncRules) {
+        return this.newMapCache(DEFAULT_NAME, syncRules);
+    }
+
+    /**
+     * @param name identifies the cache in its metrics. Its local and centralized tiers are reported as
+     *             <pre>name.local</pre> and <pre>name.centralized</pre>
+     * @param syncRules rules to sync keys between tiers
+     */
+    public MapCache newMapCache(String name, List<SyncRule> syncRules) {
         final RuleEvaluatorUseCase ruleEvaluatorUseCase = new RuleEvaluatorUseCase(syncRules);
-        return new DoubleTierMapCacheUseCase(this.localMapCache,
-                this.centralizedMapCache, ruleEvaluatorUseCase);
+        return cacheMetrics.mapCache(name, new DoubleTierMapCacheUseCase(
+                cacheMetrics.mapCache(name + ".local", this.localMapCache),
+                cacheMetrics.upstreamMapCache(name + ".centralized", this.centralizedMapCache),
+                ruleEvaluatorUseCase, this.invalidationBus));
+    }
+
+    /**
+     * Writes the keys still queued to be synced upstream by the object caches created, waiting for them up to 5
+     * seconds. Spring calls it when the application shuts down.
+     */
+    @Override
+    public void close() {
+        try {
+            Flux.fromIterable(writeBehindQueues)
+                    .flatMap(WriteBehindQueue::flush)
+                    .then()
+                    .block(FLUSH_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warning("Could not flush the write-behind queues: " + e.getMessage());
+        }
     }
 }
@@ -1,22 +1,38 @@
 package co.com.bancolombia.binstash.config;
 
+import co.com.bancolombia.binstash.CacheWarmUpUseCase;
 import co.com.bancolombia.binstash.HybridCacheFactory;
-import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.LocalObjectCacheUseCase;
+import co.com.bancolombia.binstash.RuleEvaluatorUseCase;
 import co.com.bancolombia.binstash.SingleTierMapCacheUseCase;
 import co.com.bancolombia.binstash.SingleTierObjectCacheUseCase;
 import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.adapter.memory.OffHeapStash;
 import co.com.bancolombia.binstash.adapter.redis.RedisProperties;
 import co.com.bancolombia.binstash.adapter.redis.RedisStashFactory;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
+import co.com.bancolombia.binstash.model.OverflowPolicy;
+import co.com.bancolombia.binstash.model.StaleConfig;
+import co.com.bancolombia.binstash.model.SyncRule;
+import co.com.bancolombia.binstash.model.WarmUpConfig;
+import co.com.bancolombia.binstash.model.WriteBehindConfig;
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
+import co.com.bancolombia.binstash.model.api.ObjectStash;
 import co.com.bancolombia.binstash.model.api.Stash;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import tools.jackson.databind.ObjectMapper;
 
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
 public class HybridCacheConfig {
 
@@ -28,11 +44,28 @@ public class HybridCacheConfig {
 
     @Bean(name = "hybridMemStashBean")
     public Stash memStash(@Value("${stash.memory.expireTime:-1}") int localExpireTime,
-                          @Value("${stash.memory.maxSize:10000}") int localMaxSize) {
-        return new MemoryStash.Builder()
+                          @Value("${stash.memory.maxSize:10000}") int localMaxSize,
+                          @Value("${stash.memory.ttlJitter:0}") double localTtlJitter,
+                          @Value("${stash.memory.maxBytes:0}") long localMaxBytes,
+                          @Value("${stash.memory.snapshotFile:}") String localSnapshotFile,
+                          @Value("${stash.memory.snapshotInterval:0}") int localSnapshotInterval,
+                          @Value("${stash.memory.offHeapBytes:0}") long localOffHeapBytes,
+                          CacheMetrics cacheMetrics) {
+        if (localOffHeapBytes > 0) {
+            return cacheMetrics.monitor("hybrid", new OffHeapStash.Builder()
+                    .expireAfter(localExpireTime)
+                    .maxBytes(localOffHeapBytes)
+                    .ttlJitter(localTtlJitter)
+                    .build());
+        }
+        return cacheMetrics.monitor("hybrid", new MemoryStash.Builder()
                 .expireAfter(localExpireTime)
                 .maxSize(localMaxSize)
-                .build();
+                .maxBytes(localMaxBytes)
+                .snapshotFile(localSnapshotFile)
+                .snapshotInterval(localSnapshotInterval)
+                .ttlJitter(localTtlJitter)
+                .build());
     }
 
     @Bean(name = "hybridCentralStashBean")
@@ -42,16 +75,32 @@ public class HybridCacheConfig {
 
     @Bean(name = "hybridLocalObjCacheBean")
     public <V> ObjectCache<V> localObjectCache(@Qualifier("hybridMemStashBean") Stash memStash,
-                                           ObjectMapper objectMapper) {
+                                           ObjectMapper objectMapper,
+                                           RedisProperties redisProperties,
+                                           @Value("${stash.memory.compressed:false}") boolean localCompressed,
+                                           @Value("${stash.memory.holdObjects:false}") boolean holdObjects,
+                                           CacheMetrics cacheMetrics) {
+        if (holdObjects) {
+            if (memStash instanceof ObjectStash objectStash) {
+                return new LocalObjectCacheUseCase<>(objectStash);
+            }
+            throw new IllegalStateException("stash.memory.holdObjects needs an on-heap memory stash, it can't be used "
+                    + "along with stash.memory.offHeapBytes");
+        }
+        // local values are kept compressed only when asked to, trading cpu on every hit for memory
         return new SingleTierObjectCacheUseCase<>(memStash,
-                new SerializatorHelper<>(objectMapper));
+                cacheMetrics.serializatorHelper("hybrid.local", objectMapper, cacheMetrics.compressor("hybrid.local",
+                        localCompressed ? redisProperties.getCompressionThreshold() : 0)));
     }
 
     @Bean(name = "hybridCentralObjCacheBean")
     public <V> ObjectCache<V> centralizedObjectCache(@Qualifier("hybridCentralStashBean") Stash redisStash,
-                                                 ObjectMapper objectMapper) {
+                                                 ObjectMapper objectMapper,
+                                                 RedisProperties redisProperties,
+                                                 CacheMetrics cacheMetrics) {
         return new SingleTierObjectCacheUseCase<>(redisStash,
-                new SerializatorHelper<>(objectMapper));
+                cacheMetrics.serializatorHelper("hybrid.centralized", objectMapper,
+                        cacheMetrics.compressor("hybrid.centralized", redisProperties.getCompressionThreshold())));
     }
 
     @Bean(name = "hybridLocalMapCacheBean")
@@ -68,8 +117,55 @@ public class HybridCacheConfig {
     public <V> HybridCacheFactory<V> hybridCacheFactory(@Qualifier("hybridLocalObjCacheBean") ObjectCache<V> localObjectCache,
                                                     @Qualifier("hybridCentralObjCacheBean") ObjectCache<V> centralizedObjectCache,
                                                     @Qualifier("hybridLocalMapCacheBean") MapCache localMapCache,
-                                                    @Qualifier("hybridCentralMapCacheBean") MapCache centralizedMapCache) {
+                                                    @Qualifier("hybridCentralMapCacheBean") MapCache centralizedMapCache,
+                                                    @Qualifier("hybridCentralStashBean") Stash redisStash,
+                                                    RedisProperties redisProperties,
+                                                    @Value("${stash.memory.refreshBeta:0}") double refreshBeta,
+                                                    @Value("${stash.memory.softTtl:0}") int softTtl,
+                                                    @Value("${stash.memory.hardTtl:0}") int hardTtl,
+                                                    @Value("${stash.memory.writeBehind.capacity:10000}") int wbCapacity,
+                                                    @Value("${stash.memory.writeBehind.batchSize:100}") int wbBatchSize,
+                                                    @Value("${stash.memory.writeBehind.flushInterval:50}") int wbInterval,
+                                                    @Value("${stash.memory.writeBehind.overflowPolicy:DROP_OLDEST}")
+                                                    OverflowPolicy wbOverflowPolicy,
+                                                    CacheMetrics cacheMetrics) {
+        final InvalidationBus invalidationBus = RedisStashFactory.invalidationBus(redisProperties);
+        if (invalidationBus != null) {
+            // object and map caches share the local stash, evicting through one of them drops any kind of key
+            invalidationBus.invalidations()
+                    .concatMap(keys -> localObjectCache.mEvict(keys).onErrorReturn(false))
+                    .subscribe();
+        }
         return new HybridCacheFactory<>(localObjectCache, centralizedObjectCache,
-                localMapCache, centralizedMapCache);
+                localMapCache, centralizedMapCache, RedisStashFactory.loadLease(redisStash, redisProperties),
+                refreshBeta, new StaleConfig(softTtl, hardTtl), invalidationBus, cacheMetrics,
+                new WriteBehindConfig(wbCapacity, wbBatchSize, Duration.ofMillis(wbInterval), wbOverflowPolicy));
+    }
+
+    /**
+     * Warms up the local tier with the centralized keys matching <pre>stash.memory.warmUp.patterns</pre>. Runners
+     * complete before Spring Boot marks the application ready, so readiness flips only once the warm-up is done or
+     * its time budget runs out. Values are copied as they are stored upstream, so warm-up is rejected when the local
+     * tier holds objects instead.
+     */
+    @Bean(name = "hybridCacheWarmUpBean")
+    public ApplicationRunner cacheWarmUp(@Qualifier("hybridMemStashBean") Stash memStash,
+                                         @Qualifier("hybridCentralStashBean") Stash redisStash,
+                                         ObjectProvider<SyncRule> syncRules,
+                                         @Value("${stash.memory.warmUp.patterns:}") List<String> patterns,
+                                         @Value("${stash.memory.warmUp.batchSize:100}") int batchSize,
+                                         @Value("${stash.memory.warmUp.concurrency:4}") int concurrency,
+                                         @Value("${stash.memory.warmUp.maxKeys:0}") int maxKeys,
+                                         @Value("${stash.memory.warmUp.timeout:30}") int timeout,
+                                         @Value("${stash.memory.holdObjects:false}") boolean holdObjects) {
+        final WarmUpConfig warmUpConfig = new WarmUpConfig(patterns.stream().filter(p -> !p.isBlank()).toList(),
+                batchSize, concurrency, maxKeys, Duration.ofSeconds(timeout));
+        if (holdObjects && warmUpConfig.isEnabled()) {
+            throw new IllegalStateException("stash.memory.warmUp can't be used along with stash.memory.holdObjects, "
+                    + "the local tier would never hit the warmed up values");
+        }
+        final CacheWarmUpUseCase warmUp = new CacheWarmUpUseCase(memStash, redisStash,
+                new RuleEvaluatorUseCase(syncRules.orderedStream().toList()), warmUpConfig);
+        return args -> warmUp.warmUp().block();
     }
 }
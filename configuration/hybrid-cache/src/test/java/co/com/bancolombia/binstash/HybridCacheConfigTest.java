@@ -1,14 +1,33 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.adapter.memory.OffHeapStash;
 import co.com.bancolombia.binstash.adapter.redis.RedisProperties;
 import co.com.bancolombia.binstash.config.HybridCacheConfig;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
+import co.com.bancolombia.binstash.model.InvalidKeyException;
+import co.com.bancolombia.binstash.model.OverflowPolicy;
+import co.com.bancolombia.binstash.model.SyncRule;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import co.com.bancolombia.binstash.model.api.Stash;
 import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.DefaultApplicationArguments;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 import redis.embedded.RedisServer;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class HybridCacheConfigTest {
 
@@ -39,7 +58,7 @@ class HybridCacheConfigTest {
     @Test
     @DisplayName("Create object memory stash")
     void createMemStash() {
-        assertNotNull(config.memStash(30, 1_000));
+        assertNotNull(config.memStash(30, 1_000, 0.1, 0, "", 0, 0, CacheMetrics.NONE));
     }
 
     @Test
@@ -48,10 +67,16 @@ class HybridCacheConfigTest {
         assertNotNull(config.redisStash(redisProperties));
     }
 
+    @Test
+    @DisplayName("Create off-heap memory stash")
+    void createOffHeapMemStash() {
+        assertInstanceOf(OffHeapStash.class, config.memStash(30, 1_000, 0.1, 0, "", 0, 1024 * 1024, CacheMetrics.NONE));
+    }
+
     @Test
     @DisplayName("Create map memory cache")
     void createMapLocalStash() {
-        assertNotNull(config.localMapCache(config.memStash(30, 1_000)));
+        assertNotNull(config.localMapCache(config.memStash(30, 1_000, 0.1, 0, "", 0, 0, CacheMetrics.NONE)));
     }
 
     @Test
@@ -63,25 +88,230 @@ class HybridCacheConfigTest {
     @Test
     @DisplayName("Create object memory cache")
     void createObjectLocalStash() {
-        assertNotNull(config.localObjectCache(config.memStash(30, 1_000), new ObjectMapper()));
+        assertNotNull(config.localObjectCache(config.memStash(30, 1_000, 0.1, 0, "", 0, 0, CacheMetrics.NONE),
+                new ObjectMapper(), redisProperties, true, false, CacheMetrics.NONE));
+    }
+
+    @Test
+    @DisplayName("Create object memory cache holding objects")
+    void createObjectHoldingLocalStash() {
+        assertInstanceOf(LocalObjectCacheUseCase.class, config.localObjectCache(
+                config.memStash(30, 1_000, 0.1, 0, "", 0, 0, CacheMetrics.NONE), new ObjectMapper(), redisProperties,
+                false, true, CacheMetrics.NONE));
+    }
+
+    @Test
+    @DisplayName("Reject holding objects off-heap")
+    void rejectOffHeapHoldingObjects() {
+        Stash offHeapStash = config.memStash(30, 1_000, 0.1, 0, "", 0, 1024 * 1024, CacheMetrics.NONE);
+
+        assertThrows(IllegalStateException.class, () -> config.localObjectCache(offHeapStash, new ObjectMapper(),
+                redisProperties, false, true, CacheMetrics.NONE));
+    }
+
+    @Test
+    @DisplayName("Serve local hits with the saved instances")
+    void hybridCacheHoldingObjects() {
+        ObjectCache<Employee> localCache = config.localObjectCache(
+                config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE), new ObjectMapper(), redisProperties,
+                false, true, CacheMetrics.NONE);
+        ObjectCache<Employee> centralizedCache = config.centralizedObjectCache(config.redisStash(redisProperties),
+                new ObjectMapper(), redisProperties, CacheMetrics.NONE);
+        ObjectCache<Employee> cache = new HybridCacheFactory<>(localCache, centralizedCache,
+                config.localMapCache(config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE)),
+                config.centralizedMapCache(config.redisStash(redisProperties))).newObjectCache();
+        Employee employee = new Employee("Peter Parker");
+
+        StepVerifier.create(cache.save("heldEmployee", employee)
+                        .then(cache.get("heldEmployee", Employee.class)))
+                .expectNextMatches(found -> found == employee)
+                .verifyComplete();
     }
 
     @Test
     @DisplayName("Create object redis cache")
     void createObjectDistrStash() {
         assertNotNull(config.centralizedObjectCache(config.redisStash(redisProperties),
-                new ObjectMapper()));
+                new ObjectMapper(), redisProperties, CacheMetrics.NONE));
+    }
+
+    @Test
+    @DisplayName("Create object redis cache compressing large values")
+    void createCompressedObjectDistrStash() {
+        redisProperties.setCompressionThreshold(1024);
+        Stash redisStash = config.redisStash(redisProperties);
+        ObjectCache<String> cache = config.centralizedObjectCache(redisStash, new ObjectMapper(), redisProperties,
+                CacheMetrics.NONE);
+        String value = "compressible ".repeat(1000);
+
+        StepVerifier.create(cache.save("compressed", value)
+                        .then(cache.get("compressed", String.class)))
+                .expectNext(value)
+                .verifyComplete();
+        StepVerifier.create(redisStash.get("compressed"))
+                .expectNextMatches(stored -> stored.length() < value.length() / 10)
+                .verifyComplete();
     }
 
     @Test
     @DisplayName("Create factory")
     void createFactory() {
         assertNotNull(config.hybridCacheFactory(
-                config.localObjectCache(config.memStash(30, 1_000), new ObjectMapper()),
-                config.centralizedObjectCache(config.redisStash(redisProperties), new ObjectMapper()),
-                config.localMapCache(config.memStash(30, 1_000)),
-                config.centralizedMapCache(config.redisStash(redisProperties))
+                config.localObjectCache(config.memStash(30, 1_000, 0.1, 0, "", 0, 0, CacheMetrics.NONE),
+                        new ObjectMapper(), redisProperties, false, false, CacheMetrics.NONE),
+                config.centralizedObjectCache(config.redisStash(redisProperties), new ObjectMapper(),
+                        redisProperties, CacheMetrics.NONE),
+                config.localMapCache(config.memStash(30, 1_000, 0.1, 0, "", 0, 0, CacheMetrics.NONE)),
+                config.centralizedMapCache(config.redisStash(redisProperties)),
+                config.redisStash(redisProperties),
+                redisProperties,
+                0.5,
+                30,
+                60,
+                10_000,
+                100,
+                50,
+                OverflowPolicy.DROP_OLDEST,
+                CacheMetrics.NONE
                 )
         );
     }
+
+    @Test
+    @DisplayName("Warm up the local tier from the centralized one")
+    void warmUpLocalTier() throws Exception {
+        Stash memStash = config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE);
+        Stash redisStash = config.redisStash(redisProperties);
+        StaticListableBeanFactory rules = new StaticListableBeanFactory();
+        rules.addBean("noSecrets", (SyncRule) (key, syncType) -> !key.startsWith("warm:secret"));
+        redisStash.mSave(Map.of("warm:1", "v1", "warm:2", "v2", "warm:secret", "v3", "cold:1", "v4")).block();
+
+        config.cacheWarmUp(memStash, redisStash, rules.getBeanProvider(SyncRule.class), List.of("warm:*"),
+                        10, 2, 0, 5, false)
+                .run(new DefaultApplicationArguments());
+
+        StepVerifier.create(memStash.mGet(List.of("warm:1", "warm:2", "warm:secret", "cold:1")))
+                .expectNext(Map.of("warm:1", "v1", "warm:2", "v2"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Reject warming up a local tier holding objects")
+    void rejectWarmUpHoldingObjects() {
+        Stash memStash = config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE);
+        Stash redisStash = config.redisStash(redisProperties);
+        StaticListableBeanFactory rules = new StaticListableBeanFactory();
+
+        assertThrows(IllegalStateException.class, () -> config.cacheWarmUp(memStash, redisStash,
+                rules.getBeanProvider(SyncRule.class), List.of("warm:*"), 10, 2, 0, 5, true));
+        // nothing to warm up
+        assertNotNull(config.cacheWarmUp(memStash, redisStash, rules.getBeanProvider(SyncRule.class), List.of(""),
+                10, 2, 0, 5, true));
+    }
+
+    @Test
+    @DisplayName("Tell the same existing keys on every stash")
+    void existsOnEveryStash() {
+        List<Stash> stashes = List.of(config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE),
+                config.memStash(30, 1_000, 0, 0, "", 0, 1024 * 1024, CacheMetrics.NONE),
+                config.redisStash(redisProperties));
+        for (Stash stash : stashes) {
+            StepVerifier.create(stash.save("exists:string", "value")
+                            .then(stash.hSave("exists:hash", Map.of("name", "value")))
+                            .then(Mono.zip(stash.exists("exists:string"), stash.exists("exists:hash"),
+                                    stash.exists("exists:missing"), stash.hExists("exists:string"),
+                                    stash.hExists("exists:hash"))))
+                    .expectNextMatches(result -> result.getT1() && result.getT2() && !result.getT3()
+                            && !result.getT4() && result.getT5())
+                    .verifyComplete();
+            stash.evict("exists:string").then(stash.evict("exists:hash")).block();
+        }
+    }
+
+    @Test
+    @DisplayName("Save hashes and fields only if absent on every stash")
+    void hSaveIfAbsentOnEveryStash() {
+        List<Stash> stashes = List.of(config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE),
+                config.memStash(30, 1_000, 0, 0, "", 0, 1024 * 1024, CacheMetrics.NONE),
+                config.redisStash(redisProperties));
+        for (Stash stash : stashes) {
+            StepVerifier.create(Flux.concat(stash.hSaveIfAbsent("absent:hash", Map.of("name", "Peter"), 30),
+                                    stash.hSaveIfAbsent("absent:hash", Map.of("name", "Miles"), 30),
+                                    stash.hSaveIfAbsent("absent:hash", "name", "Miles", 30),
+                                    stash.hSaveIfAbsent("absent:hash", "city", "NY", 30))
+                            .collectList()
+                            .zipWhen(saved -> stash.hGetAll("absent:hash")))
+                    .expectNextMatches(result -> List.of(true, false, false, true).equals(result.getT1())
+                            && Map.of("name", "Peter", "city", "NY").equals(result.getT2()))
+                    .verifyComplete();
+            StepVerifier.create(stash.save("absent:string", "value")
+                            .then(stash.hSaveIfAbsent("absent:string", Map.of("name", "Peter"), 30)))
+                    .expectNext(false)
+                    .verifyComplete();
+            stash.evict("absent:hash").then(stash.evict("absent:string")).block();
+        }
+    }
+
+    @Test
+    @DisplayName("Reject blank keys on multi evict on every stash")
+    void mEvictBlankKeyOnEveryStash() {
+        List<Stash> stashes = List.of(config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE),
+                config.memStash(30, 1_000, 0, 0, "", 0, 1024 * 1024, CacheMetrics.NONE),
+                config.redisStash(redisProperties));
+        for (Stash stash : stashes) {
+            StepVerifier.create(stash.save("mevict:key", "value")
+                            .then(stash.mEvict(Arrays.asList("mevict:key", " "))))
+                    .expectError(InvalidKeyException.class)
+                    .verify();
+            StepVerifier.create(stash.mEvict(null))
+                    .expectError(InvalidKeyException.class)
+                    .verify();
+            StepVerifier.create(stash.exists("mevict:key"))
+                    .expectNext(true)
+                    .verifyComplete();
+            stash.evict("mevict:key").block();
+        }
+    }
+
+    @Test
+    @DisplayName("Serve an updated value on other instances once invalidated")
+    void invalidateOtherInstances() {
+        redisProperties.setInvalidationChannel("binstash:test:invalidations");
+        ObjectCache<Employee> localA = newLocalCache();
+        ObjectCache<Employee> localB = newLocalCache();
+        ObjectCache<Employee> podA = newInstance(localA);
+        ObjectCache<Employee> podB = newInstance(localB);
+
+        podA.save("podsEmployee", new Employee("Peter Parker")).block();
+        assertEquals("Peter Parker", awaitName(podB, "podsEmployee", "Peter Parker"));
+        // pod B keeps the value it read in its local tier
+        assertEquals("Peter Parker", awaitName(localB, "podsEmployee", "Peter Parker"));
+
+        podA.save("podsEmployee", new Employee("Spider-Man")).block();
+
+        assertEquals("Spider-Man", awaitName(podB, "podsEmployee", "Spider-Man"));
+    }
+
+    private ObjectCache<Employee> newLocalCache() {
+        return config.localObjectCache(config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE),
+                new ObjectMapper(), redisProperties, false, false, CacheMetrics.NONE);
+    }
+
+    private ObjectCache<Employee> newInstance(ObjectCache<Employee> localCache) {
+        Stash redisStash = config.redisStash(redisProperties);
+        HybridCacheFactory<Employee> factory = config.hybridCacheFactory(localCache,
+                config.centralizedObjectCache(redisStash, new ObjectMapper(), redisProperties, CacheMetrics.NONE),
+                config.localMapCache(config.memStash(30, 1_000, 0, 0, "", 0, 0, CacheMetrics.NONE)),
+                config.centralizedMapCache(redisStash), redisStash, redisProperties, 0, 0, 0,
+                10_000, 100, 50, OverflowPolicy.DROP_OLDEST, CacheMetrics.NONE);
+        return factory.newObjectCache();
+    }
+
+    private static String awaitName(ObjectCache<Employee> cache, String key, String name) {
+        return Mono.defer(() -> cache.get(key, Employee.class))
+                .map(Employee::getName)
+                .filter(name::equals)
+                .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(20)))
+                .block(Duration.ofSeconds(5));
+    }
 }
@@ -1,16 +1,30 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
+import co.com.bancolombia.binstash.metrics.MeteredMapCache;
+import co.com.bancolombia.binstash.metrics.MeteredObjectCache;
+import co.com.bancolombia.binstash.model.OverflowPolicy;
 import co.com.bancolombia.binstash.model.SyncRule;
+import co.com.bancolombia.binstash.model.WriteBehindConfig;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class HybridCacheTest {
@@ -45,4 +59,38 @@ class HybridCacheTest {
         ));
     }
 
+    @Test
+    void createMeteredCaches() {
+        HybridCacheFactory<Employee> factory = new HybridCacheFactory<>(memObjectStash, centralizedObjectSash,
+                localMapStash, centralizedMapStash, null, 0, null, null, new CacheMetrics(new SimpleMeterRegistry()));
+        assertInstanceOf(MeteredObjectCache.class, factory.newObjectCache("employees", null));
+        assertInstanceOf(MeteredMapCache.class, factory.newMapCache("employees", null));
+    }
+
+    @Test
+    void createWriteBehindCache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HybridCacheFactory<Employee> factory = new HybridCacheFactory<>(memObjectStash, centralizedObjectSash,
+                localMapStash, centralizedMapStash, null, 0, null, null, new CacheMetrics(registry),
+                new WriteBehindConfig(100, 10, Duration.ofMillis(10), OverflowPolicy.DROP_NEWEST));
+        assertNotNull(factory.newObjectCache("employees", null));
+        assertEquals(0, registry.get("binstash.writebehind.depth").tags("cache", "employees").gauge().value());
+    }
+
+    @Test
+    void flushWriteBehindOnClose() {
+        Employee employee = new Employee("Peter Parker");
+        when(memObjectStash.save("pparker", employee)).thenReturn(Mono.just(employee));
+        when(centralizedObjectSash.saveIfAbsent("pparker", employee, -1)).thenReturn(Mono.just(true));
+        HybridCacheFactory<Employee> factory = new HybridCacheFactory<>(memObjectStash, centralizedObjectSash,
+                localMapStash, centralizedMapStash, null, 0, null, null, CacheMetrics.NONE,
+                new WriteBehindConfig(100, 10, Duration.ofMinutes(1), OverflowPolicy.DROP_NEWEST));
+        ObjectCache<Employee> cache = factory.newObjectCache(List.of((key, syncType) -> true));
+
+        cache.save("pparker", employee).block();
+        verify(centralizedObjectSash, never()).saveIfAbsent("pparker", employee, -1);
+        factory.close();
+
+        verify(centralizedObjectSash).saveIfAbsent("pparker", employee, -1);
+    }
 }
@@ -1,6 +1,7 @@
 package co.com.bancolombia.binstash;
 
 import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import lombok.RequiredArgsConstructor;
@@ -9,15 +10,41 @@ import tools.jackson.databind.ObjectMapper;
 @RequiredArgsConstructor
 public class LocalCacheFactory {
 
+    private static final String DEFAULT_NAME = "local";
+
     private final MemoryStash memoryStash;
     private final ObjectMapper objectMapper;
+    private final double refreshBeta;
+    private final CacheMetrics cacheMetrics;
+
+    public LocalCacheFactory(MemoryStash memoryStash, ObjectMapper objectMapper) {
+        this(memoryStash, objectMapper, 0);
+    }
+
+    public LocalCacheFactory(MemoryStash memoryStash, ObjectMapper objectMapper, double refreshBeta) {
+        this(memoryStash, objectMapper, refreshBeta, CacheMetrics.NONE);
+    }
 
     public <V> ObjectCache<V> newObjectCache() {
-        return new SingleTierObjectCacheUseCase<>(this.memoryStash,
-                new SerializatorHelper<>(this.objectMapper));
+        return this.newObjectCache(DEFAULT_NAME);
+    }
+
+    /**
+     * @param name identifies the cache in its metrics
+     */
+    public <V> ObjectCache<V> newObjectCache(String name) {
+        return cacheMetrics.objectCache(name, new SingleTierObjectCacheUseCase<>(this.memoryStash,
+                cacheMetrics.serializatorHelper(name, this.objectMapper), null, this.refreshBeta));
     }
 
     public MapCache newMapCache() {
-        return new SingleTierMapCacheUseCase(this.memoryStash);
+        return this.newMapCache(DEFAULT_NAME);
+    }
+
+    /**
+     * @param name identifies the cache in its metrics
+     */
+    public MapCache newMapCache(String name) {
+        return cacheMetrics.mapCache(name, new SingleTierMapCacheUseCase(this.memoryStash));
     }
 }
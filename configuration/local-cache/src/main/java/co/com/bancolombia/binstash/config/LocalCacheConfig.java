@@ -2,6 +2,7 @@ package co.com.bancolombia.binstash.config;
 
 import co.com.bancolombia.binstash.LocalCacheFactory;
 import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -13,16 +14,27 @@ public class LocalCacheConfig {
 
     @Bean(name = "localMemStashBean")
     public MemoryStash memStash(@Value("${stash.memory.expireTime:-1}") int expireTime,
-                                @Value("${stash.memory.maxSize:10000}") int maxSize) {
-        return new MemoryStash.Builder()
+                                @Value("${stash.memory.maxSize:10000}") int maxSize,
+                                @Value("${stash.memory.ttlJitter:0}") double ttlJitter,
+                                @Value("${stash.memory.maxBytes:0}") long maxBytes,
+                                @Value("${stash.memory.snapshotFile:}") String snapshotFile,
+                                @Value("${stash.memory.snapshotInterval:0}") int snapshotInterval,
+                                CacheMetrics cacheMetrics) {
+        return cacheMetrics.monitor("local", new MemoryStash.Builder()
                 .expireAfter(expireTime)
                 .maxSize(maxSize)
-                .build();
+                .maxBytes(maxBytes)
+                .snapshotFile(snapshotFile)
+                .snapshotInterval(snapshotInterval)
+                .ttlJitter(ttlJitter)
+                .build());
     }
 
     @Bean
     public LocalCacheFactory localCacheFactory(@Qualifier("localMemStashBean") MemoryStash memStash,
-                                                  ObjectMapper objectMapper) {
-        return new LocalCacheFactory(memStash, objectMapper);
+                                                  ObjectMapper objectMapper,
+                                                  @Value("${stash.memory.refreshBeta:0}") double refreshBeta,
+                                                  CacheMetrics cacheMetrics) {
+        return new LocalCacheFactory(memStash, objectMapper, refreshBeta, cacheMetrics);
     }
 }
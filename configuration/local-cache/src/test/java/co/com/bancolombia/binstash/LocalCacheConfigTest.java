@@ -1,6 +1,7 @@
 package co.com.bancolombia.binstash;
 
 import co.com.bancolombia.binstash.config.LocalCacheConfig;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,12 +21,13 @@ class LocalCacheConfigTest {
     @Test
     @DisplayName("Create memStash")
     void createStash() {
-        assertNotNull(config.memStash(1, 10));
+        assertNotNull(config.memStash(1, 10, 0, 0, "", 0, CacheMetrics.NONE));
     }
 
     @Test
     @DisplayName("Create factory")
     void createFactory() {
-        assertNotNull(config.localCacheFactory(config.memStash(1, 10), new ObjectMapper()));
+        assertNotNull(config.localCacheFactory(config.memStash(1, 10, 0, 0, "", 0, CacheMetrics.NONE),
+                new ObjectMapper(), 0, CacheMetrics.NONE));
     }
 }
@@ -2,6 +2,7 @@ package co.com.bancolombia.binstash;
 
 import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
 import co.com.bancolombia.binstash.config.LocalCacheConfig;
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import org.junit.jupiter.api.Test;
@@ -24,7 +25,7 @@ class LocalCacheTest {
     @Test
     void createCache() {
         LocalCacheConfig config = new LocalCacheConfig();
-        LocalCacheFactory factory = config.localCacheFactory(localStash, objectMapper);
+        LocalCacheFactory factory = config.localCacheFactory(localStash, objectMapper, 0, CacheMetrics.NONE);
         ObjectCache<Employee> cache = factory.newObjectCache();
         assertNotNull(cache);
 
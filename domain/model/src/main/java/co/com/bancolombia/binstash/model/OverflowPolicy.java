@@ -0,0 +1,15 @@
+package co.com.bancolombia.binstash.model;
+
+/**
+ * What a full write-behind queue does with a write for a key it doesn't hold yet.
+ */
+public enum OverflowPolicy {
+    /**
+     * Drops the new write, keeping the queued ones.
+     */
+    DROP_NEWEST,
+    /**
+     * Drops the oldest queued write to make room for the new one.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,30 @@
+package co.com.bancolombia.binstash.model;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stale-while-revalidate settings for the local tier of a double tier cache. Local keys are fresh for
+ * <pre>softTtl</pre> seconds, and between <pre>softTtl</pre> and <pre>hardTtl</pre> they are still served, while being
+ * refreshed in background from the centralized tier.
+ */
+@Data
+@RequiredArgsConstructor
+public class StaleConfig {
+
+    private final int softTtl;
+    private final int hardTtl;
+
+    public boolean isEnabled() {
+        return softTtl > 0 && hardTtl > softTtl;
+    }
+
+    /**
+     * Time a key saved with the given soft ttl can be served stale, keeping the configured stale window.
+     * @param ttl soft ttl of the key
+     * @return hard ttl for the key.
+     */
+    public int hardTtlFor(int ttl) {
+        return ttl + (hardTtl - softTtl);
+    }
+}
@@ -0,0 +1,28 @@
+package co.com.bancolombia.binstash.model;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Warm-up settings for the local tier of a double tier cache. At startup, keys of the centralized tier matching any
+ * of <pre>patterns</pre> are fetched in batches of <pre>batchSize</pre>, with up to <pre>concurrency</pre> batches in
+ * flight, and copied to the local tier, stopping after <pre>maxKeys</pre> keys or when <pre>timeout</pre> runs out.
+ */
+@Data
+@RequiredArgsConstructor
+public class WarmUpConfig {
+
+    private final List<String> patterns;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxKeys;
+    private final Duration timeout;
+
+    public boolean isEnabled() {
+        return patterns != null && !patterns.isEmpty() && batchSize > 0 && concurrency > 0
+                && timeout != null && !timeout.isZero() && !timeout.isNegative();
+    }
+}
@@ -0,0 +1,24 @@
+package co.com.bancolombia.binstash.model;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+
+/**
+ * Write-behind settings for the upstream sync of a double tier cache. Writes to the centralized tier wait in a queue
+ * of up to <pre>capacity</pre> keys, where writes to the same key are merged, and are flushed in batches of up to
+ * <pre>batchSize</pre> keys, as soon as a batch is full or <pre>flushInterval</pre> after the first queued write.
+ */
+@Data
+@RequiredArgsConstructor
+public class WriteBehindConfig {
+
+    public static final WriteBehindConfig DEFAULT =
+            new WriteBehindConfig(10_000, 100, Duration.ofMillis(50), OverflowPolicy.DROP_OLDEST);
+
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final OverflowPolicy overflowPolicy;
+}
@@ -0,0 +1,157 @@
+package co.com.bancolombia.binstash.model.api;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repo for storing key/value data with <pre>byte[]</pre> values, already serialized in a binary format (eg. Smile,
+ * CBOR or Kryo), so they are stored as given, without being encoded to or decoded from text.
+ */
+public interface BinaryStash {
+
+    /**
+     * Saves a key-value in a repository
+     * @param key key to store related value
+     * @param value value to be stored
+     * @param ttl time the key should live in the stash
+     * @return the same value stored.
+     */
+    Mono<byte[]> save(String key, byte[] value, int ttl);
+
+    /**
+     * Saves a key-value in a repository
+     * @param key key to store related value
+     * @param value value to be stored
+     * @return the same value stored.
+     */
+    Mono<byte[]> save(String key, byte[] value);
+
+    /**
+     * Saves a key-value in a repository, only if the key doesn't exist yet, as a single atomic operation.
+     * @param key key to store related value
+     * @param value value to be stored
+     * @param ttl time the key should live in the stash
+     * @return true if the value was saved, false if the key already existed.
+     */
+    Mono<Boolean> saveIfAbsent(String key, byte[] value, int ttl);
+
+    /**
+     * Gets a value from the store.
+     * @param key the key to be obtainer
+     * @return the bytes stored under key
+     */
+    Mono<byte[]> get(String key);
+
+    /**
+     * Saves several key-values in a repository, in a single batch.
+     * @param values key-values to be stored
+     * @param ttl time the keys should live in the stash
+     * @return the same key-values stored.
+     */
+    Mono<Map<String, byte[]>> mSave(Map<String, byte[]> values, int ttl);
+
+    /**
+     * Saves several key-values in a repository, in a single batch.
+     * @param values key-values to be stored
+     * @return the same key-values stored.
+     */
+    Mono<Map<String, byte[]>> mSave(Map<String, byte[]> values);
+
+    /**
+     * Gets several values from the store, in a single batch.
+     * @param keys the keys to be obtained
+     * @return a map with the key-values found. Keys that don't exist are not included in the map.
+     */
+    Mono<Map<String, byte[]>> mGet(Collection<String> keys);
+
+    /**
+     * Gets a set of all keys currently stored
+     * @return Set o f keys
+     */
+    Mono<Set<String>> keySet();
+
+    /**
+     * Gets a set of keys currently stored that match a given a pattern.
+     * @param pattern pattern to match keys against
+     * @param limit maximum number of keys to return. If equal or less than 0, no limit is applied.
+     *              The limit is a hint, and the actual number of keys returned could be more or less than the limit,
+     *              depending on the concrete service implementation or backend service (eg. Redis).
+     * @return Set o f keys
+     */
+    Flux<String> keys(String pattern, int limit);
+
+    /**
+     * Checks if a given key exists in the repository
+     * @param key the key to be checked.
+     * @return true if the key exists, false otherwise.
+     */
+    Mono<Boolean> exists(String key);
+
+    /**
+     * Gets the remaining time to live of a key.
+     * @param key the key to be checked.
+     * @return time left before the key expires, or empty if the key doesn't exist or has no expiration.
+     */
+    Mono<Duration> expiresIn(String key);
+
+    /**
+     * Remove the specified key, and its value, from the repo, if such key exists.
+     * @param key the key to be evicted.
+     * @return true if the key and corresponding value were evicted.
+     */
+    Mono<Boolean> evict(String key);
+
+    /**
+     * Remove the specified keys, and its values, from the repo, in a single batch.
+     * @param keys the keys to be evicted.
+     * @return true if at least one of the keys was evicted.
+     */
+    Mono<Boolean> mEvict(Collection<String> keys);
+
+    /**
+     * Prune whole repository, evicting all keys and its associated values.
+     * @return true if the process completed successfully, false otherwise.
+     */
+    Mono<Boolean> evictAll();
+
+    /**
+     * Saves a key-value pair in a set identified by indexKey, indicating a Time to live for the data in the cache
+     * @param indexKey the identifier of the set collection
+     * @param key the key to be stored in the set
+     * @param value the value to be stored under the key
+     * @param ttl time to live in seconds
+     * @return the value stored.
+     */
+    Mono<byte[]> setSave(String indexKey, String key, byte[] value, int ttl);
+
+    /**
+     * Saves a key-value pair in a set identified by indexKey
+     * @param indexKey the identifier of the set collection
+     * @param key the key to be stored in the set
+     * @param value the value to be stored under the key
+     * @return the value stored.
+     */
+    Mono<byte[]> setSave(String indexKey, String key, byte[] value);
+
+    /**
+     * Retrieves all values from the set identified by indexKey
+     * @param indexKey the identifier of the set collection
+     * @return all values stored in the set if exists, Empty Flux otherwise.
+     */
+    Flux<byte[]> setGetAll(String indexKey);
+
+    /**
+     * Removes a key-value pair from the set identified by indexKey
+     * @param indexKey the identifier of the set collection
+     * @param key the key to be removed from the set
+     * @return true if the key-value pair was removed, false otherwise.
+     */
+    Mono<Boolean> setRemove(String indexKey, String key);
+
+}
+
@@ -0,0 +1,34 @@
+package co.com.bancolombia.binstash.model.api;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Short lived lease used to coordinate, across processes, which one of them loads a missing key into the cache.
+ * Processes that don't get the lease wait for the value instead of loading it again.
+ */
+public interface DistributedLease {
+
+    /**
+     * Tries to acquire the lease to load a key.
+     * @param key the key to be loaded
+     * @param token unique value identifying the holder of the lease
+     * @return true if the lease was acquired, false if another process holds it.
+     */
+    Mono<Boolean> tryAcquire(String key, String token);
+
+    /**
+     * Releases the lease to load a key, only if it is still held by <pre>token</pre>.
+     * @param key the key loaded
+     * @param token unique value identifying the holder of the lease
+     * @return true if the lease was released.
+     */
+    Mono<Boolean> release(String key, String token);
+
+    /**
+     * Maximum time a process waits for the value of a key loaded by another process, before loading it itself.
+     * @return the wait budget.
+     */
+    Duration getWaitTime();
+}
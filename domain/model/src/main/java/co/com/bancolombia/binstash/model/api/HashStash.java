@@ -49,6 +49,25 @@ public interface HashStash {
      */
     Mono<String> hSave(String key, String field, String value, int ttl);
 
+    /**
+     * Saves a Map value under key, only if the key doesn't exist yet, as a single atomic operation.
+     * @param key   key value to index map
+     * @param value map to store in cache
+     * @param ttl time to live in seconds
+     * @return true if the map was saved, false if the key already existed.
+     */
+    Mono<Boolean> hSaveIfAbsent(String key, Map<String, String> value, int ttl);
+
+    /**
+     * Adds a field to a map, only if the field doesn't exist yet, as a single atomic operation.
+     * @param key   key value to index map
+     * @param field field to add into map
+     * @param value value to set field to
+     * @param ttl time to live in seconds
+     * @return true if the field was saved, false if it already existed.
+     */
+    Mono<Boolean> hSaveIfAbsent(String key, String field, String value, int ttl);
+
     /**
      * Gets field value from map
      *
@@ -65,6 +84,21 @@ public interface HashStash {
      */
     Mono<Map<String, String>> hGetAll(String key);
 
+    /**
+     * Checks if a map is stored under key, without fetching it.
+     * @param key key value used to index map.
+     * @return true if a map is stored under 'key', false otherwise.
+     */
+    Mono<Boolean> hExists(String key);
+
+    /**
+     * Checks if a field is stored in a map, without fetching its value.
+     * @param key key value used to index map.
+     * @param field field name used to store value in map.
+     * @return true if the field is stored in the map under 'key', false otherwise.
+     */
+    Mono<Boolean> hExists(String key, String field);
+
     /**
      * Gets a set of all keys currently stored.
      * @return Set o f keys
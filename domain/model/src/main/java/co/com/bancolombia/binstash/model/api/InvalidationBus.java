@@ -0,0 +1,26 @@
+package co.com.bancolombia.binstash.model.api;
+
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Channel shared by every instance of an application, used to tell the others which keys they should drop from
+ * their local tier after a write or an eviction. Delivery is best effort, local ttls still bound staleness when a
+ * message is lost.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Announces keys written or evicted by this instance. Keys are batched before being sent.
+     * @param keys the keys changed
+     */
+    void publish(Collection<String> keys);
+
+    /**
+     * Keys changed by other instances, as they arrive. Keys published by this same instance are not included.
+     * @return a stream of key batches to invalidate.
+     */
+    Flux<List<String>> invalidations();
+}
@@ -5,6 +5,7 @@ import reactor.core.publisher.Mono;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Cache API for storing multiple <pre>Map&lt;String, String&gt;</pre> data in cache. Implementor will use the <pre>HashStash</pre>
@@ -51,6 +52,27 @@ public interface MapCache {
      */
     Mono<String> saveMap(String key, String field, String value, int ttl);
 
+    /**
+     * Stores a map only if there's nothing under the <pre>key</pre> yet, checking and saving as a single atomic
+     * operation.
+     * @param key the key under which the map should be stored into.
+     * @param value the map to store
+     * @param ttl the time to live of the key in the cache
+     * @return true if the map was stored, false if the key already existed.
+     */
+    Mono<Boolean> saveMapIfAbsent(String key, Map<String, String> value, int ttl);
+
+    /**
+     * Stores a field of a map only if the map doesn't hold such field yet, checking and saving as a single atomic
+     * operation.
+     * @param key the key under which the map should be stored into.
+     * @param field the field to store
+     * @param value the value to store
+     * @param ttl the time to live of the key in the cache
+     * @return true if the field was stored, false if it already existed.
+     */
+    Mono<Boolean> saveMapIfAbsent(String key, String field, String value, int ttl);
+
     /**
      * Fetches a value stored in a map in the cache.
      * @param key the key under which the map exists in the cache.
@@ -66,6 +88,25 @@ public interface MapCache {
      */
     Mono<Map<String, String>> getMap(String key);
 
+    /**
+     * Fetches the whole map stored under a key in the cache, and on a miss loads it with <pre>loader</pre> and
+     * saves it into the cache. Concurrent misses for the same key share a single invocation of the loader.
+     * @param key the key under which the map exists in the cache.
+     * @param loader function that loads the map of a key, on a cache miss
+     * @param ttl the time to live of the key in the cache, once loaded
+     * @return the Map object, or the map loaded. Empty if the loader doesn't return a map.
+     */
+    Mono<Map<String, String>> getOrLoadMap(String key, Function<String, Mono<Map<String, String>>> loader, int ttl);
+
+    /**
+     * Fetches the whole map stored under a key in the cache, and on a miss loads it with <pre>loader</pre> and
+     * saves it into the cache. Concurrent misses for the same key share a single invocation of the loader.
+     * @param key the key under which the map exists in the cache.
+     * @param loader function that loads the map of a key, on a cache miss
+     * @return the Map object, or the map loaded. Empty if the loader doesn't return a map.
+     */
+    Mono<Map<String, String>> getOrLoadMap(String key, Function<String, Mono<Map<String, String>>> loader);
+
     /**
      * Checks whether a map is stored under a given key in the cache.
      * @param key the key to check if exists in the cache.
@@ -3,7 +3,11 @@ package co.com.bancolombia.binstash.model.api;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * API for storing Objects in cache. Implementor will use <pre>Stash</pre> as a repository, and Objects will be
@@ -29,6 +33,40 @@ public interface ObjectCache<T> {
      */
     Mono<T> save(String key, T value, int ttl);
 
+    /**
+     * Save value to cache, along with the type it was read as. Caches holding values as the objects they are keep
+     * the type with the value, so values of generic types are found again only when looked up as that same type.
+     * Other caches just save the value.
+     * @param key key to index value
+     * @param value value to store
+     * @param ttl time key should live in cache, or -1 for the default of the cache
+     * @param ref the class or type reference the value was read as
+     * @return value stored
+     */
+    default Mono<T> saveAs(String key, T value, int ttl, Object ref) {
+        return save(key, value, ttl);
+    }
+
+    /**
+     * Save value to cache only if the key is not there yet, checking and saving as a single atomic operation.
+     * @param key key to index value
+     * @param value value to store
+     * @param ttl time key should live in cache
+     * @return true if the value was stored, false if the key already existed
+     */
+    Mono<Boolean> saveIfAbsent(String key, T value, int ttl);
+
+    /**
+     * Save value to cache, specifying how long the key is fresh and how long it can be served stale. Caches not
+     * serving stale values keep the key for <pre>hardTtl</pre>.
+     * @param key key to index value
+     * @param value value to store
+     * @param softTtl time key is fresh in cache, after which it is served while being refreshed
+     * @param hardTtl time key should live in cache
+     * @return value stored
+     */
+    Mono<T> save(String key, T value, int softTtl, int hardTtl);
+
     /**
      * Gets an element from cache
      * @param key key to which value was stored
@@ -45,6 +83,58 @@ public interface ObjectCache<T> {
      */
     Mono<T> get(String key, Object ref);
 
+    /**
+     * Gets an element from cache, and on a miss loads it with <pre>loader</pre> and saves it into cache. Concurrent
+     * misses for the same key share a single invocation of the loader.
+     * @param key key to which value was stored
+     * @param clazz The class type of object stored for deserialization purposes
+     * @param loader function that loads the value of a key, on a cache miss
+     * @param ttl time key should live in cache, once loaded
+     * @return value stored under key, or the value loaded. Empty if the loader doesn't return a value.
+     */
+    Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader, int ttl);
+
+    /**
+     * Gets an element from cache, and on a miss loads it with <pre>loader</pre> and saves it into cache. Concurrent
+     * misses for the same key share a single invocation of the loader.
+     * @param key key to which value was stored
+     * @param clazz The class type of object stored for deserialization purposes
+     * @param loader function that loads the value of a key, on a cache miss
+     * @return value stored under key, or the value loaded. Empty if the loader doesn't return a value.
+     */
+    Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader);
+
+    /**
+     * Save several values to cache, in a single batch.
+     * @param values key-values to store
+     * @return values stored
+     */
+    Mono<Map<String, T>> mSave(Map<String, T> values);
+
+    /**
+     * Save several values to cache, in a single batch, alternatively specifying a TTL for the keys
+     * @param values key-values to store
+     * @param ttl time keys should live in cache
+     * @return values stored
+     */
+    Mono<Map<String, T>> mSave(Map<String, T> values, int ttl);
+
+    /**
+     * Gets several elements from cache, in a single batch.
+     * @param keys keys to which values were stored
+     * @param clazz The class type of objects stored for deserialization purposes
+     * @return a map with the key-values found in cache. Keys that don't exist are not included in the map.
+     */
+    Mono<Map<String, T>> mGet(Collection<String> keys, Class<T> clazz);
+
+    /**
+     * Gets several elements from cache, in a single batch.
+     * @param keys keys to which values were stored
+     * @param ref The type reference to process deserialization
+     * @return a map with the key-values found in cache. Keys that don't exist are not included in the map.
+     */
+    Mono<Map<String, T>> mGet(Collection<String> keys, Object ref);
+
     /**
      * Asserts if a key is stored in cache
      * @param key the key to verify
@@ -52,6 +142,13 @@ public interface ObjectCache<T> {
      */
     Mono<Boolean> exists(String key);
 
+    /**
+     * Gets the remaining time to live of a key in cache
+     * @param key the key to verify
+     * @return time left before the key expires, or empty if the key isn't cached or has no expiration.
+     */
+    Mono<Duration> expiresIn(String key);
+
     /**
      * obtains a Set with all keys stored in cache
      * @return a Mono containing a Set of strings mapping each key that exists in cache.
@@ -73,6 +170,14 @@ public interface ObjectCache<T> {
      */
     Mono<Boolean> evict(String key);
 
+    /**
+     * Evicts several key-values stored in cache, in a single batch.
+     * @param keys the keys to evict
+     * @return a Mono containing a boolean result. True if at least one key-value is evicted from cache,
+     * false otherwhise.
+     */
+    Mono<Boolean> mEvict(Collection<String> keys);
+
     /**
      * Evicts all keys in cache.
      * @return a Mono containing a boolean result. True if all keys were evicted from cache, false otherwhise.
@@ -111,9 +216,9 @@ public interface ObjectCache<T> {
      * deserializes them to the specified class type.
      *
      * <p><strong>Performance Warning:</strong> This method has O(N) time complexity, where N is the number
-     * of members in the set. It iterates through every member and fetches its value, resulting in multiple
-     * round-trips to Redis (SMEMBERS, then GET or GET + SREM for each key). For large sets, this can cause
-     * high latency and increased load on Redis due to many sequential calls.</p>
+     * of members in the set. On Redis, members are fetched with SMEMBERS and then with one MGET per batch of
+     * <pre>stash.redis.batchSize</pre> members, removing expired members with a single SREM; or in a single call
+     * when <pre>stash.redis.useScripts</pre> is enabled. Very large sets still transfer every value.</p>
      *
      * @param indexKey the key that identifies the set in cache
      * @param clazz the class type of objects stored for deserialization purposes
@@ -0,0 +1,72 @@
+package co.com.bancolombia.binstash.model.api;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <pre>StringStash</pre> that can also hold values as the objects they are, for in-process stashes where
+ * serializing values would only cost time. Held objects are handed to every reader as they are, so they must not be
+ * mutated once saved.
+ */
+public interface ObjectStash extends StringStash {
+
+    /**
+     * Saves an object as it is.
+     * @param key key to store related object
+     * @param value object to be stored
+     * @param ttl time the key should live in the stash
+     * @return the same object stored.
+     */
+    <T> Mono<T> saveObject(String key, T value, int ttl);
+
+    /**
+     * Saves an object as it is, only if the key doesn't exist yet, as a single atomic operation.
+     * @param key key to store related object
+     * @param value object to be stored
+     * @param ttl time the key should live in the stash
+     * @return true if the object was saved, false if the key already existed.
+     */
+    <T> Mono<Boolean> saveObjectIfAbsent(String key, T value, int ttl);
+
+    /**
+     * Gets an object saved with <pre>saveObject</pre>.
+     * @param key the key to be obtained
+     * @return the object stored under key, or empty if there is none (or the key holds a <pre>String</pre>).
+     */
+    Mono<Object> getObject(String key);
+
+    /**
+     * Saves several objects as they are, in a single batch.
+     * @param values key-objects to be stored
+     * @param ttl time the keys should live in the stash
+     * @return the same key-objects stored.
+     */
+    <T> Mono<Map<String, T>> mSaveObjects(Map<String, T> values, int ttl);
+
+    /**
+     * Gets several objects, in a single batch.
+     * @param keys the keys to be obtained
+     * @return a map with the key-objects found. Keys that don't exist, or don't hold objects, are not included.
+     */
+    Mono<Map<String, Object>> mGetObjects(Collection<String> keys);
+
+    /**
+     * Saves a key-object pair in a set identified by indexKey.
+     * @param indexKey the identifier of the set collection
+     * @param key the key to be stored in the set
+     * @param value the object to be stored under the key
+     * @param ttl time to live in seconds
+     * @return the object stored.
+     */
+    <T> Mono<T> setSaveObject(String indexKey, String key, T value, int ttl);
+
+    /**
+     * Retrieves all objects from the set identified by indexKey.
+     * @param indexKey the identifier of the set collection
+     * @return all objects stored in the set if exists, Empty Flux otherwise.
+     */
+    Flux<Object> setGetAllObjects(String indexKey);
+}
@@ -3,6 +3,9 @@ package co.com.bancolombia.binstash.model.api;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -27,6 +30,15 @@ public interface StringStash {
      */
     Mono<String> save(String key, String value);
 
+    /**
+     * Saves a key-value in a repository, only if the key doesn't exist yet, as a single atomic operation.
+     * @param key key to store related value
+     * @param value value to be stored
+     * @param ttl time the key should live in the stash
+     * @return true if the value was saved, false if the key already existed.
+     */
+    Mono<Boolean> saveIfAbsent(String key, String value, int ttl);
+
     /**
      * Gets a value from the store.
      * @param key the key to be obtainer
@@ -34,6 +46,28 @@ public interface StringStash {
      */
     Mono<String> get(String key);
 
+    /**
+     * Saves several key-values in a repository, in a single batch.
+     * @param values key-values to be stored
+     * @param ttl time the keys should live in the stash
+     * @return the same key-values stored.
+     */
+    Mono<Map<String, String>> mSave(Map<String, String> values, int ttl);
+
+    /**
+     * Saves several key-values in a repository, in a single batch.
+     * @param values key-values to be stored
+     * @return the same key-values stored.
+     */
+    Mono<Map<String, String>> mSave(Map<String, String> values);
+
+    /**
+     * Gets several values from the store, in a single batch.
+     * @param keys the keys to be obtained
+     * @return a map with the key-values found. Keys that don't exist are not included in the map.
+     */
+    Mono<Map<String, String>> mGet(Collection<String> keys);
+
     /**
      * Gets a set of all keys currently stored
      * @return Set o f keys
@@ -57,6 +91,13 @@ public interface StringStash {
      */
     Mono<Boolean> exists(String key);
 
+    /**
+     * Gets the remaining time to live of a key.
+     * @param key the key to be checked.
+     * @return time left before the key expires, or empty if the key doesn't exist or has no expiration.
+     */
+    Mono<Duration> expiresIn(String key);
+
     /**
      * Remove the specified key, and its value, from the repo, if such key exists.
      * @param key the key to be evicted.
@@ -64,6 +105,13 @@ public interface StringStash {
      */
     Mono<Boolean> evict(String key);
 
+    /**
+     * Remove the specified keys, and its values, from the repo, in a single batch.
+     * @param keys the keys to be evicted.
+     * @return true if at least one of the keys was evicted.
+     */
+    Mono<Boolean> mEvict(Collection<String> keys);
+
     /**
      * Prune whole repository, evicting all keys and its associated values.
      * @return true if the process completed successfully, false otherwise.
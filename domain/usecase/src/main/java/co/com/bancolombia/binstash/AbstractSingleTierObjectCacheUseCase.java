@@ -0,0 +1,177 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.InvalidValueException;
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.type.TypeReference;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Single tier cache logic shared by the stash flavours, values are serialized to <pre>S</pre> before reaching the
+ * underlying stash and deserialized back on the way out.
+ *
+ * @param <T> type of the cached values
+ * @param <S> serialized form handled by the underlying stash
+ */
+@SuppressWarnings("unchecked")
+public abstract class AbstractSingleTierObjectCacheUseCase<T, S> implements ObjectCache<T> {
+
+    private final SingleFlightLoader<T> singleFlightLoader;
+
+    protected AbstractSingleTierObjectCacheUseCase(DistributedLease loadLease, double refreshBeta) {
+        this.singleFlightLoader = new SingleFlightLoader<>(loadLease, refreshBeta);
+    }
+
+    protected abstract Mono<S> stashSave(String key, S value, int ttl);
+
+    protected abstract Mono<Boolean> stashSaveIfAbsent(String key, S value, int ttl);
+
+    protected abstract Mono<Map<String, S>> stashMSave(Map<String, S> values, int ttl);
+
+    protected abstract Mono<S> stashGet(String key);
+
+    protected abstract Mono<Map<String, S>> stashMGet(Collection<String> keys);
+
+    protected abstract Mono<S> stashSetSave(String indexKey, String key, S value, int ttl);
+
+    protected abstract Flux<S> stashSetGetAll(String indexKey);
+
+    protected abstract S serialize(T obj);
+
+    protected abstract T deserialize(S obj, Class<T> clazz);
+
+    protected abstract T deserialize(S obj, TypeReference<? extends T> ref);
+
+    @Override
+    public Mono<T> save(String key, T value) {
+        return save(key, value, -1);
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int ttl) {
+        if (value == null) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        } else {
+            return Mono.just(value)
+                    .map(this::serialize)
+                    .flatMap(serialized -> stashSave(key, serialized, ttl))
+                    .map(r -> value);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, T value, int ttl) {
+        if (value == null) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        } else {
+            return Mono.just(value)
+                    .map(this::serialize)
+                    .flatMap(serialized -> stashSaveIfAbsent(key, serialized, ttl));
+        }
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int softTtl, int hardTtl) {
+        return save(key, value, hardTtl);
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values) {
+        return mSave(values, -1);
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values, int ttl) {
+        if (values == null || values.values().stream().anyMatch(Objects::isNull)) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        } else {
+            return Mono.fromSupplier(() -> this.serializeAll(values))
+                    .flatMap(serialized -> stashMSave(serialized, ttl))
+                    .map(r -> values);
+        }
+    }
+
+    @Override
+    public Mono<T> get(String key, Class<T> clazz) {
+        return Mono.just(key)
+                .flatMap(this::stashGet)
+                .map(serialized -> this.deserialize(serialized, clazz));
+    }
+
+    @Override
+    public Mono<T> get(String key, Object ref) {
+        return Mono.just(key)
+                .flatMap(this::stashGet)
+                .map(serialized -> this.deserialize(serialized, (TypeReference<? extends T>) ref));
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader, int ttl) {
+        return singleFlightLoader.getOrLoad(key, () -> this.get(key, clazz), () -> this.expiresIn(key), loader,
+                value -> this.save(key, value, ttl));
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader) {
+        return getOrLoad(key, clazz, loader, -1);
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Class<T> clazz) {
+        return stashMGet(keys)
+                .map(found -> this.deserializeAll(found, serialized -> this.deserialize(serialized, clazz)));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Object ref) {
+        return stashMGet(keys)
+                .map(found -> this.deserializeAll(found,
+                        serialized -> this.deserialize(serialized, (TypeReference<? extends T>) ref)));
+    }
+
+    @Override
+    public Mono<T> setSave(String indexKey, String key, T value, int ttl) {
+        if (value == null) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        } else {
+            return Mono.just(value)
+                    .map(this::serialize)
+                    .flatMap(serialized -> stashSetSave(indexKey, key, serialized, ttl))
+                    .map(r -> value);
+        }
+    }
+
+    @Override
+    public Mono<T> setSave(String indexKey, String key, T value) {
+        return this.setSave(indexKey, key, value, -1);
+    }
+
+    @Override
+    public Flux<T> setGetAll(String indexKey, Class<T> clazz) {
+        return stashSetGetAll(indexKey)
+                .map(value -> this.deserialize(value, clazz));
+    }
+
+    private Map<String, S> serializeAll(Map<String, T> values) {
+        final Map<String, S> serialized = new HashMap<>();
+        values.forEach((key, value) -> serialized.put(key, this.serialize(value)));
+        return serialized;
+    }
+
+    private Map<String, T> deserializeAll(Map<String, S> values, Function<S, T> deserializer) {
+        final Map<String, T> deserialized = new HashMap<>();
+        values.forEach((key, value) -> {
+            T obj = deserializer.apply(value);
+            if (obj != null)
+                deserialized.put(key, obj);
+        });
+        return deserialized;
+    }
+}
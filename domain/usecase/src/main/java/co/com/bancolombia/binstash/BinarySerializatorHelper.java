@@ -0,0 +1,66 @@
+package co.com.bancolombia.binstash;
+
+import lombok.extern.java.Log;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Serializes values to bytes with an <pre>ObjectMapper</pre> of a binary format, like Jackson's
+ * <pre>SmileMapper</pre> or <pre>CBORMapper</pre>, whose output buffers are recycled across calls. Other serializers
+ * (eg. Kryo) can be plugged in by overriding its methods.
+ *
+ * @param <T> type of the serialized values
+ */
+@Log
+public class BinarySerializatorHelper<T> {
+
+    private final ObjectMapper objectMapper;
+    private final ValueCompressor compressor;
+
+    public BinarySerializatorHelper(ObjectMapper objectMapper) {
+        this(objectMapper, ValueCompressor.DISABLED);
+    }
+
+    /**
+     * @param objectMapper serializes values
+     * @param compressor compresses serialized values, and decompresses the ones read
+     */
+    public BinarySerializatorHelper(ObjectMapper objectMapper, ValueCompressor compressor) {
+        this.objectMapper = objectMapper;
+        this.compressor = compressor;
+    }
+
+    public byte[] serialize(T obj) {
+        try {
+            if (obj == null)
+                return null;
+            return compressor.compress(objectMapper.writeValueAsBytes(obj));
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+            return null;
+        }
+    }
+
+    public T deserializeTo(byte[] obj, Class<T> clazz) {
+        try {
+            if (obj == null || clazz == null)
+                return null;
+            return objectMapper.readValue(compressor.decompress(obj), clazz);
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+            return null;
+        }
+    }
+
+    public T deserializeWith(byte[] obj, TypeReference<? extends T> ref) {
+        try {
+            if (obj == null || ref == null)
+                return null;
+
+            return objectMapper.readValue(compressor.decompress(obj), ref);
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.WarmUpConfig;
+import co.com.bancolombia.binstash.model.api.StringStash;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies keys of the centralized tier to the local one before the application takes traffic, so the first requests
+ * don't all miss the local tier. Only keys matching the configured patterns and allowed to sync downstream are
+ * copied, and they live in the local tier as long as its default ttl.
+ */
+@Log
+public class CacheWarmUpUseCase {
+
+    private final StringStash localStash;
+    private final StringStash centralizedStash;
+    private final RuleEvaluatorUseCase ruleEvaluatorUseCase;
+    private final WarmUpConfig config;
+
+    public CacheWarmUpUseCase(StringStash localStash,
+                              StringStash centralizedStash,
+                              RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                              WarmUpConfig config) {
+        this.localStash = localStash;
+        this.centralizedStash = centralizedStash;
+        this.ruleEvaluatorUseCase = ruleEvaluatorUseCase;
+        this.config = config;
+    }
+
+    /**
+     * Runs the warm-up. It never fails: batches that can't be fetched or saved are skipped, and when the time budget
+     * runs out the keys copied so far are kept.
+     * @return number of keys copied to the local tier.
+     */
+    public Mono<Long> warmUp() {
+        if (!config.isEnabled()) {
+            return Mono.just(0L);
+        }
+        final AtomicLong copied = new AtomicLong();
+        final int limit = config.getMaxKeys();
+        Flux<String> keys = Flux.fromIterable(config.getPatterns())
+                .concatMap(pattern -> centralizedStash.keys(pattern, limit))
+                .filter(ruleEvaluatorUseCase::evalForDownstreamSync)
+                .distinct();
+        if (limit > 0) {
+            keys = keys.take(limit);
+        }
+        return keys
+                .buffer(config.getBatchSize())
+                .flatMap(batch -> centralizedStash.mGet(batch)
+                        .filter(values -> !values.isEmpty())
+                        .flatMap(localStash::mSave)
+                        .map(Map::size)
+                        .doOnNext(copied::addAndGet)
+                        .onErrorResume(error -> {
+                            log.warning("Could not warm up a batch of keys: " + error.getMessage());
+                            return Mono.empty();
+                        }), config.getConcurrency())
+                .then(Mono.fromSupplier(copied::get))
+                .timeout(config.getTimeout(), Mono.fromSupplier(() -> {
+                    log.warning("Cache warm-up timed out after " + config.getTimeout() + ", "
+                            + copied.get() + " keys copied");
+                    return copied.get();
+                }))
+                .onErrorResume(error -> {
+                    log.warning("Cache warm-up stopped: " + error.getMessage());
+                    return Mono.fromSupplier(copied::get);
+                });
+    }
+}
@@ -1,13 +1,17 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class DoubleTierMapCacheUseCase implements MapCache {
 
@@ -15,13 +19,23 @@ public class DoubleTierMapCacheUseCase implements MapCache {
     private final MapCache localCache;
     private final MapCache centralizedCache;
     private final RuleEvaluatorUseCase ruleEvaluatorUseCase;
+    private final SingleFlightLoader<Map<String, String>> singleFlightLoader = new SingleFlightLoader<>();
+    private final InvalidationBus invalidationBus;
 
     public DoubleTierMapCacheUseCase(MapCache localCache,
                                      MapCache centralizedCache,
                                      RuleEvaluatorUseCase ruleEvaluatorUseCase) {
+        this(localCache, centralizedCache, ruleEvaluatorUseCase, null);
+    }
+
+    public DoubleTierMapCacheUseCase(MapCache localCache,
+                                     MapCache centralizedCache,
+                                     RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                                     InvalidationBus invalidationBus) {
         this.localCache = localCache;
         this.centralizedCache = centralizedCache;
         this.ruleEvaluatorUseCase = ruleEvaluatorUseCase;
+        this.invalidationBus = invalidationBus;
     }
 
     @Override
@@ -32,15 +46,9 @@ public class DoubleTierMapCacheUseCase implements MapCache {
     @Override
     public Mono<Map<String, String>> saveMap(String key, Map<String, String> value, int ttl) {
         return localCache.saveMap(key, value, ttl)
-                .doAfterTerminate(() ->
-                        Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
-                                .subscribeOn(elastic_scheduler)
-                                .filter(shouldSync -> shouldSync)
-                                .flatMap(shouldSync -> centralizedCache.existsMap(key))
-                                .filter(elementExistsInDistCache -> !elementExistsInDistCache)
-                                .flatMap(exists -> centralizedCache.saveMap(key, value, ttl))
-                                .subscribe()
-                );
+                .doAfterTerminate(() -> this.syncUpstream(key, () -> this.overwritesUpstream() ?
+                        centralizedCache.saveMap(key, value, ttl).thenReturn(true) :
+                        centralizedCache.saveMapIfAbsent(key, value, ttl)));
     }
 
     @Override
@@ -51,15 +59,33 @@ public class DoubleTierMapCacheUseCase implements MapCache {
     @Override
     public Mono<String> saveMap(String key, String field, String value, int ttl) {
         return localCache.saveMap(key, field, value, ttl)
-                .doAfterTerminate(() ->
-                        Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
-                                .subscribeOn(elastic_scheduler)
-                                .filter(shouldSync -> shouldSync)
-                                .flatMap(shouldSync -> centralizedCache.existsMap(key, field))
-                                .filter(elementExistsInDistCache -> !elementExistsInDistCache)
-                                .flatMap(exists -> centralizedCache.saveMap(key, field, value, ttl))
-                                .subscribe()
-                );
+                .doAfterTerminate(() -> this.syncUpstream(key, () -> this.overwritesUpstream() ?
+                        centralizedCache.saveMap(key, field, value, ttl).thenReturn(true) :
+                        centralizedCache.saveMapIfAbsent(key, field, value, ttl)));
+    }
+
+    /**
+     * Saves the map in the local tier only if the key is not there, then syncs it upstream the same way.
+     */
+    @Override
+    public Mono<Boolean> saveMapIfAbsent(String key, Map<String, String> value, int ttl) {
+        return localCache.saveMapIfAbsent(key, value, ttl)
+                .doOnNext(saved -> {
+                    if (Boolean.TRUE.equals(saved))
+                        this.syncUpstream(key, () -> centralizedCache.saveMapIfAbsent(key, value, ttl));
+                });
+    }
+
+    /**
+     * Saves the field in the local tier only if the map doesn't hold it, then syncs it upstream the same way.
+     */
+    @Override
+    public Mono<Boolean> saveMapIfAbsent(String key, String field, String value, int ttl) {
+        return localCache.saveMapIfAbsent(key, field, value, ttl)
+                .doOnNext(saved -> {
+                    if (Boolean.TRUE.equals(saved))
+                        this.syncUpstream(key, () -> centralizedCache.saveMapIfAbsent(key, field, value, ttl));
+                });
     }
 
     @Override
@@ -94,6 +120,19 @@ public class DoubleTierMapCacheUseCase implements MapCache {
             ));
     }
 
+    @Override
+    public Mono<Map<String, String>> getOrLoadMap(String key,
+                                                  Function<String, Mono<Map<String, String>>> loader, int ttl) {
+        return singleFlightLoader.getOrLoad(key, () -> this.getMap(key), loader,
+                value -> this.saveMap(key, value, ttl));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getOrLoadMap(String key, Function<String, Mono<Map<String, String>>> loader) {
+        return singleFlightLoader.getOrLoad(key, () -> this.getMap(key), loader,
+                value -> this.saveMap(key, value));
+    }
+
     @Override
     public Mono<Boolean> existsMap(String key) {
         return localCache.existsMap(key);
@@ -116,12 +155,41 @@ public class DoubleTierMapCacheUseCase implements MapCache {
 
     @Override
     public Mono<Boolean> evictMap(String key) {
-        return localCache.evictMap(key);
+        return localCache.evictMap(key)
+                .doAfterTerminate(() -> this.syncUpstream(key, () -> centralizedCache.evictMap(key).thenReturn(true)));
     }
 
     @Override
     public Mono<Boolean> evictMap(String key, String field) {
-        return localCache.evictMap(key, field);
+        return localCache.evictMap(key, field)
+                .doAfterTerminate(() -> this.syncUpstream(key,
+                        () -> centralizedCache.evictMap(key, field).thenReturn(true)));
+    }
+
+    /*
+     * Other instances drop their local copy of a hash only once it has been written upstream, otherwise they could
+     * load the old one again right away. For that, a hash they are told about must be overwritten upstream.
+     */
+    private boolean overwritesUpstream() {
+        return invalidationBus != null;
+    }
+
+    /*
+     * Runs the upstream write when the rules sync the key, then tells other instances about it. Keys that are not
+     * synced upstream are invalidated right away.
+     */
+    private void syncUpstream(String key, Supplier<Mono<Boolean>> centralizedWrite) {
+        Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
+                .subscribeOn(elastic_scheduler)
+                .flatMap(shouldSync -> Boolean.TRUE.equals(shouldSync) ? centralizedWrite.get() : Mono.just(true))
+                .filter(written -> written)
+                .subscribe(written -> this.invalidateOthers(key), error -> {});
+    }
+
+    // other instances drop the whole hash, even when only a field changed
+    private void invalidateOthers(String key) {
+        if (invalidationBus != null && key != null)
+            invalidationBus.publish(List.of(key));
     }
 
 }
@@ -1,12 +1,22 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.model.StaleConfig;
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
 
@@ -14,46 +24,114 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
     private final ObjectCache<T> localCache;
     private final ObjectCache<T> centralizedCache;
     private final RuleEvaluatorUseCase ruleEvaluatorUseCase;
+    private final SingleFlightLoader<T> singleFlightLoader;
+    private final SoftTtlTracker softTtlTracker;
+    private final InvalidationBus invalidationBus;
+    private final WriteBehindQueue<T> writeBehindQueue;
 
     public DoubleTierObjectCacheUseCase(ObjectCache<T> localCache,
                                         ObjectCache<T> centralizedCache,
                                         RuleEvaluatorUseCase ruleEvaluatorUseCase) {
+        this(localCache, centralizedCache, ruleEvaluatorUseCase, null);
+    }
+
+    public DoubleTierObjectCacheUseCase(ObjectCache<T> localCache,
+                                        ObjectCache<T> centralizedCache,
+                                        RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                                        DistributedLease loadLease) {
+        this(localCache, centralizedCache, ruleEvaluatorUseCase, loadLease, 0);
+    }
+
+    public DoubleTierObjectCacheUseCase(ObjectCache<T> localCache,
+                                        ObjectCache<T> centralizedCache,
+                                        RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                                        DistributedLease loadLease,
+                                        double refreshBeta) {
+        this(localCache, centralizedCache, ruleEvaluatorUseCase, loadLease, refreshBeta, null);
+    }
+
+    public DoubleTierObjectCacheUseCase(ObjectCache<T> localCache,
+                                        ObjectCache<T> centralizedCache,
+                                        RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                                        DistributedLease loadLease,
+                                        double refreshBeta,
+                                        StaleConfig staleConfig) {
+        this(localCache, centralizedCache, ruleEvaluatorUseCase, loadLease, refreshBeta, staleConfig, null);
+    }
+
+    public DoubleTierObjectCacheUseCase(ObjectCache<T> localCache,
+                                        ObjectCache<T> centralizedCache,
+                                        RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                                        DistributedLease loadLease,
+                                        double refreshBeta,
+                                        StaleConfig staleConfig,
+                                        InvalidationBus invalidationBus) {
+        this(localCache, centralizedCache, ruleEvaluatorUseCase, loadLease, refreshBeta, staleConfig, invalidationBus,
+                new WriteBehindQueue<>(centralizedCache));
+    }
+
+    public DoubleTierObjectCacheUseCase(ObjectCache<T> localCache,
+                                        ObjectCache<T> centralizedCache,
+                                        RuleEvaluatorUseCase ruleEvaluatorUseCase,
+                                        DistributedLease loadLease,
+                                        double refreshBeta,
+                                        StaleConfig staleConfig,
+                                        InvalidationBus invalidationBus,
+                                        WriteBehindQueue<T> writeBehindQueue) {
         this.localCache = localCache;
         this.centralizedCache = centralizedCache;
         this.ruleEvaluatorUseCase = ruleEvaluatorUseCase;
+        this.singleFlightLoader = new SingleFlightLoader<>(loadLease, refreshBeta);
+        this.softTtlTracker = new SoftTtlTracker(staleConfig);
+        this.invalidationBus = invalidationBus;
+        this.writeBehindQueue = writeBehindQueue;
     }
 
     @Override
     public Mono<T> save(String key, T value, int ttl) {
-        return localCache.save(key, value, ttl)
-                .doAfterTerminate(() ->
-                        Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
-                                .subscribeOn(elastic_scheduler)
-                                .filter(shouldSync -> shouldSync)
-                                .flatMap(shouldSync -> centralizedCache.exists(key))
-                                .filter(elementExistsInDistCache -> !elementExistsInDistCache)
-                                .flatMap(exists -> centralizedCache.save(key, value, ttl))
-                                .subscribe()
-                );
+        return save(key, value, ttl, this.overwritesUpstream());
     }
 
     @Override
     public Mono<T> save(String key, T value) {
-        return localCache.save(key, value)
-                .doAfterTerminate(() ->
-                        Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
-                                .subscribeOn(elastic_scheduler)
-                                .filter(shouldSync -> shouldSync)
-                                .flatMap(shouldSync -> centralizedCache.exists(key))
-                                .filter(elementExistsInDistCache -> !elementExistsInDistCache)
-                                .flatMap(exists -> centralizedCache.save(key, value))
-                                .subscribe()
-                );
+        return save(key, value, this.overwritesUpstream());
+    }
+
+    /**
+     * Saves the value in the local tier only if the key is not there, then syncs it upstream the same way.
+     */
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, T value, int ttl) {
+        return localCache.saveIfAbsent(key, value, ttl)
+                .doOnNext(saved -> {
+                    if (Boolean.TRUE.equals(saved))
+                        this.syncUpstream(key, value, ttl, false);
+                });
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int softTtl, int hardTtl) {
+        return saveLocal(key, value, softTtl, hardTtl)
+                .doAfterTerminate(() -> this.syncUpstream(key, value, hardTtl, this.overwritesUpstream()));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values, int ttl) {
+        return mSaveLocal(values, ttl)
+                .doAfterTerminate(() -> this.syncUpstream(values, ttl, this.overwritesUpstream()));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values) {
+        return mSaveLocal(values)
+                .doAfterTerminate(() -> this.syncUpstream(values, -1, this.overwritesUpstream()));
     }
 
     @Override
     public Mono<T> get(String key, Class<T> clazz) {
         return localCache.get(key, clazz)
+            .doOnNext(cached -> this.revalidateIfStale(key, () -> this.centralizedCache.get(key, clazz),
+                    fresh -> this.saveLocal(key, fresh)))
             .switchIfEmpty(Mono.defer(() ->
                 Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
                     .filter(shouldFetchFromDist -> shouldFetchFromDist)
@@ -64,6 +142,8 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
     @Override
     public Mono<T> get(String key, Object ref) {
         return localCache.get(key, ref)
+            .doOnNext(cached -> this.revalidateIfStale(key, () -> this.centralizedCache.get(key, ref),
+                    fresh -> this.saveLocal(key, fresh, ref)))
             .switchIfEmpty(Mono.defer(() ->
                 Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
                     .filter(shouldFetchFromDist -> shouldFetchFromDist)
@@ -71,11 +151,45 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
             ));
     }
 
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader, int ttl) {
+        return singleFlightLoader.getOrLoad(key, () -> this.get(key, clazz), () -> this.expiresIn(key), loader,
+                value -> this.save(key, value, ttl, true));
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader) {
+        return singleFlightLoader.getOrLoad(key, () -> this.get(key, clazz), () -> this.expiresIn(key), loader,
+                value -> this.save(key, value, true));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Class<T> clazz) {
+        return localCache.mGet(keys, clazz)
+                .flatMap(found -> this.searchCentralized(keys, found,
+                        missing -> this.centralizedCache.mGet(missing, clazz), this::mSaveLocal));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Object ref) {
+        return localCache.mGet(keys, ref)
+                .flatMap(found -> this.searchCentralized(keys, found,
+                        missing -> this.centralizedCache.mGet(missing, ref),
+                        toSync -> Flux.fromIterable(toSync.entrySet())
+                                .flatMap(entry -> this.saveLocal(entry.getKey(), entry.getValue(), ref))
+                                .then()));
+    }
+
     @Override
     public Mono<Boolean> exists(String key) {
         return localCache.exists(key);
     }
 
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return localCache.expiresIn(key);
+    }
+
     @Override
     public Mono<Set<String>> keySet() {
         return localCache.keySet();
@@ -88,22 +202,30 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
 
     @Override
     public Mono<Boolean> evict(String key) {
+        softTtlTracker.forget(key);
         return localCache.evict(key)
-            .doAfterTerminate(() ->
-                Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key))
-                    .subscribeOn(elastic_scheduler)
-                    .filter(shouldSyncUpstream -> shouldSyncUpstream)
-                    .flatMap(shouldSync -> centralizedCache.evict(key))
-                    .subscribe()
-            );
+            .doAfterTerminate(() -> this.evictUpstream(List.of(key), keysToSync -> centralizedCache.evict(key)));
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        if (keys != null)
+            keys.forEach(softTtlTracker::forget);
+        return localCache.mEvict(keys)
+            .doAfterTerminate(() -> this.evictUpstream(keys, centralizedCache::mEvict));
     }
 
     @Override
     public Mono<Boolean> evictAll() {
         // TODO: should sync evictAll event to centralized cache?
+        softTtlTracker.forgetAll();
         return localCache.evictAll();
     }
 
+    /*
+     * Adding a member upstream is idempotent, and its value the latest one, so members are written as they are, in a
+     * single call, whether the set already exists upstream or not.
+     */
     @Override
     public Mono<T> setSave(String indexKey, String key, T value, int ttl) {
         return localCache.setSave(indexKey, key, value, ttl)
@@ -111,9 +233,7 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
                         Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(indexKey))
                                 .subscribeOn(elastic_scheduler)
                                 .filter(shouldSync -> shouldSync)
-                                .flatMap(shouldSync -> centralizedCache.exists(indexKey))
-                                .filter(elementExistsInDistCache -> !elementExistsInDistCache)
-                                .flatMap(exists -> centralizedCache.setSave(indexKey, key, value, ttl))
+                                .flatMap(shouldSync -> centralizedCache.setSave(indexKey, key, value, ttl))
                                 .subscribe()
                 );
     }
@@ -125,9 +245,7 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
                         Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(indexKey))
                                 .subscribeOn(elastic_scheduler)
                                 .filter(shouldSync -> shouldSync)
-                                .flatMap(shouldSync -> centralizedCache.exists(indexKey))
-                                .filter(elementExistsInDistCache -> !elementExistsInDistCache)
-                                .flatMap(exists -> centralizedCache.setSave(indexKey, key, value))
+                                .flatMap(shouldSync -> centralizedCache.setSave(indexKey, key, value))
                                 .subscribe()
                 );
     }
@@ -155,25 +273,186 @@ public class DoubleTierObjectCacheUseCase<T> implements ObjectCache<T> {
     }
 
     private Mono<T> searchCentralized(String key, Class<T> clazz) {
+        softTtlTracker.forget(key);
         return this.centralizedCache.get(key, clazz)
                 .doOnNext(next ->
                         Mono.just(ruleEvaluatorUseCase.evalForDownstreamSync(key))
                                 .filter(shouldSyncFromDist -> shouldSyncFromDist)
-                                .flatMap(shouldSync -> this.localCache.save(key, next))
+                                .flatMap(shouldSync -> this.saveLocal(key, next))
                                 .subscribe()
                 );
     }
 
     private Mono<T> searchCentralized(String key, Object ref) {
+        softTtlTracker.forget(key);
         return this.centralizedCache.get(key, ref)
                 .doOnNext(next ->
                         Mono.just(ruleEvaluatorUseCase.evalForDownstreamSync(key))
                                 .filter(shouldSyncFromDist -> shouldSyncFromDist)
-                                .flatMap(shouldSync -> this.localCache.save(key, next))
+                                .flatMap(shouldSync -> this.saveLocal(key, next, ref))
                                 .subscribe()
                 );
     }
 
+    private Mono<Map<String, T>> searchCentralized(Collection<String> keys, Map<String, T> found,
+                                                  Function<List<String>, Mono<Map<String, T>>> centralizedGet,
+                                                  Function<Map<String, T>, Mono<?>> localSave) {
+        final List<String> missing = keys.stream()
+                .distinct()
+                .filter(key -> !found.containsKey(key))
+                .filter(ruleEvaluatorUseCase::evalForUpstreamSync)
+                .toList();
+        if (missing.isEmpty()) {
+            return Mono.just(found);
+        }
+        return centralizedGet.apply(missing)
+                .doOnNext(fetched -> {
+                    final Map<String, T> toSync = new HashMap<>();
+                    fetched.forEach((key, value) -> {
+                        if (ruleEvaluatorUseCase.evalForDownstreamSync(key))
+                            toSync.put(key, value);
+                    });
+                    if (!toSync.isEmpty())
+                        localSave.apply(toSync).subscribe();
+                })
+                .map(fetched -> {
+                    final Map<String, T> merged = new HashMap<>(found);
+                    merged.putAll(fetched);
+                    return merged;
+                });
+    }
+
+    private Mono<T> save(String key, T value, int ttl, boolean overwrite) {
+        return saveLocal(key, value, ttl)
+                .doAfterTerminate(() -> this.syncUpstream(key, value, ttl, overwrite));
+    }
+
+    private Mono<T> save(String key, T value, boolean overwrite) {
+        return saveLocal(key, value)
+                .doAfterTerminate(() -> this.syncUpstream(key, value, -1, overwrite));
+    }
+
+    /*
+     * Other instances drop their local copy of a key only once it has been written upstream, otherwise they could
+     * load the old value again right away. For that, a key they are told about must be overwritten upstream.
+     */
+    private boolean overwritesUpstream() {
+        return invalidationBus != null;
+    }
+
+    private void syncUpstream(String key, T value, int ttl, boolean overwrite) {
+        if (value != null)
+            this.syncUpstream(Map.of(key, value), ttl, overwrite);
+    }
+
+    /*
+     * Upstream writes go through the write-behind queue, ttl -1 standing for the default of the centralized tier.
+     * Keys that are not synced upstream are invalidated right away.
+     */
+    private void syncUpstream(Map<String, T> values, int ttl, boolean overwrite) {
+        if (values == null)
+            return;
+        Flux.fromIterable(values.entrySet())
+                .filter(entry -> entry.getValue() != null)
+                .flatMap(entry -> ruleEvaluatorUseCase.evalForUpstreamSync(entry.getKey()) ?
+                        writeBehindQueue.offer(entry.getKey(), entry.getValue(), ttl, overwrite)
+                                .filter(written -> written)
+                                .map(written -> entry.getKey()) :
+                        Mono.just(entry.getKey()))
+                .collectList()
+                .filter(keys -> !keys.isEmpty())
+                .subscribe(this::invalidateOthers, error -> {});
+    }
+
+    /*
+     * Stale hits are served right away, while at most one background call per key refreshes them from the
+     * centralized tier.
+     */
+    private void revalidateIfStale(String key, Supplier<Mono<T>> centralizedGet, Function<T, Mono<T>> localSave) {
+        if (!softTtlTracker.tryRevalidate(key)) {
+            return;
+        }
+        Mono.just(ruleEvaluatorUseCase.evalForUpstreamSync(key) && ruleEvaluatorUseCase.evalForDownstreamSync(key))
+                .subscribeOn(elastic_scheduler)
+                .filter(shouldRevalidate -> shouldRevalidate)
+                .flatMap(shouldRevalidate -> centralizedGet.get())
+                .flatMap(localSave)
+                .doFinally(signal -> softTtlTracker.revalidated(key))
+                .subscribe(fresh -> {}, error -> {});
+    }
+
+    /*
+     * As with writes, other instances are told about the keys once they are gone upstream.
+     */
+    private void evictUpstream(Collection<String> keys, Function<List<String>, Mono<Boolean>> centralizedEvict) {
+        if (keys == null)
+            return;
+        Mono.fromSupplier(() -> keys.stream()
+                        .filter(ruleEvaluatorUseCase::evalForUpstreamSync)
+                        .toList())
+                .subscribeOn(elastic_scheduler)
+                .flatMap(keysToSync -> keysToSync.isEmpty() ? Mono.just(true) : centralizedEvict.apply(keysToSync))
+                .subscribe(evicted -> this.invalidateOthers(keys), error -> {});
+    }
+
+    private void invalidateOthers(Collection<String> keys) {
+        if (invalidationBus != null && keys != null)
+            invalidationBus.publish(keys);
+    }
+
+    private Mono<T> saveLocal(String key, T value) {
+        if (!softTtlTracker.isEnabled()) {
+            return localCache.save(key, value);
+        }
+        final StaleConfig config = softTtlTracker.getConfig();
+        return saveLocal(key, value, config.getSoftTtl(), config.getHardTtl());
+    }
+
+    // values read with a type reference are saved along with it, for local tiers telling values apart by type
+    private Mono<T> saveLocal(String key, T value, Object ref) {
+        if (!softTtlTracker.isEnabled()) {
+            return localCache.saveAs(key, value, -1, ref);
+        }
+        final StaleConfig config = softTtlTracker.getConfig();
+        return localCache.saveAs(key, value, config.getHardTtl(), ref)
+                .doOnNext(saved -> softTtlTracker.renew(key, config.getSoftTtl(), config.getHardTtl()));
+    }
+
+    // keys saved with the default ttl (-1) get the configured soft and hard ttl
+    private Mono<T> saveLocal(String key, T value, int ttl) {
+        if (!softTtlTracker.isEnabled()) {
+            return localCache.save(key, value, ttl);
+        }
+        return ttl <= 0 ? saveLocal(key, value) :
+                saveLocal(key, value, ttl, softTtlTracker.getConfig().hardTtlFor(ttl));
+    }
+
+    private Mono<T> saveLocal(String key, T value, int softTtl, int hardTtl) {
+        return localCache.save(key, value, hardTtl)
+                .doOnNext(saved -> softTtlTracker.renew(key, softTtl, hardTtl));
+    }
+
+    private Mono<Map<String, T>> mSaveLocal(Map<String, T> values) {
+        if (!softTtlTracker.isEnabled()) {
+            return localCache.mSave(values);
+        }
+        final StaleConfig config = softTtlTracker.getConfig();
+        return mSaveLocal(values, config.getSoftTtl(), config.getHardTtl());
+    }
+
+    private Mono<Map<String, T>> mSaveLocal(Map<String, T> values, int ttl) {
+        if (!softTtlTracker.isEnabled()) {
+            return localCache.mSave(values, ttl);
+        }
+        return ttl <= 0 ? mSaveLocal(values) :
+                mSaveLocal(values, ttl, softTtlTracker.getConfig().hardTtlFor(ttl));
+    }
+
+    private Mono<Map<String, T>> mSaveLocal(Map<String, T> values, int softTtl, int hardTtl) {
+        return localCache.mSave(values, hardTtl)
+                .doOnNext(saved -> saved.keySet().forEach(key -> softTtlTracker.renew(key, softTtl, hardTtl)));
+    }
+
     private Flux<T> searchCentralizedSet(String indexKey, Class<T> clazz) {
         return this.centralizedCache.setGetAll(indexKey, clazz)
                 .doOnNext(next ->
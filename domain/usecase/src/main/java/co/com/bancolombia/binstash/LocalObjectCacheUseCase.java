@@ -0,0 +1,235 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.InvalidValueException;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import co.com.bancolombia.binstash.model.api.ObjectStash;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.type.TypeReference;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Single tier cache holding values as the objects they are in an in-process <pre>ObjectStash</pre>, so hits skip
+ * deserialization. Values are looked up by key and type: a key holding an object of another type is a miss. Each
+ * value is held along with its type, the class of the value or the type given to <pre>saveAs</pre>, so a value
+ * looked up with a generic type reference is found only when saved as that very type.
+ * <p>
+ * Every hit returns the very instance saved, callers must treat cached values as immutable (or save copies).
+ *
+ * @param <T> type of the cached values
+ */
+@SuppressWarnings("unchecked")
+public class LocalObjectCacheUseCase<T> implements ObjectCache<T> {
+
+    private final ObjectStash cache;
+    private final SingleFlightLoader<T> singleFlightLoader;
+
+    public LocalObjectCacheUseCase(ObjectStash cache) {
+        this(cache, 0);
+    }
+
+    public LocalObjectCacheUseCase(ObjectStash cache, double refreshBeta) {
+        this.cache = cache;
+        this.singleFlightLoader = new SingleFlightLoader<>(null, refreshBeta);
+    }
+
+    @Override
+    public Mono<T> save(String key, T value) {
+        return save(key, value, -1);
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int ttl) {
+        return saveAs(key, value, ttl, null);
+    }
+
+    @Override
+    public Mono<T> saveAs(String key, T value, int ttl, Object ref) {
+        if (value == null) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        }
+        return cache.saveObject(key, held(value, ref), ttl)
+                .thenReturn(value);
+    }
+
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, T value, int ttl) {
+        if (value == null) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        }
+        return cache.saveObjectIfAbsent(key, held(value, null), ttl);
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int softTtl, int hardTtl) {
+        return save(key, value, hardTtl);
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values) {
+        return mSave(values, -1);
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values, int ttl) {
+        if (values == null || values.values().stream().anyMatch(Objects::isNull)) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        }
+        final Map<String, Held> held = new HashMap<>();
+        values.forEach((key, value) -> held.put(key, held(value, null)));
+        return cache.mSaveObjects(held, ttl)
+                .thenReturn(values);
+    }
+
+    @Override
+    public Mono<T> get(String key, Class<T> clazz) {
+        return Mono.just(key)
+                .flatMap(cache::getObject)
+                .filter(found -> matches(found, clazz))
+                .map(this::valueOf);
+    }
+
+    @Override
+    public Mono<T> get(String key, Object ref) {
+        final Type type = typeOf(ref);
+        return Mono.just(key)
+                .flatMap(cache::getObject)
+                .filter(found -> matches(found, type))
+                .map(this::valueOf);
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader, int ttl) {
+        return singleFlightLoader.getOrLoad(key, () -> this.get(key, clazz), () -> this.expiresIn(key), loader,
+                value -> this.save(key, value, ttl));
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader) {
+        return getOrLoad(key, clazz, loader, -1);
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Class<T> clazz) {
+        return cache.mGetObjects(keys)
+                .map(found -> ofType(found, clazz));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Object ref) {
+        final Type type = typeOf(ref);
+        return cache.mGetObjects(keys)
+                .map(found -> ofType(found, type));
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return Mono.just(key)
+                .flatMap(cache::exists);
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return Mono.just(key)
+                .flatMap(cache::expiresIn);
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return cache.keySet();
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        return cache.keys(pattern, limit);
+    }
+
+    @Override
+    public Mono<Boolean> evict(String key) {
+        return cache.evict(key);
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return cache.mEvict(keys);
+    }
+
+    @Override
+    public Mono<Boolean> evictAll() {
+        return cache.evictAll();
+    }
+
+    @Override
+    public Mono<T> setSave(String indexKey, String key, T value, int ttl) {
+        if (value == null) {
+            return Mono.error(new InvalidValueException("Value cannot be null"));
+        }
+        return cache.setSaveObject(indexKey, key, value, ttl);
+    }
+
+    @Override
+    public Mono<T> setSave(String indexKey, String key, T value) {
+        return this.setSave(indexKey, key, value, -1);
+    }
+
+    @Override
+    public Flux<T> setGetAll(String indexKey, Class<T> clazz) {
+        return cache.setGetAllObjects(indexKey)
+                .filter(clazz::isInstance)
+                .map(clazz::cast);
+    }
+
+    @Override
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        return cache.setRemove(indexKey, key);
+    }
+
+    private Map<String, T> ofType(Map<String, Object> values, Type type) {
+        final Map<String, T> typed = new HashMap<>();
+        values.forEach((key, value) -> {
+            if (matches(value, type))
+                typed.put(key, valueOf(value));
+        });
+        return typed;
+    }
+
+    /*
+     * A class matches the values that are instances of it, whatever they were saved as. Any other type, as generic
+     * ones, matches only values saved as an equal type.
+     */
+    private static boolean matches(Object found, Type type) {
+        if (!(found instanceof Held held) || type == null) {
+            return false;
+        }
+        return type instanceof Class<?> clazz ? clazz.isInstance(held.value()) : type.equals(held.type());
+    }
+
+    private T valueOf(Object found) {
+        return (T) ((Held) found).value();
+    }
+
+    // values saved without a type are held as their class
+    private static Held held(Object value, Object ref) {
+        final Type type = typeOf(ref);
+        return new Held(value, type == null ? value.getClass() : type);
+    }
+
+    // null when the reference doesn't tell a type, nothing is found then
+    private static Type typeOf(Object ref) {
+        if (ref instanceof TypeReference<?> typeReference) {
+            return typeReference.getType();
+        }
+        return ref instanceof Type type ? type : null;
+    }
+
+    private record Held(Object value, Type type) {
+    }
+}
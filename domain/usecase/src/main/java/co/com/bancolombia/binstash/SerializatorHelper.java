@@ -1,21 +1,33 @@
 package co.com.bancolombia.binstash;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.java.Log;
 import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
 
 @Log
-@RequiredArgsConstructor
 public class SerializatorHelper<T> {
 
     private final ObjectMapper objectMapper;
+    private final ValueCompressor compressor;
+
+    public SerializatorHelper(ObjectMapper objectMapper) {
+        this(objectMapper, ValueCompressor.DISABLED);
+    }
+
+    /**
+     * @param objectMapper serializes values
+     * @param compressor compresses serialized values, and decompresses the ones read
+     */
+    public SerializatorHelper(ObjectMapper objectMapper, ValueCompressor compressor) {
+        this.objectMapper = objectMapper;
+        this.compressor = compressor;
+    }
 
     public String serialize(T obj) {
         try {
             if (obj == null)
                 return null;
-            return objectMapper.writeValueAsString(obj);
+            return compressor.compress(objectMapper.writeValueAsString(obj));
         } catch (Exception e) {
             log.severe(e.getMessage());
             return null;
@@ -26,7 +38,7 @@ public class SerializatorHelper<T> {
         try {
             if (obj == null || clazz == null)
                 return null;
-            return objectMapper.readValue(obj, clazz);
+            return objectMapper.readValue(compressor.decompress(obj), clazz);
         } catch (Exception e) {
             log.severe(e.getMessage());
             return null;
@@ -38,7 +50,7 @@ public class SerializatorHelper<T> {
             if (obj == null || ref == null)
                 return null;
 
-            return objectMapper.readValue(obj, ref);
+            return objectMapper.readValue(compressor.decompress(obj), ref);
         } catch (Exception e) {
             log.severe(e.getMessage());
             return null;
@@ -0,0 +1,166 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through helper. On a cache miss the value is loaded and written back into the cache, and concurrent
+ * misses for the same key, within this JVM, share a single load. When a <pre>DistributedLease</pre> is provided,
+ * loads are also coordinated across processes: only the holder of the lease loads the key, while the rest poll
+ * the cache until the value shows up or the lease wait time runs out.
+ * <p>
+ * With a positive <pre>refreshBeta</pre>, hits close to their expiration may trigger a background reload following
+ * the XFetch curve (refresh when <pre>-delta * beta * ln(rand()) &gt;= time left</pre>, being delta the observed load
+ * time), so keys written together don't all expire, and miss, at the same time. Higher betas refresh earlier.
+ *
+ * @param <V> type of the cached values
+ */
+@Log
+public class SingleFlightLoader<V> {
+
+    private static final long MIN_POLL_MILLIS = 10;
+    private static final long MAX_POLL_MILLIS = 200;
+    private static final long INITIAL_LOAD_NANOS = Duration.ofMillis(100).toNanos();
+    private static final Duration NO_EXPIRATION = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final ConcurrentHashMap<String, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final DistributedLease distributedLease;
+    private final double refreshBeta;
+    private final AtomicLong loadNanos = new AtomicLong(INITIAL_LOAD_NANOS);
+
+    public SingleFlightLoader() {
+        this(null);
+    }
+
+    public SingleFlightLoader(DistributedLease distributedLease) {
+        this(distributedLease, 0);
+    }
+
+    public SingleFlightLoader(DistributedLease distributedLease, double refreshBeta) {
+        this.distributedLease = distributedLease;
+        this.refreshBeta = refreshBeta;
+    }
+
+    /**
+     * Looks up a key in the cache, and on a miss loads its value and stores it in the cache.
+     * @param key the key to look up
+     * @param lookup gets the value from the cache
+     * @param loader loads the value for a key, on a cache miss
+     * @param writer stores the loaded value in the cache
+     * @return the cached or loaded value, or empty if the loader doesn't find it.
+     */
+    public Mono<V> getOrLoad(String key,
+                             Supplier<Mono<V>> lookup,
+                             Function<String, Mono<V>> loader,
+                             Function<V, Mono<V>> writer) {
+        return getOrLoad(key, lookup, Mono::empty, loader, writer);
+    }
+
+    /**
+     * Looks up a key in the cache, and on a miss loads its value and stores it in the cache. When refresh-ahead is
+     * enabled, hits close to their expiration may also reload the value in background.
+     * @param key the key to look up
+     * @param lookup gets the value from the cache
+     * @param expiresIn gets the time left before the key expires in the cache
+     * @param loader loads the value for a key, on a cache miss
+     * @param writer stores the loaded value in the cache
+     * @return the cached or loaded value, or empty if the loader doesn't find it.
+     */
+    public Mono<V> getOrLoad(String key,
+                             Supplier<Mono<V>> lookup,
+                             Supplier<Mono<Duration>> expiresIn,
+                             Function<String, Mono<V>> loader,
+                             Function<V, Mono<V>> writer) {
+        final Supplier<Mono<V>> load = () -> timed(loader.apply(key))
+                .flatMap(value -> writer.apply(value)
+                        .onErrorResume(e -> {
+                            log.warning("Could not cache loaded value: " + e.getMessage());
+                            return Mono.just(value);
+                        })
+                        .defaultIfEmpty(value));
+        final Mono<V> cached = refreshBeta > 0 ? lookupAndRefresh(key, lookup, expiresIn, load) : lookup.get();
+        return cached
+                .switchIfEmpty(Mono.defer(() -> join(key, () -> lookup.get()
+                        .switchIfEmpty(Mono.defer(() -> distributedLease == null ?
+                                load.get() : loadWithLease(key, lookup, load))))));
+    }
+
+    private Mono<V> lookupAndRefresh(String key, Supplier<Mono<V>> lookup, Supplier<Mono<Duration>> expiresIn,
+                                     Supplier<Mono<V>> load) {
+        return Mono.zip(lookup.get(), expiresIn.get()
+                        .onErrorResume(e -> Mono.empty())
+                        .defaultIfEmpty(NO_EXPIRATION))
+                .map(hit -> {
+                    if (shouldRefresh(hit.getT2())) {
+                        join(key, load).subscribe(value -> {},
+                                e -> log.warning("Could not refresh cached value: " + e.getMessage()));
+                    }
+                    return hit.getT1();
+                });
+    }
+
+    private boolean shouldRefresh(Duration expiresIn) {
+        final double gapMillis = loadNanos.get() / 1_000_000d * refreshBeta
+                * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return gapMillis >= expiresIn.toMillis();
+    }
+
+    private <T> Mono<T> timed(Mono<T> load) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            // exponentially weighted moving average of the loader latency
+            return load.doOnSuccess(value -> {
+                final long elapsed = System.nanoTime() - start;
+                loadNanos.updateAndGet(current -> (current * 4 + elapsed) / 5);
+            });
+        });
+    }
+
+    private Mono<V> join(String key, Supplier<Mono<V>> load) {
+        return inFlight.computeIfAbsent(key, k -> {
+            final AtomicReference<Mono<V>> self = new AtomicReference<>();
+            final Runnable release = () -> inFlight.remove(k, self.get());
+            // released before the result is emitted, so callers reacting to it start a new flight
+            final Mono<V> flight = Mono.defer(load)
+                    .doOnTerminate(release)
+                    .doOnCancel(release)
+                    .cache();
+            self.set(flight);
+            return flight;
+        });
+    }
+
+    private Mono<V> loadWithLease(String key, Supplier<Mono<V>> lookup, Supplier<Mono<V>> load) {
+        final String token = UUID.randomUUID().toString();
+        return distributedLease.tryAcquire(key, token)
+                .onErrorResume(e -> {
+                    log.warning("Could not acquire load lease: " + e.getMessage());
+                    return Mono.just(true);
+                })
+                .flatMap(acquired -> Boolean.TRUE.equals(acquired) ?
+                        load.get().doFinally(signal -> distributedLease.release(key, token)
+                                .onErrorResume(e -> Mono.just(false))
+                                .subscribe()) :
+                        awaitValue(lookup, load));
+    }
+
+    private Mono<V> awaitValue(Supplier<Mono<V>> lookup, Supplier<Mono<V>> load) {
+        return Mono.defer(lookup)
+                .repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> Mono.delay(pollDelay(attempt))))
+                .timeout(distributedLease.getWaitTime(), Mono.defer(load));
+    }
+
+    private static Duration pollDelay(long attempt) {
+        return Duration.ofMillis(Math.min(MIN_POLL_MILLIS << Math.min(attempt, 16), MAX_POLL_MILLIS));
+    }
+}
@@ -0,0 +1,132 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import co.com.bancolombia.binstash.model.api.BinaryStash;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.type.TypeReference;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single tier cache over a <pre>BinaryStash</pre>, values are serialized to bytes and stored as such, skipping the
+ * text encoding and decoding of the <pre>String</pre> based caches.
+ *
+ * @param <T> type of the cached values
+ */
+public class SingleTierBinaryObjectCacheUseCase<T> extends AbstractSingleTierObjectCacheUseCase<T, byte[]> {
+
+    private final BinaryStash cache;
+    private final BinarySerializatorHelper<T> serializatorHelper;
+
+    public SingleTierBinaryObjectCacheUseCase(BinaryStash cache, BinarySerializatorHelper<T> serializatorHelper) {
+        this(cache, serializatorHelper, null);
+    }
+
+    public SingleTierBinaryObjectCacheUseCase(BinaryStash cache, BinarySerializatorHelper<T> serializatorHelper,
+                                              DistributedLease loadLease) {
+        this(cache, serializatorHelper, loadLease, 0);
+    }
+
+    public SingleTierBinaryObjectCacheUseCase(BinaryStash cache, BinarySerializatorHelper<T> serializatorHelper,
+                                              DistributedLease loadLease, double refreshBeta) {
+        super(loadLease, refreshBeta);
+        this.cache = cache;
+        this.serializatorHelper = serializatorHelper;
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return Mono.just(key)
+                .flatMap(cache::exists);
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return Mono.just(key)
+                .flatMap(cache::expiresIn);
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return cache.keySet();
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        return cache.keys(pattern, limit);
+    }
+
+    @Override
+    public Mono<Boolean> evict(String key) {
+        return cache.evict(key);
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return cache.mEvict(keys);
+    }
+
+    @Override
+    public Mono<Boolean> evictAll() {
+        return cache.evictAll();
+    }
+
+    @Override
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        return cache.setRemove(indexKey, key);
+    }
+
+    @Override
+    protected Mono<byte[]> stashSave(String key, byte[] value, int ttl) {
+        return cache.save(key, value, ttl);
+    }
+
+    @Override
+    protected Mono<Boolean> stashSaveIfAbsent(String key, byte[] value, int ttl) {
+        return cache.saveIfAbsent(key, value, ttl);
+    }
+
+    @Override
+    protected Mono<Map<String, byte[]>> stashMSave(Map<String, byte[]> values, int ttl) {
+        return cache.mSave(values, ttl);
+    }
+
+    @Override
+    protected Mono<byte[]> stashGet(String key) {
+        return cache.get(key);
+    }
+
+    @Override
+    protected Mono<Map<String, byte[]>> stashMGet(Collection<String> keys) {
+        return cache.mGet(keys);
+    }
+
+    @Override
+    protected Mono<byte[]> stashSetSave(String indexKey, String key, byte[] value, int ttl) {
+        return cache.setSave(indexKey, key, value, ttl);
+    }
+
+    @Override
+    protected Flux<byte[]> stashSetGetAll(String indexKey) {
+        return cache.setGetAll(indexKey);
+    }
+
+    @Override
+    protected byte[] serialize(T obj) {
+        return serializatorHelper.serialize(obj);
+    }
+
+    @Override
+    protected T deserialize(byte[] obj, Class<T> clazz) {
+        return this.serializatorHelper.deserializeTo(obj, clazz);
+    }
+
+    @Override
+    protected T deserialize(byte[] obj, TypeReference<? extends T> ref) {
+        return this.serializatorHelper.deserializeWith(obj, ref);
+    }
+}
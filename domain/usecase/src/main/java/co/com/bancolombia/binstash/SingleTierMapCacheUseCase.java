@@ -9,12 +9,14 @@ import reactor.core.publisher.Mono;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 @Log
 @RequiredArgsConstructor
 public class SingleTierMapCacheUseCase implements MapCache {
 
     private final HashStash stash;
+    private final SingleFlightLoader<Map<String, String>> singleFlightLoader = new SingleFlightLoader<>();
 
     @Override
     public Mono<Map<String, String>> saveMap(String key, Map<String, String> value) {
@@ -36,6 +38,16 @@ public class SingleTierMapCacheUseCase implements MapCache {
         return stash.hSave(key, field, value, ttl);
     }
 
+    @Override
+    public Mono<Boolean> saveMapIfAbsent(String key, Map<String, String> value, int ttl) {
+        return stash.hSaveIfAbsent(key, value, ttl);
+    }
+
+    @Override
+    public Mono<Boolean> saveMapIfAbsent(String key, String field, String value, int ttl) {
+        return stash.hSaveIfAbsent(key, field, value, ttl);
+    }
+
     @Override
     public Mono<String> getMap(String key, String field) {
         return stash.hGet(key, field);
@@ -46,14 +58,27 @@ public class SingleTierMapCacheUseCase implements MapCache {
         return stash.hGetAll(key);
     }
 
+    @Override
+    public Mono<Map<String, String>> getOrLoadMap(String key,
+                                                  Function<String, Mono<Map<String, String>>> loader, int ttl) {
+        return singleFlightLoader.getOrLoad(key, () -> this.getMap(key), loader,
+                value -> this.saveMap(key, value, ttl));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getOrLoadMap(String key, Function<String, Mono<Map<String, String>>> loader) {
+        return singleFlightLoader.getOrLoad(key, () -> this.getMap(key), loader,
+                value -> this.saveMap(key, value));
+    }
+
     @Override
     public Mono<Boolean> existsMap(String key) {
-        return stash.hGetAll(key).hasElement();
+        return stash.hExists(key);
     }
 
     @Override
     public Mono<Boolean> existsMap(String key, String field) {
-        return stash.hGet(key, field).hasElement();
+        return stash.hExists(key, field);
     }
 
     @Override
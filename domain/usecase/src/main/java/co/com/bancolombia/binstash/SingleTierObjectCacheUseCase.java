@@ -1,59 +1,47 @@
 package co.com.bancolombia.binstash;
 
-import co.com.bancolombia.binstash.model.InvalidValueException;
-import co.com.bancolombia.binstash.model.api.ObjectCache;
+import co.com.bancolombia.binstash.model.api.DistributedLease;
 import co.com.bancolombia.binstash.model.api.StringStash;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.java.Log;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tools.jackson.core.type.TypeReference;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
-@Log
-@RequiredArgsConstructor
-@SuppressWarnings("unchecked")
-public class SingleTierObjectCacheUseCase<T> implements ObjectCache<T> {
+public class SingleTierObjectCacheUseCase<T> extends AbstractSingleTierObjectCacheUseCase<T, String> {
 
     private final StringStash cache;
     private final SerializatorHelper<T> serializatorHelper;
 
-    @Override
-    public Mono<T> save(String key, T value) {
-        return save(key, value, -1);
+    public SingleTierObjectCacheUseCase(StringStash cache, SerializatorHelper<T> serializatorHelper) {
+        this(cache, serializatorHelper, null);
     }
 
-    @Override
-    public Mono<T> save(String key, T value, int ttl) {
-        if (value == null) {
-            return Mono.error(new InvalidValueException("Value cannot be null"));
-        } else {
-            return Mono.just(value)
-                    .map(this::serialize)
-                    .flatMap(serialized -> cache.save(key, serialized, ttl))
-                    .map(r -> value);
-        }
+    public SingleTierObjectCacheUseCase(StringStash cache, SerializatorHelper<T> serializatorHelper,
+                                        DistributedLease loadLease) {
+        this(cache, serializatorHelper, loadLease, 0);
     }
 
-    @Override
-    public Mono<T> get(String key, Class<T> clazz) {
-        return Mono.just(key)
-                .flatMap(cache::get)
-                .map(serialized -> this.deserialize(serialized, clazz));
+    public SingleTierObjectCacheUseCase(StringStash cache, SerializatorHelper<T> serializatorHelper,
+                                        DistributedLease loadLease, double refreshBeta) {
+        super(loadLease, refreshBeta);
+        this.cache = cache;
+        this.serializatorHelper = serializatorHelper;
     }
 
     @Override
-    public Mono<T> get(String key, Object ref) {
+    public Mono<Boolean> exists(String key) {
         return Mono.just(key)
-                .flatMap(cache::get)
-                .map(serialized -> this.deserialize(serialized, (TypeReference<? extends T>) ref));
+                .flatMap(cache::exists);
     }
 
     @Override
-    public Mono<Boolean> exists(String key) {
+    public Mono<Duration> expiresIn(String key) {
         return Mono.just(key)
-                .flatMap(cache::exists);
+                .flatMap(cache::expiresIn);
     }
 
     @Override
@@ -71,48 +59,68 @@ public class SingleTierObjectCacheUseCase<T> implements ObjectCache<T> {
         return cache.evict(key);
     }
 
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return cache.mEvict(keys);
+    }
+
     @Override
     public Mono<Boolean> evictAll() {
         return cache.evictAll();
     }
 
     @Override
-    public Mono<T> setSave(String indexKey, String key, T value, int ttl) {
-        if (value == null) {
-            return Mono.error(new InvalidValueException("Value cannot be null"));
-        } else {
-            return Mono.just(value)
-                    .map(this::serialize)
-                    .flatMap(serialized -> cache.setSave(indexKey, key, serialized, ttl))
-                    .map(r -> value);
-        }
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        return cache.setRemove(indexKey, key);
     }
 
     @Override
-    public Mono<T> setSave(String indexKey, String key, T value) {
-        return this.setSave(indexKey, key, value, -1);
+    protected Mono<String> stashSave(String key, String value, int ttl) {
+        return cache.save(key, value, ttl);
     }
 
     @Override
-    public Flux<T> setGetAll(String indexKey, Class<T> clazz) {
-        return cache.setGetAll(indexKey)
-                .map(value -> this.deserialize(value, clazz));
+    protected Mono<Boolean> stashSaveIfAbsent(String key, String value, int ttl) {
+        return cache.saveIfAbsent(key, value, ttl);
     }
 
     @Override
-    public Mono<Boolean> setRemove(String indexKey, String key) {
-        return cache.setRemove(indexKey, key);
+    protected Mono<Map<String, String>> stashMSave(Map<String, String> values, int ttl) {
+        return cache.mSave(values, ttl);
     }
 
-    private String serialize(T obj) {
+    @Override
+    protected Mono<String> stashGet(String key) {
+        return cache.get(key);
+    }
+
+    @Override
+    protected Mono<Map<String, String>> stashMGet(Collection<String> keys) {
+        return cache.mGet(keys);
+    }
+
+    @Override
+    protected Mono<String> stashSetSave(String indexKey, String key, String value, int ttl) {
+        return cache.setSave(indexKey, key, value, ttl);
+    }
+
+    @Override
+    protected Flux<String> stashSetGetAll(String indexKey) {
+        return cache.setGetAll(indexKey);
+    }
+
+    @Override
+    protected String serialize(T obj) {
         return serializatorHelper.serialize(obj);
     }
 
-    private T deserialize(String obj, Class<T> clazz) {
+    @Override
+    protected T deserialize(String obj, Class<T> clazz) {
         return this.serializatorHelper.deserializeTo(obj, clazz);
     }
 
-    private T deserialize(String obj, TypeReference<? extends T> ref) {
+    @Override
+    protected T deserialize(String obj, TypeReference<? extends T> ref) {
         return this.serializatorHelper.deserializeWith(obj, ref);
     }
 }
@@ -0,0 +1,74 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.StaleConfig;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks when keys of a local tier go stale, and which of them are being revalidated, so each stale key is
+ * refreshed by at most one background call at a time.
+ */
+public class SoftTtlTracker {
+
+    private static final int PRUNE_EVERY_WRITES = 1024;
+
+    private final StaleConfig config;
+    private final ConcurrentHashMap<String, Deadlines> deadlines = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    public SoftTtlTracker(StaleConfig config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return config != null && config.isEnabled();
+    }
+
+    public StaleConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Registers a key as fresh.
+     * @param key the key saved
+     * @param softTtl seconds the key is fresh
+     * @param hardTtl seconds the key lives
+     */
+    public void renew(String key, int softTtl, int hardTtl) {
+        final long now = System.currentTimeMillis();
+        deadlines.put(key, new Deadlines(now + softTtl * 1_000L, now + hardTtl * 1_000L));
+        if (writes.incrementAndGet() % PRUNE_EVERY_WRITES == 0) {
+            // keys evicted from the local tier without being read again are only reclaimed here
+            deadlines.values().removeIf(deadline -> deadline.hardAt() < now);
+        }
+    }
+
+    public void forget(String key) {
+        deadlines.remove(key);
+    }
+
+    public void forgetAll() {
+        deadlines.clear();
+    }
+
+    /**
+     * Claims the revalidation of a key, when such key is stale.
+     * @param key the key read
+     * @return true if the key is stale and the caller should refresh it, calling <pre>revalidated</pre> afterwards.
+     */
+    public boolean tryRevalidate(String key) {
+        final Deadlines deadline = deadlines.get(key);
+        final long now = System.currentTimeMillis();
+        return deadline != null && now >= deadline.softAt() && now < deadline.hardAt() && revalidating.add(key);
+    }
+
+    public void revalidated(String key) {
+        revalidating.remove(key);
+    }
+
+    private record Deadlines(long softAt, long hardAt) {
+    }
+}
@@ -0,0 +1,136 @@
+package co.com.bancolombia.binstash;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses serialized values at least <pre>threshold</pre> bytes long, so large values take less memory and
+ * bandwidth in a stash. Compressed values start with a header naming the algorithm, values without it are read as
+ * they are, so values saved before compression was enabled (or too small to be compressed) keep being readable.
+ * <p>
+ * Values are compressed with Deflate, text ones are then encoded in Base64 to be kept in <pre>String</pre> stashes.
+ */
+public class ValueCompressor {
+
+    /** Compresses nothing, but still reads compressed values. */
+    public static final ValueCompressor DISABLED = new ValueCompressor(0);
+
+    // a NUL char can't start a JSON text, so serialized values are never mistaken for compressed ones
+    static final String TEXT_HEADER = "\u0000z1";
+    static final byte[] BINARY_HEADER = {0, 'z', '1'};
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int threshold;
+
+    /**
+     * @param threshold minimum size of the values to compress, in bytes (chars for text values). Equal or less than 0
+     *                  disables compression.
+     */
+    public ValueCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    public String compress(String value) {
+        if (!isEnabled() || value == null || value.length() < threshold) {
+            return value;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Base64 makes compressed values a third larger, they must shrink at least that much
+        final byte[] compressed = compress(bytes, 0, bytes.length * 3 / 4);
+        return compressed == null ? value :
+                TEXT_HEADER + Base64.getEncoder().encodeToString(compressed);
+    }
+
+    public String decompress(String value) {
+        if (value == null || !value.startsWith(TEXT_HEADER)) {
+            return value;
+        }
+        final byte[] compressed = Base64.getDecoder().decode(value.substring(TEXT_HEADER.length()));
+        return new String(inflate(compressed, 0), StandardCharsets.UTF_8);
+    }
+
+    public byte[] compress(byte[] value) {
+        if (!isEnabled() || value == null || value.length < threshold) {
+            return value;
+        }
+        final byte[] compressed = compress(value, BINARY_HEADER.length, value.length - BINARY_HEADER.length);
+        if (compressed == null) {
+            return value;
+        }
+        System.arraycopy(BINARY_HEADER, 0, compressed, 0, BINARY_HEADER.length);
+        return compressed;
+    }
+
+    public byte[] decompress(byte[] value) {
+        if (value == null || value.length < BINARY_HEADER.length
+                || !Arrays.equals(value, 0, BINARY_HEADER.length, BINARY_HEADER, 0, BINARY_HEADER.length)) {
+            return value;
+        }
+        return inflate(value, BINARY_HEADER.length);
+    }
+
+    /**
+     * Called for every compressed value, to track how much values shrink.
+     * @param originalSize size of the value, in bytes
+     * @param compressedSize size of the compressed value, in bytes, without header nor text encoding
+     */
+    protected void recordCompression(int originalSize, int compressedSize) {
+        // nothing to record by default
+    }
+
+    /**
+     * @return the value compressed, after <pre>offset</pre> free bytes, or null if it takes more than
+     * <pre>limit</pre> bytes compressed.
+     */
+    private byte[] compress(byte[] value, int offset, int limit) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            // larger outputs are not worth it, the original value is kept instead
+            final byte[] output = new byte[offset + Math.max(0, limit)];
+            int length = offset;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            recordCompression(value.length, length - offset);
+            return Arrays.copyOf(output, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int offset) {
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed, offset, compressed.length - offset);
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, compressed.length * 4));
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed value");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
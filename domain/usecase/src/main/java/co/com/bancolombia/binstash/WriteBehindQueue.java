@@ -0,0 +1,238 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.OverflowPolicy;
+import co.com.bancolombia.binstash.model.WriteBehindConfig;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue of the writes a double tier cache syncs upstream. A write to a key already queued replaces the queued
+ * one, and the queue is flushed in batches, one at a time, so a burst of writes ends up in a few pipelined calls to
+ * the centralized tier instead of one detached call per write. Writes either overwrite the key upstream or leave it
+ * as it is when it already exists there.
+ * <p>
+ * When full, new keys are handled as told by the configured <pre>OverflowPolicy</pre>, and counted as dropped.
+ */
+@Log
+public class WriteBehindQueue<T> {
+
+    private static final Scheduler elastic_scheduler = Schedulers.boundedElastic();
+
+    private final ObjectCache<T> centralizedCache;
+    private final WriteBehindConfig config;
+    private final LinkedHashMap<String, Write<T>> pending = new LinkedHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // completes once the batch being written is done, null while no batch is. Guarded by pending
+    private Mono<Void> inFlight;
+
+    public WriteBehindQueue(ObjectCache<T> centralizedCache) {
+        this(centralizedCache, WriteBehindConfig.DEFAULT);
+    }
+
+    public WriteBehindQueue(ObjectCache<T> centralizedCache, WriteBehindConfig config) {
+        this.centralizedCache = centralizedCache;
+        this.config = config;
+    }
+
+    /**
+     * Queues a write to the centralized tier, leaving the key as it is if it already exists there.
+     * @param ttl time the key should live upstream, or -1 for the default of the centralized tier
+     * @return emits whether the key was written upstream, once the write is done.
+     */
+    public Mono<Boolean> offer(String key, T value, int ttl) {
+        return offer(key, value, ttl, false);
+    }
+
+    /**
+     * Queues a write to the centralized tier. A write merged into one already queued overwrites the key if any of
+     * them did, and completes along with it.
+     * @param ttl time the key should live upstream, or -1 for the default of the centralized tier
+     * @param overwrite whether to overwrite the key if it already exists upstream
+     * @return emits whether the key was written upstream, once the write is done. Dropped writes emit false.
+     */
+    public Mono<Boolean> offer(String key, T value, int ttl, boolean overwrite) {
+        final Write<T> write;
+        Write<T> evicted = null;
+        final boolean batchFull;
+        synchronized (pending) {
+            final Write<T> queued = pending.get(key);
+            if (queued == null && pending.size() >= config.getCapacity()) {
+                dropped.increment();
+                if (config.getOverflowPolicy() == OverflowPolicy.DROP_NEWEST) {
+                    return Mono.just(false);
+                }
+                final Iterator<Write<T>> eldest = pending.values().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+            }
+            write = queued == null ? new Write<>(value, ttl, overwrite, Sinks.one()) :
+                    new Write<>(value, ttl, overwrite || queued.overwrite(), queued.written());
+            pending.put(key, write);
+            batchFull = pending.size() >= config.getBatchSize();
+        }
+        if (evicted != null) {
+            evicted.written().tryEmitValue(false);
+        }
+        if (batchFull) {
+            drain();
+        } else {
+            scheduleFlush();
+        }
+        return write.written().asMono();
+    }
+
+    /**
+     * Writes every queued key now, after the batch already being written, if any.
+     * @return completes once the queue is empty and no batch is being written.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+                    final Mono<Void> write = nextWrite();
+                    return write == null ? inFlight() : write;
+                })
+                .repeat(() -> hasPending() || isWriting())
+                .then();
+    }
+
+    /**
+     * @return number of keys waiting to be written.
+     */
+    public int depth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return number of writes dropped because the queue was full.
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of writes that failed upstream, and were not retried.
+     */
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Mono.delay(config.getFlushInterval(), elastic_scheduler)
+                    .subscribe(tick -> {
+                        flushScheduled.set(false);
+                        drain();
+                    });
+        }
+    }
+
+    /*
+     * Once a batch is written, the next one follows right away while the queue holds a full one, otherwise it waits
+     * for the flush interval.
+     */
+    private void drain() {
+        final Mono<Void> write = nextWrite();
+        if (write == null) {
+            return;
+        }
+        write.subscribeOn(elastic_scheduler)
+                .doFinally(signal -> {
+                    if (depth() >= config.getBatchSize()) {
+                        drain();
+                    } else if (hasPending()) {
+                        scheduleFlush();
+                    }
+                })
+                .subscribe();
+    }
+
+    /*
+     * Takes the next batch off the queue, unless a batch is already being written, so only one batch is in flight at
+     * a time and a key is never written over a newer value. Returns null when there's nothing to write now.
+     */
+    private Mono<Void> nextWrite() {
+        synchronized (pending) {
+            if (inFlight != null || pending.isEmpty()) {
+                return null;
+            }
+            final List<Map.Entry<String, Write<T>>> batch = new ArrayList<>(
+                    Math.min(pending.size(), config.getBatchSize()));
+            final Iterator<Map.Entry<String, Write<T>>> queued = pending.entrySet().iterator();
+            while (queued.hasNext() && batch.size() < config.getBatchSize()) {
+                batch.add(Map.Entry.copyOf(queued.next()));
+                queued.remove();
+            }
+            final Sinks.Empty<Void> written = Sinks.empty();
+            inFlight = written.asMono();
+            final Runnable done = () -> {
+                synchronized (pending) {
+                    inFlight = null;
+                }
+                written.tryEmitEmpty();
+            };
+            return write(batch)
+                    .doOnTerminate(done)
+                    .doOnCancel(done);
+        }
+    }
+
+    private Mono<Void> inFlight() {
+        synchronized (pending) {
+            return inFlight == null ? Mono.empty() : inFlight;
+        }
+    }
+
+    private boolean isWriting() {
+        synchronized (pending) {
+            return inFlight != null;
+        }
+    }
+
+    private boolean hasPending() {
+        return depth() > 0;
+    }
+
+    /*
+     * Each key is written as a single atomic command, either a plain set or a set only if absent. Commands are issued
+     * without awaiting each other, so the batch is pipelined, and a key failing doesn't stop the others.
+     */
+    private Mono<Void> write(List<Map.Entry<String, Write<T>>> batch) {
+        return Flux.fromIterable(batch)
+                .flatMap(entry -> write(entry.getKey(), entry.getValue())
+                        .onErrorResume(error -> {
+                            failed.increment();
+                            log.warning("Could not sync key " + entry.getKey() + " upstream: " + error.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Boolean> write(String key, Write<T> write) {
+        final Mono<Boolean> written = write.overwrite() ?
+                centralizedCache.save(key, write.value(), write.ttl()).thenReturn(true) :
+                centralizedCache.saveIfAbsent(key, write.value(), write.ttl());
+        return written
+                .defaultIfEmpty(false)
+                .doOnNext(result -> write.written().tryEmitValue(result))
+                .doOnError(error -> write.written().tryEmitValue(false));
+    }
+
+    private record Write<T>(T value, int ttl, boolean overwrite, Sinks.One<Boolean> written) {
+    }
+}
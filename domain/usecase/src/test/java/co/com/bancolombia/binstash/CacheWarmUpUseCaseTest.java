@@ -0,0 +1,108 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.SyncType;
+import co.com.bancolombia.binstash.model.WarmUpConfig;
+import co.com.bancolombia.binstash.model.api.StringStash;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmUpUseCaseTest {
+
+    @Mock
+    private StringStash localStash;
+
+    @Mock
+    private StringStash centralizedStash;
+
+    private final RuleEvaluatorUseCase permissiveRules = new RuleEvaluatorUseCase(null);
+
+    @Test
+    @DisplayName("copy the keys matching the patterns and allowed to sync downstream")
+    void testWarmUp() {
+        RuleEvaluatorUseCase rules = new RuleEvaluatorUseCase(List.of(
+                (key, syncType) -> syncType == SyncType.DOWNSTREAM && !key.startsWith("session:secret")));
+        when(centralizedStash.keys("session:*", 0))
+                .thenReturn(Flux.just("session:1", "session:2", "session:secret"));
+        when(centralizedStash.keys("user:*", 0)).thenReturn(Flux.just("user:1", "session:1"));
+        when(centralizedStash.mGet(List.of("session:1", "session:2")))
+                .thenReturn(Mono.just(Map.of("session:1", "v1", "session:2", "v2")));
+        when(centralizedStash.mGet(List.of("user:1"))).thenReturn(Mono.just(Map.of("user:1", "v3")));
+        when(localStash.mSave(anyMap())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        CacheWarmUpUseCase warmUp = new CacheWarmUpUseCase(localStash, centralizedStash, rules,
+                new WarmUpConfig(List.of("session:*", "user:*"), 2, 1, 0, Duration.ofSeconds(5)));
+
+        StepVerifier.create(warmUp.warmUp())
+                .expectNext(3L)
+                .verifyComplete();
+        verify(localStash).mSave(Map.of("session:1", "v1", "session:2", "v2"));
+        verify(localStash).mSave(Map.of("user:1", "v3"));
+    }
+
+    @Test
+    @DisplayName("copy up to the max keys, skipping batches that fail")
+    void testWarmUpMaxKeysAndErrors() {
+        when(centralizedStash.keys(anyString(), anyInt()))
+                .thenReturn(Flux.just("k1", "k2", "k3", "k4", "k5"));
+        when(centralizedStash.mGet(List.of("k1", "k2"))).thenReturn(Mono.error(new RuntimeException("down")));
+        when(centralizedStash.mGet(List.of("k3", "k4"))).thenReturn(Mono.just(Map.of("k3", "v3")));
+        when(localStash.mSave(anyMap())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        CacheWarmUpUseCase warmUp = new CacheWarmUpUseCase(localStash, centralizedStash, permissiveRules,
+                new WarmUpConfig(List.of("k*"), 2, 2, 4, Duration.ofSeconds(5)));
+
+        StepVerifier.create(warmUp.warmUp())
+                .expectNext(1L)
+                .verifyComplete();
+        verify(centralizedStash).keys("k*", 4);
+        verify(centralizedStash, never()).mGet(List.of("k5"));
+    }
+
+    @Test
+    @DisplayName("complete with the keys copied so far when the time budget runs out")
+    void testWarmUpTimeout() {
+        when(centralizedStash.keys(anyString(), anyInt()))
+                .thenReturn(Flux.just("k1", "k2").concatWith(Flux.never()));
+        when(centralizedStash.mGet(any())).thenReturn(Mono.just(Map.of("k1", "v1", "k2", "v2")));
+        when(localStash.mSave(anyMap())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        CacheWarmUpUseCase warmUp = new CacheWarmUpUseCase(localStash, centralizedStash, permissiveRules,
+                new WarmUpConfig(List.of("k*"), 2, 1, 0, Duration.ofMillis(300)));
+
+        StepVerifier.create(warmUp.warmUp())
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("do nothing when no patterns are configured")
+    void testWarmUpDisabled() {
+        CacheWarmUpUseCase warmUp = new CacheWarmUpUseCase(localStash, centralizedStash, permissiveRules,
+                new WarmUpConfig(List.of(), 100, 4, 0, Duration.ofSeconds(5)));
+
+        StepVerifier.create(warmUp.warmUp())
+                .expectNext(0L)
+                .verifyComplete();
+        verifyNoInteractions(localStash, centralizedStash);
+    }
+}
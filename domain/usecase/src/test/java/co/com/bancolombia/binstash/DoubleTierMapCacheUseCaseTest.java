@@ -1,11 +1,13 @@
 package co.com.bancolombia.binstash;
 
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
 import co.com.bancolombia.binstash.model.api.MapCache;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
@@ -13,6 +15,7 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -55,8 +58,7 @@ class DoubleTierMapCacheUseCaseTest {
 
         when(localCache.saveMap(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(demoMap));
         when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
-        when(centralizedCache.existsMap(anyString())).thenReturn(Mono.just(false));
-        when(centralizedCache.saveMap(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(demoMap));
+        when(centralizedCache.saveMapIfAbsent(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(true));
 
         StepVerifier.create(cache.saveMap("pparker", demoMap))
                 .expectSubscription()
@@ -65,7 +67,8 @@ class DoubleTierMapCacheUseCaseTest {
                 .verify();
 
         verify(localCache).saveMap("pparker", demoMap, -1);
-        verify(centralizedCache, timeout(1000)).saveMap("pparker", demoMap, -1);
+        verify(centralizedCache, timeout(1000)).saveMapIfAbsent("pparker", demoMap, -1);
+        verify(centralizedCache, never()).existsMap(anyString());
     }
 
     @SneakyThrows
@@ -105,14 +108,63 @@ class DoubleTierMapCacheUseCaseTest {
     }
 
 
+    @Test
+    @DisplayName("save map in local cache only if absent, and sync upstream the same way")
+    void testSaveIfAbsent() {
+        when(localCache.saveMapIfAbsent(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(true));
+        when(localCache.saveMapIfAbsent(anyString(), anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.just(false));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(centralizedCache.saveMapIfAbsent(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(cache.saveMapIfAbsent("pparker", demoMap, 60)
+                        .zipWith(cache.saveMapIfAbsent("pparker", "city", "NY", 60)))
+                .expectNextMatches(saved -> saved.getT1() && !saved.getT2())
+                .verifyComplete();
+
+        verify(centralizedCache, timeout(1000)).saveMapIfAbsent("pparker", demoMap, 60);
+        verify(centralizedCache, never()).saveMapIfAbsent(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("overwrite maps upstream before invalidating other instances")
+    void testInvalidateAfterUpstreamWrite() {
+        InvalidationBus invalidationBus = mock(InvalidationBus.class);
+        DoubleTierMapCacheUseCase busCache = new DoubleTierMapCacheUseCase(localCache, centralizedCache,
+                ruleEvaluatorUseCase, invalidationBus);
+
+        when(localCache.saveMap(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(demoMap));
+        when(localCache.saveMap(anyString(), anyString(), anyString(), anyInt())).thenReturn(Mono.just("NY"));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(centralizedCache.saveMap(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(demoMap));
+        when(centralizedCache.saveMap(anyString(), anyString(), anyString(), anyInt())).thenReturn(Mono.just("NY"));
+
+        StepVerifier.create(busCache.saveMap("pparker", demoMap))
+                .expectNext(demoMap)
+                .verifyComplete();
+        verify(invalidationBus, timeout(1000)).publish(List.of("pparker"));
+        StepVerifier.create(busCache.saveMap("pparker", "city", "NY"))
+                .expectNext("NY")
+                .verifyComplete();
+        verify(invalidationBus, timeout(1000).times(2)).publish(List.of("pparker"));
+
+        InOrder inOrder = inOrder(centralizedCache, invalidationBus);
+        inOrder.verify(centralizedCache).saveMap("pparker", demoMap, -1);
+        inOrder.verify(invalidationBus).publish(List.of("pparker"));
+        inOrder.verify(centralizedCache).saveMap("pparker", "city", "NY", -1);
+        inOrder.verify(invalidationBus).publish(List.of("pparker"));
+        verify(centralizedCache, never()).existsMap(anyString());
+        verify(centralizedCache, never()).existsMap(anyString(), anyString());
+    }
+
     @SneakyThrows
     @Test
     @DisplayName("save map prop in local cache, sync upstream")
     void testSaveProp() {
         when(localCache.saveMap(anyString(), anyString(), anyString(), anyInt())).thenReturn(Mono.just("NY"));
         when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
-        when(centralizedCache.existsMap(anyString(), anyString())).thenReturn(Mono.just(false));
-        when(centralizedCache.saveMap(anyString(), anyString(), anyString(), anyInt())).thenReturn(Mono.just("NY"));
+        when(centralizedCache.saveMapIfAbsent(anyString(), anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.just(true));
 
         StepVerifier.create(cache.saveMap("pparker", "city", "NY"))
                 .expectSubscription()
@@ -123,7 +175,8 @@ class DoubleTierMapCacheUseCaseTest {
                 .hasNotDroppedElements();
 
         verify(localCache).saveMap("pparker", "city", "NY", -1);
-        verify(centralizedCache, timeout(1000)).saveMap("pparker", "city", "NY", -1);
+        verify(centralizedCache, timeout(1000)).saveMapIfAbsent("pparker", "city", "NY", -1);
+        verify(centralizedCache, never()).existsMap(anyString(), anyString());
     }
 
 
@@ -342,4 +395,47 @@ class DoubleTierMapCacheUseCaseTest {
 
         verify(localCache).evictMap("pparker", "name");
     }
+
+    @Test
+    @DisplayName("evict map upstream before invalidating other instances")
+    void testEvictUpstream() {
+        InvalidationBus invalidationBus = mock(InvalidationBus.class);
+        DoubleTierMapCacheUseCase busCache = new DoubleTierMapCacheUseCase(localCache, centralizedCache,
+                ruleEvaluatorUseCase, invalidationBus);
+
+        when(localCache.evictMap(anyString())).thenReturn(Mono.just(true));
+        when(localCache.evictMap(anyString(), anyString())).thenReturn(Mono.just(true));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(centralizedCache.evictMap(anyString())).thenReturn(Mono.just(true));
+        when(centralizedCache.evictMap(anyString(), anyString())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(busCache.evictMap("pparker"))
+                .expectNext(true)
+                .verifyComplete();
+        verify(invalidationBus, timeout(1000)).publish(List.of("pparker"));
+        StepVerifier.create(busCache.evictMap("pparker", "name"))
+                .expectNext(true)
+                .verifyComplete();
+        verify(invalidationBus, timeout(1000).times(2)).publish(List.of("pparker"));
+
+        InOrder inOrder = inOrder(centralizedCache, invalidationBus);
+        inOrder.verify(centralizedCache).evictMap("pparker");
+        inOrder.verify(invalidationBus).publish(List.of("pparker"));
+        inOrder.verify(centralizedCache).evictMap("pparker", "name");
+        inOrder.verify(invalidationBus).publish(List.of("pparker"));
+    }
+
+    @Test
+    @DisplayName("keep maps upstream when the rules don't sync them")
+    void testEvictLocalOnly() {
+        when(localCache.evictMap(anyString())).thenReturn(Mono.just(true));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(false);
+
+        StepVerifier.create(cache.evictMap("pparker"))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(ruleEvaluatorUseCase, timeout(1000)).evalForUpstreamSync("pparker");
+        verify(centralizedCache, never()).evictMap(anyString());
+    }
 }
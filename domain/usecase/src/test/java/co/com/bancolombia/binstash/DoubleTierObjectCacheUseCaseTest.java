@@ -2,6 +2,8 @@ package co.com.bancolombia.binstash;
 
 import co.com.bancolombia.binstash.demo.Address;
 import co.com.bancolombia.binstash.demo.Person;
+import co.com.bancolombia.binstash.model.StaleConfig;
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
 import co.com.bancolombia.binstash.model.api.ObjectCache;
 import tools.jackson.core.type.TypeReference;
 import lombok.SneakyThrows;
@@ -9,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -16,7 +19,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -77,8 +82,7 @@ class DoubleTierObjectCacheUseCaseTest {
 
         when(memStash.save(anyString(), any(Person.class))).thenReturn(Mono.just(p));
         when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
-        when(redisStash.exists(anyString())).thenReturn(Mono.just(false));
-        when(redisStash.save(anyString(), any(Person.class))).thenReturn(Mono.just(p));
+        when(redisStash.saveIfAbsent(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(true));
 
         StepVerifier.create(cache.save("pparker", p))
                 .expectSubscription()
@@ -87,8 +91,26 @@ class DoubleTierObjectCacheUseCaseTest {
                 .verify();
 
         verify(memStash).save("pparker", p);
-        verify(redisStash, timeout(1000)).exists("pparker");
-        verify(redisStash, timeout(1000)).save("pparker", p);
+        verify(redisStash, timeout(1000)).saveIfAbsent("pparker", p, -1);
+    }
+
+    @Test
+    @DisplayName("Save if absent on local cache, syncing upstream only when saved")
+    void testSaveIfAbsent() {
+        when(memStash.saveIfAbsent("pparker", p, 60)).thenReturn(Mono.just(true));
+        when(memStash.saveIfAbsent("mj", p, 60)).thenReturn(Mono.just(false));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(redisStash.saveIfAbsent(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(cache.saveIfAbsent("pparker", p, 60))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(cache.saveIfAbsent("mj", p, 60))
+                .expectNext(false)
+                .verifyComplete();
+
+        verify(redisStash, timeout(1000)).saveIfAbsent("pparker", p, 60);
+        verify(redisStash, never()).saveIfAbsent(eq("mj"), any(Person.class), anyInt());
     }
 
     @Test
@@ -109,6 +131,134 @@ class DoubleTierObjectCacheUseCaseTest {
         verify(redisStash, times(0)).save("pparker", p);
     }
 
+    @Test
+    @DisplayName("Serve stale local value and revalidate from distributed")
+    void testGetStaleRevalidates() {
+        DoubleTierObjectCacheUseCase<Person> swrCache = new DoubleTierObjectCacheUseCase<>(memStash, redisStash,
+                ruleEvaluatorUseCase, null, 0, new StaleConfig(60, 120));
+        Person fresh = new Person();
+        fresh.setName("Peter B. Parker");
+
+        when(memStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
+        when(memStash.get(anyString(), any())).thenReturn(Mono.just(p));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(ruleEvaluatorUseCase.evalForDownstreamSync(anyString())).thenReturn(true);
+        when(redisStash.saveIfAbsent(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(false));
+        when(redisStash.get(anyString(), any())).thenReturn(Mono.just(fresh));
+
+        // soft ttl of 0 makes the key stale right away
+        StepVerifier.create(swrCache.save("pparker", p, 0, 10)
+                        .then(swrCache.get("pparker", Person.class)))
+                .expectSubscription()
+                .expectNext(p)
+                .expectComplete()
+                .verify();
+
+        verify(memStash).save("pparker", p, 10);
+        verify(redisStash, timeout(1000)).get(eq("pparker"), any());
+        verify(memStash, timeout(1000)).save("pparker", fresh, 120);
+        verify(redisStash, timeout(1000)).saveIfAbsent("pparker", p, 10);
+    }
+
+    @Test
+    @DisplayName("Don't revalidate fresh local value")
+    void testGetFreshDoesNotRevalidate() {
+        DoubleTierObjectCacheUseCase<Person> swrCache = new DoubleTierObjectCacheUseCase<>(memStash, redisStash,
+                ruleEvaluatorUseCase, null, 0, new StaleConfig(60, 120));
+
+        when(memStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
+        when(memStash.get(anyString(), any())).thenReturn(Mono.just(p));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(false);
+
+        StepVerifier.create(swrCache.save("pparker", p)
+                        .then(swrCache.get("pparker", Person.class)))
+                .expectSubscription()
+                .expectNext(p)
+                .expectComplete()
+                .verify();
+
+        verify(memStash).save("pparker", p, 120);
+        verify(redisStash, times(0)).get(eq("pparker"), any());
+    }
+
+    @Test
+    @DisplayName("Save with the default ttl keeps the configured stale window")
+    void testSaveDefaultTtlDoesNotRevalidate() {
+        DoubleTierObjectCacheUseCase<Person> swrCache = new DoubleTierObjectCacheUseCase<>(memStash, redisStash,
+                ruleEvaluatorUseCase, null, 0, new StaleConfig(60, 120));
+
+        when(memStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
+        when(memStash.mSave(anyMap(), anyInt())).thenReturn(Mono.just(Map.of("mj", p)));
+        when(memStash.get(anyString(), any())).thenReturn(Mono.just(p));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        // only evaluated when a hit is stale
+        lenient().when(ruleEvaluatorUseCase.evalForDownstreamSync(anyString())).thenReturn(true);
+        when(redisStash.saveIfAbsent(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(swrCache.save("pparker", p, -1)
+                        .then(swrCache.mSave(Map.of("mj", p), -1))
+                        .then(swrCache.get("pparker", Person.class))
+                        .then(swrCache.get("mj", Person.class)))
+                .expectSubscription()
+                .expectNext(p)
+                .expectComplete()
+                .verify();
+
+        verify(memStash).save("pparker", p, 120);
+        verify(memStash).mSave(Map.of("mj", p), 120);
+        verify(redisStash, after(200).never()).get(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Publish invalidations on local writes and evictions")
+    void testPublishInvalidations() {
+        InvalidationBus invalidationBus = Mockito.mock(InvalidationBus.class);
+        DoubleTierObjectCacheUseCase<Person> busCache = new DoubleTierObjectCacheUseCase<>(memStash, redisStash,
+                ruleEvaluatorUseCase, null, 0, null, invalidationBus);
+
+        when(memStash.save(anyString(), any(Person.class))).thenReturn(Mono.just(p));
+        when(memStash.evict(anyString())).thenReturn(Mono.just(true));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(false);
+
+        StepVerifier.create(busCache.save("pparker", p).then(busCache.evict("pparker")))
+                .expectSubscription()
+                .expectNext(true)
+                .expectComplete()
+                .verify();
+
+        verify(invalidationBus, timeout(1000).times(2)).publish(List.of("pparker"));
+    }
+
+    @Test
+    @DisplayName("Overwrite upstream before invalidating other instances")
+    void testInvalidateAfterUpstreamWrite() {
+        InvalidationBus invalidationBus = Mockito.mock(InvalidationBus.class);
+        DoubleTierObjectCacheUseCase<Person> busCache = new DoubleTierObjectCacheUseCase<>(memStash, redisStash,
+                ruleEvaluatorUseCase, null, 0, null, invalidationBus);
+
+        when(memStash.save(anyString(), any(Person.class))).thenReturn(Mono.just(p));
+        when(memStash.evict(anyString())).thenReturn(Mono.just(true));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(redisStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
+        when(redisStash.evict(anyString())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(busCache.save("pparker", p))
+                .expectNext(p)
+                .verifyComplete();
+        verify(invalidationBus, timeout(1000)).publish(List.of("pparker"));
+        StepVerifier.create(busCache.evict("pparker"))
+                .expectNext(true)
+                .verifyComplete();
+        verify(invalidationBus, timeout(1000).times(2)).publish(List.of("pparker"));
+
+        InOrder inOrder = inOrder(redisStash, invalidationBus);
+        inOrder.verify(redisStash).save("pparker", p, -1);
+        inOrder.verify(invalidationBus).publish(List.of("pparker"));
+        inOrder.verify(redisStash).evict("pparker");
+        inOrder.verify(invalidationBus).publish(List.of("pparker"));
+        verify(redisStash, never()).saveIfAbsent(anyString(), any(Person.class), anyInt());
+    }
+
     @Test
     @DisplayName("Check element exists on local cache")
     void testExist() {
@@ -191,7 +341,7 @@ class DoubleTierObjectCacheUseCaseTest {
 
         when(memStash2.get(anyString(), any(TypeReference.class))).thenReturn(Mono.empty());
         when(redisStash2.get(anyString(), any(TypeReference.class))).thenReturn(Mono.just(List.of(p)));
-        when(memStash2.save(anyString(), any())).thenReturn(Mono.just(List.of(p)));
+        when(memStash2.saveAs(anyString(), any(), anyInt(), any())).thenReturn(Mono.just(List.of(p)));
 
         StepVerifier.create(cache2.get("pparker", new TypeReference<>(){}))
                 .expectSubscription()
@@ -202,7 +352,8 @@ class DoubleTierObjectCacheUseCaseTest {
                 .hasNotDroppedElements();
 
         verify(memStash2).get(eq("pparker"), any(TypeReference.class));
-        verify(memStash2).save("pparker", List.of(p));
+        // saved along with the type it was read as
+        verify(memStash2).saveAs(eq("pparker"), eq(List.of(p)), eq(-1), any(TypeReference.class));
         verify(redisStash2).get(eq("pparker"), any(TypeReference.class));
         verify(redisStash2, times(0)).save("pparker", List.of(p));
     }
@@ -326,7 +477,6 @@ class DoubleTierObjectCacheUseCaseTest {
 
         when(memStash.setSave(anyString(), anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
         when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
-        when(redisStash.exists(anyString())).thenReturn(Mono.just(false));
         when(redisStash.setSave(anyString(), anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
 
         StepVerifier.create(cache.setSave("user:index", "pparker", p, 3600))
@@ -336,8 +486,8 @@ class DoubleTierObjectCacheUseCaseTest {
                 .verify();
 
         verify(memStash).setSave("user:index", "pparker", p, 3600);
-        verify(redisStash, timeout(1000)).exists("user:index");
         verify(redisStash, timeout(1000)).setSave("user:index", "pparker", p, 3600);
+        verify(redisStash, never()).exists("user:index");
     }
 
     @Test
@@ -363,7 +513,6 @@ class DoubleTierObjectCacheUseCaseTest {
 
         when(memStash.setSave(anyString(), anyString(), any(Person.class))).thenReturn(Mono.just(p));
         when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
-        when(redisStash.exists(anyString())).thenReturn(Mono.just(false));
         when(redisStash.setSave(anyString(), anyString(), any(Person.class))).thenReturn(Mono.just(p));
 
         StepVerifier.create(cache.setSave("user:index", "pparker", p))
@@ -373,8 +522,8 @@ class DoubleTierObjectCacheUseCaseTest {
                 .verify();
 
         verify(memStash).setSave("user:index", "pparker", p);
-        verify(redisStash, timeout(1000)).exists("user:index");
         verify(redisStash, timeout(1000)).setSave("user:index", "pparker", p);
+        verify(redisStash, never()).exists("user:index");
     }
 
     @Test
@@ -497,4 +646,113 @@ class DoubleTierObjectCacheUseCaseTest {
         verify(memStash).setRemove("user:index", "pparker");
         verify(redisStash, timeout(1000)).setRemove("user:index", "pparker");
     }
+
+    @Test
+    @DisplayName("Batch get, completing local misses from centralized")
+    void testMultiGetFromLocalAndCentralized() {
+        Person mj = new Person();
+        mj.setName("Mary Jane");
+
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(ruleEvaluatorUseCase.evalForDownstreamSync(anyString())).thenReturn(true);
+        when(memStash.mGet(anyCollection(), any(Class.class))).thenReturn(Mono.just(Map.of("pparker", p)));
+        when(redisStash.mGet(anyCollection(), any(Class.class))).thenReturn(Mono.just(Map.of("mj", mj)));
+        when(memStash.mSave(anyMap())).thenReturn(Mono.just(Map.of("mj", mj)));
+
+        StepVerifier.create(cache.mGet(List.of("pparker", "mj"), Person.class))
+                .expectSubscription()
+                .expectNext(Map.of("pparker", p, "mj", mj))
+                .expectComplete()
+                .verify();
+
+        verify(redisStash).mGet(List.of("mj"), Person.class);
+        verify(memStash, timeout(1000)).mSave(Map.of("mj", mj));
+    }
+
+    @Test
+    @DisplayName("Batch get all from local cache")
+    void testMultiGetFromLocal() {
+        when(memStash.mGet(anyCollection(), any(Class.class))).thenReturn(Mono.just(Map.of("pparker", p)));
+
+        StepVerifier.create(cache.mGet(List.of("pparker"), Person.class))
+                .expectSubscription()
+                .expectNext(Map.of("pparker", p))
+                .expectComplete()
+                .verify();
+
+        verify(redisStash, times(0)).mGet(anyCollection(), any(Class.class));
+    }
+
+    @Test
+    @DisplayName("Batch save on local cache and then update distributed")
+    void testMultiSaveLocalAndUpstream() {
+        when(memStash.mSave(anyMap(), anyInt())).thenReturn(Mono.just(Map.of("pparker", p)));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(redisStash.saveIfAbsent(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(cache.mSave(Map.of("pparker", p), 10))
+                .expectSubscription()
+                .expectNext(Map.of("pparker", p))
+                .expectComplete()
+                .verify();
+
+        verify(redisStash, timeout(1000)).saveIfAbsent("pparker", p, 10);
+    }
+
+    @Test
+    @DisplayName("Batch evict on local cache and then on distributed")
+    void testMultiEvictLocalAndUpstream() {
+        when(memStash.mEvict(anyCollection())).thenReturn(Mono.just(true));
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(redisStash.mEvict(anyCollection())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(cache.mEvict(List.of("pparker")))
+                .expectSubscription()
+                .expectNext(true)
+                .expectComplete()
+                .verify();
+
+        verify(redisStash, timeout(1000)).mEvict(List.of("pparker"));
+    }
+
+    @Test
+    @DisplayName("Get or load, missing both tiers")
+    void testGetOrLoad() {
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(memStash.get(anyString(), any(Class.class))).thenReturn(Mono.empty());
+        when(redisStash.get(anyString(), any(Class.class))).thenReturn(Mono.empty());
+        when(memStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
+        when(redisStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(p));
+
+        StepVerifier.create(cache.getOrLoad("pparker", Person.class, key -> Mono.just(p), 60))
+                .expectSubscription()
+                .expectNext(p)
+                .expectComplete()
+                .verify();
+
+        verify(memStash).save("pparker", p, 60);
+        verify(redisStash, timeout(1000)).save("pparker", p, 60);
+    }
+
+    @Test
+    @DisplayName("Get or load, overwriting upstream the values refreshed ahead of expiration")
+    void testGetOrLoadRefreshOverwritesUpstream() {
+        DoubleTierObjectCacheUseCase<Person> refreshingCache = new DoubleTierObjectCacheUseCase<>(memStash,
+                redisStash, ruleEvaluatorUseCase, null, 1);
+        Person fresh = new Person();
+        fresh.setName("Spider-Man");
+        when(ruleEvaluatorUseCase.evalForUpstreamSync(anyString())).thenReturn(true);
+        when(memStash.get(anyString(), any(Class.class))).thenReturn(Mono.just(p));
+        when(memStash.expiresIn(anyString())).thenReturn(Mono.just(Duration.ZERO));
+        when(memStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(fresh));
+        when(redisStash.save(anyString(), any(Person.class), anyInt())).thenReturn(Mono.just(fresh));
+
+        StepVerifier.create(refreshingCache.getOrLoad("pparker", Person.class, key -> Mono.just(fresh), 60))
+                .expectNext(p)
+                .verifyComplete();
+
+        verify(memStash, timeout(1000)).save("pparker", fresh, 60);
+        verify(redisStash, timeout(1000)).save("pparker", fresh, 60);
+        verify(redisStash, never()).saveIfAbsent(anyString(), any(Person.class), anyInt());
+    }
 }
@@ -0,0 +1,154 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.demo.Address;
+import co.com.bancolombia.binstash.demo.Person;
+import co.com.bancolombia.binstash.model.InvalidValueException;
+import co.com.bancolombia.binstash.model.api.ObjectStash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tools.jackson.core.type.TypeReference;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LocalObjectCacheUseCaseTest {
+
+    private LocalObjectCacheUseCase<Person> cache;
+
+    @Mock
+    private ObjectStash mockedStash;
+
+    private Person p;
+
+    @BeforeEach
+    void before() {
+        p = new Person();
+        p.setName("Peter Parker");
+        p.setAddress(new Address("some-street", "NY"));
+
+        cache = new LocalObjectCacheUseCase<>(mockedStash);
+    }
+
+    @Test
+    @DisplayName("save objects as they are")
+    void testSave() {
+        when(mockedStash.saveObject(anyString(), any(), anyInt())).thenReturn(Mono.just(p));
+
+        StepVerifier.create(cache.save("pparker", p))
+                .expectNextMatches(saved -> saved == p)
+                .verifyComplete();
+
+        StepVerifier.create(cache.save("pparker", null))
+                .expectError(InvalidValueException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("get objects of the requested type only")
+    void testGet() {
+        Object heldPerson = held("pparker", p, null);
+        Object heldOther = held("other", "not a person", null);
+        when(mockedStash.getObject("pparker")).thenReturn(Mono.just(heldPerson));
+        when(mockedStash.getObject("other")).thenReturn(Mono.just(heldOther));
+        when(mockedStash.getObject("raw")).thenReturn(Mono.just(p));
+
+        StepVerifier.create(cache.get("pparker", Person.class))
+                .expectNextMatches(found -> found == p)
+                .verifyComplete();
+        StepVerifier.create(cache.get("pparker", new TypeReference<Person>() {}))
+                .expectNext(p)
+                .verifyComplete();
+        StepVerifier.create(cache.get("other", Person.class))
+                .verifyComplete();
+        // objects saved by other means are not values of this cache
+        StepVerifier.create(cache.get("raw", Person.class))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("get generic objects only as the type they were saved as")
+    void testGetGeneric() {
+        LocalObjectCacheUseCase<List<?>> listCache = new LocalObjectCacheUseCase<>(mockedStash);
+        TypeReference<List<Person>> people = new TypeReference<>() {};
+        TypeReference<List<String>> names = new TypeReference<>() {};
+        List<Person> saved = List.of(p);
+        when(mockedStash.saveObject(anyString(), any(), anyInt()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        StepVerifier.create(listCache.saveAs("people", saved, 60, people))
+                .expectNext(saved)
+                .verifyComplete();
+        StepVerifier.create(listCache.save("untyped", saved))
+                .expectNext(saved)
+                .verifyComplete();
+        ArgumentCaptor<Object> held = ArgumentCaptor.forClass(Object.class);
+        verify(mockedStash).saveObject(eq("people"), held.capture(), eq(60));
+        verify(mockedStash).saveObject(eq("untyped"), held.capture(), eq(-1));
+        when(mockedStash.getObject("people")).thenReturn(Mono.just(held.getAllValues().get(0)));
+        when(mockedStash.getObject("untyped")).thenReturn(Mono.just(held.getAllValues().get(1)));
+        when(mockedStash.mGetObjects(any())).thenReturn(Mono.just(Map.of("people", held.getAllValues().get(0),
+                "untyped", held.getAllValues().get(1))));
+
+        StepVerifier.create(listCache.get("people", people))
+                .expectNextMatches(found -> found == saved)
+                .verifyComplete();
+        StepVerifier.create(listCache.get("people", names))
+                .verifyComplete();
+        StepVerifier.create(listCache.get("untyped", people))
+                .verifyComplete();
+        // a reference telling no type finds nothing
+        StepVerifier.create(listCache.get("people", "not a type"))
+                .verifyComplete();
+        StepVerifier.create(listCache.mGet(List.of("people", "untyped"), people))
+                .expectNext(Map.of("people", saved))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("get several objects, skipping other types")
+    void testMGet() {
+        Map<String, Object> found = Map.of("pparker", held("pparker", p, null), "other", held("other", 1, null));
+        when(mockedStash.mGetObjects(any())).thenReturn(Mono.just(found));
+
+        StepVerifier.create(cache.mGet(List.of("pparker", "other"), Person.class))
+                .expectNext(Map.of("pparker", p))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("get all objects of a set")
+    void testSetGetAll() {
+        when(mockedStash.setGetAllObjects("people")).thenReturn(Flux.just(p, "other"));
+
+        StepVerifier.create(cache.setGetAll("people", Person.class))
+                .expectNext(p)
+                .verifyComplete();
+    }
+
+    // saves the value through a cache, returning the entry it put in the stash
+    private Object held(String key, Object value, Object ref) {
+        ObjectStash stash = mock(ObjectStash.class);
+        when(stash.saveObject(anyString(), any(), anyInt()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        new LocalObjectCacheUseCase<>(stash).saveAs(key, value, -1, ref).block();
+        ArgumentCaptor<Object> held = ArgumentCaptor.forClass(Object.class);
+        verify(stash).saveObject(eq(key), held.capture(), eq(-1));
+        return held.getValue();
+    }
+}
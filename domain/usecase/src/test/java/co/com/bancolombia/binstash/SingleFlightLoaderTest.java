@@ -0,0 +1,237 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightLoaderTest {
+
+    private SingleFlightLoader<String> loader;
+    private Map<String, String> cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void before() {
+        loader = new SingleFlightLoader<>();
+        cache = new ConcurrentHashMap<>();
+        loads = new AtomicInteger();
+    }
+
+    private Mono<String> getOrLoad(String key) {
+        return loader.getOrLoad(key,
+                () -> Mono.justOrEmpty(cache.get(key)),
+                k -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet())
+                        .delayElement(Duration.ofMillis(100)),
+                value -> Mono.fromSupplier(() -> {
+                    cache.put(key, value);
+                    return value;
+                }));
+    }
+
+    @Test
+    @DisplayName("Concurrent misses share a single load")
+    void testConcurrentMisses() {
+        StepVerifier.create(Flux.range(0, 50).flatMap(i -> getOrLoad("k1")).distinct())
+                .expectSubscription()
+                .expectNext("value-1")
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, loads.get());
+        assertEquals("value-1", cache.get("k1"));
+    }
+
+    @Test
+    @DisplayName("Hits don't invoke the loader")
+    void testHit() {
+        cache.put("k1", "cached");
+
+        StepVerifier.create(getOrLoad("k1"))
+                .expectSubscription()
+                .expectNext("cached")
+                .expectComplete()
+                .verify();
+
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    @DisplayName("Loads again once the previous load completed")
+    void testSequentialMisses() {
+        StepVerifier.create(getOrLoad("k1").then(Mono.fromRunnable(cache::clear)).then(getOrLoad("k1")))
+                .expectSubscription()
+                .expectNext("value-2")
+                .expectComplete()
+                .verify();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Returns loaded value when writing into cache fails")
+    void testWriterError() {
+        Mono<String> op = loader.getOrLoad("k1",
+                Mono::empty,
+                k -> Mono.just("loaded"),
+                value -> Mono.error(new IllegalStateException("cache down")));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext("loaded")
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Completes empty when loader doesn't find the value")
+    void testLoaderEmpty() {
+        Mono<String> op = loader.getOrLoad("k1",
+                Mono::empty,
+                k -> Mono.empty(),
+                Mono::just);
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Releases the distributed lease after loading")
+    void testLeaseAcquired() {
+        TestLease lease = new TestLease(Duration.ofSeconds(1));
+        loader = new SingleFlightLoader<>(lease);
+
+        StepVerifier.create(getOrLoad("k1"))
+                .expectSubscription()
+                .expectNext("value-1")
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, loads.get());
+        // released once the load terminates, without holding back its result
+        StepVerifier.create(Mono.fromSupplier(lease.holders::isEmpty)
+                        .filter(Boolean::booleanValue)
+                        .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(10))))
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @DisplayName("Waits for the value loaded by the holder of the distributed lease")
+    void testLeaseHeldByOther() {
+        TestLease lease = new TestLease(Duration.ofSeconds(2));
+        lease.holders.put("k1", "other-process");
+        loader = new SingleFlightLoader<>(lease);
+
+        Mono.delay(Duration.ofMillis(150))
+                .subscribe(tick -> cache.put("k1", "remote"));
+
+        StepVerifier.create(getOrLoad("k1"))
+                .expectSubscription()
+                .expectNext("remote")
+                .expectComplete()
+                .verify();
+
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    @DisplayName("Loads the value when the holder of the distributed lease doesn't within the wait time")
+    void testLeaseWaitTimeout() {
+        TestLease lease = new TestLease(Duration.ofMillis(100));
+        lease.holders.put("k1", "other-process");
+        loader = new SingleFlightLoader<>(lease);
+
+        StepVerifier.create(getOrLoad("k1"))
+                .expectSubscription()
+                .expectNext("value-1")
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Refreshes in background hits about to expire")
+    void testRefreshAhead() {
+        loader = new SingleFlightLoader<>(null, 1_000);
+        cache.put("k1", "cached");
+
+        Mono<String> op = loader.getOrLoad("k1",
+                () -> Mono.justOrEmpty(cache.get("k1")),
+                () -> Mono.just(Duration.ofMillis(10)),
+                k -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet()),
+                value -> Mono.fromSupplier(() -> {
+                    cache.put("k1", value);
+                    return value;
+                }));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext("cached")
+                .expectComplete()
+                .verify();
+
+        assertEquals(1, loads.get());
+        assertEquals("value-1", cache.get("k1"));
+    }
+
+    @Test
+    @DisplayName("Doesn't refresh hits far from expiring")
+    void testNoRefreshAhead() {
+        loader = new SingleFlightLoader<>(null, 1);
+        cache.put("k1", "cached");
+
+        Mono<String> op = loader.getOrLoad("k1",
+                () -> Mono.justOrEmpty(cache.get("k1")),
+                () -> Mono.just(Duration.ofHours(1)),
+                k -> Mono.fromSupplier(() -> "value-" + loads.incrementAndGet()),
+                Mono::just);
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext("cached")
+                .expectComplete()
+                .verify();
+
+        assertEquals(0, loads.get());
+    }
+
+    private static class TestLease implements DistributedLease {
+
+        private final Map<String, String> holders = new ConcurrentHashMap<>();
+        private final Duration waitTime;
+
+        TestLease(Duration waitTime) {
+            this.waitTime = waitTime;
+        }
+
+        @Override
+        public Mono<Boolean> tryAcquire(String key, String token) {
+            return Mono.fromSupplier(() -> holders.putIfAbsent(key, token) == null);
+        }
+
+        @Override
+        public Mono<Boolean> release(String key, String token) {
+            return Mono.fromSupplier(() -> holders.remove(key, token));
+        }
+
+        @Override
+        public Duration getWaitTime() {
+            return waitTime;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.demo.Address;
+import co.com.bancolombia.binstash.demo.Person;
+import co.com.bancolombia.binstash.model.InvalidValueException;
+import co.com.bancolombia.binstash.model.api.BinaryStash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SingleTierBinaryObjectCacheUseCaseTest {
+
+    private SingleTierBinaryObjectCacheUseCase<Person> cache;
+
+    @Mock
+    private BinaryStash mockedStash;
+
+    private Person p;
+
+    private byte[] serializedPerson;
+
+    @BeforeEach
+    void before() {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        p = new Person();
+        p.setName("Peter Parker");
+        p.setAddress(new Address("some-street", "NY"));
+
+        serializedPerson = objectMapper.writeValueAsBytes(p);
+
+        cache = new SingleTierBinaryObjectCacheUseCase<>(mockedStash, new BinarySerializatorHelper<>(objectMapper));
+    }
+
+    @Test
+    @DisplayName("save bytes in cache")
+    void testSave() {
+        when(mockedStash.save(anyString(), any(byte[].class), anyInt())).thenReturn(Mono.just(serializedPerson));
+
+        StepVerifier.create(cache.save("pparker", p))
+                .expectNext(p)
+                .verifyComplete();
+
+        verify(mockedStash).save(eq("pparker"), eq(serializedPerson), eq(-1));
+    }
+
+    @Test
+    @DisplayName("reject null values")
+    void testSaveNull() {
+        StepVerifier.create(cache.save("pparker", null))
+                .expectError(InvalidValueException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("get bytes from cache")
+    void testGet() {
+        when(mockedStash.get(anyString())).thenReturn(Mono.just(serializedPerson));
+
+        StepVerifier.create(cache.get("pparker", Person.class))
+                .expectNext(p)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("get several keys from cache, with a type reference")
+    void testMGet() {
+        when(mockedStash.mGet(any())).thenReturn(Mono.just(Map.of("pparker", serializedPerson,
+                "broken", new byte[]{1, 2, 3})));
+
+        StepVerifier.create(cache.mGet(List.of("pparker", "broken", "missing"), new TypeReference<Person>() {}))
+                .expectNext(Map.of("pparker", p))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("get all values of a set")
+    void testSetGetAll() {
+        when(mockedStash.setGetAll(anyString())).thenReturn(Flux.just(serializedPerson, serializedPerson));
+
+        StepVerifier.create(cache.setGetAll("people", Person.class))
+                .expectNext(p, p)
+                .verifyComplete();
+    }
+}
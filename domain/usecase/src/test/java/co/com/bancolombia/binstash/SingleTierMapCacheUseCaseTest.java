@@ -123,7 +123,7 @@ class SingleTierMapCacheUseCaseTest {
     @DisplayName("Check map exists on cache")
     void testExist() {
 
-        when(mockedStash.hGetAll(anyString())).thenReturn(Mono.just(demoMap));
+        when(mockedStash.hExists(anyString())).thenReturn(Mono.just(true));
 
         StepVerifier.create(cache.existsMap("pparker"))
                 .expectSubscription()
@@ -131,14 +131,14 @@ class SingleTierMapCacheUseCaseTest {
                 .expectComplete()
                 .verify();
 
-        verify(mockedStash).hGetAll("pparker");
+        verify(mockedStash).hExists("pparker");
     }
 
     @Test
     @DisplayName("Check map doesnt exists on cache")
     void testNotExist() {
 
-        when(mockedStash.hGetAll(anyString())).thenReturn(Mono.empty());
+        when(mockedStash.hExists(anyString())).thenReturn(Mono.just(false));
 
         StepVerifier.create(cache.existsMap("pparker"))
                 .expectSubscription()
@@ -146,14 +146,14 @@ class SingleTierMapCacheUseCaseTest {
                 .expectComplete()
                 .verify();
 
-        verify(mockedStash).hGetAll("pparker");
+        verify(mockedStash).hExists("pparker");
     }
 
     @Test
     @DisplayName("Check field exists on map cache")
     void testFieldExist() {
 
-        when(mockedStash.hGet(anyString(), anyString())).thenReturn(Mono.just("Peter"));
+        when(mockedStash.hExists(anyString(), anyString())).thenReturn(Mono.just(true));
 
         StepVerifier.create(cache.existsMap("pparker", "name"))
                 .expectSubscription()
@@ -161,14 +161,14 @@ class SingleTierMapCacheUseCaseTest {
                 .expectComplete()
                 .verify();
 
-        verify(mockedStash).hGet("pparker", "name");
+        verify(mockedStash).hExists("pparker", "name");
     }
 
     @Test
     @DisplayName("Verify field doesnt exists on map cache")
     void testFieldNotExist() {
 
-        when(mockedStash.hGet(anyString(), anyString())).thenReturn(Mono.empty());
+        when(mockedStash.hExists(anyString(), anyString())).thenReturn(Mono.just(false));
 
         StepVerifier.create(cache.existsMap("pparker", "name"))
                 .expectSubscription()
@@ -176,7 +176,7 @@ class SingleTierMapCacheUseCaseTest {
                 .expectComplete()
                 .verify();
 
-        verify(mockedStash).hGet("pparker", "name");
+        verify(mockedStash).hExists("pparker", "name");
     }
 
     @Test
@@ -256,5 +256,18 @@ class SingleTierMapCacheUseCaseTest {
         verify(mockedStash).hDelete("pparker", "name");
     }
 
+    @Test
+    @DisplayName("get map or load on miss")
+    void testGetOrLoadMap() {
+        when(mockedStash.hGetAll(anyString())).thenReturn(Mono.empty());
+        when(mockedStash.hSave(anyString(), any(Map.class), anyInt())).thenReturn(Mono.just(demoMap));
+
+        StepVerifier.create(cache.getOrLoadMap("pparker", key -> Mono.just(demoMap), 60))
+                .expectSubscription()
+                .expectNext(demoMap)
+                .expectComplete()
+                .verify();
 
+        verify(mockedStash).hSave("pparker", demoMap, 60);
+    }
 }
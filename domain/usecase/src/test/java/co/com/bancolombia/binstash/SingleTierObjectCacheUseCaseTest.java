@@ -439,4 +439,56 @@ class SingleTierObjectCacheUseCaseTest {
         verify(mockedStash).setRemove("user:index", "unknown");
     }
 
+    @Test
+    @DisplayName("save and get several elements in batch")
+    void testMultiKeySaveGet() {
+        when(mockedStash.mSave(anyMap(), eq(-1))).thenReturn(Mono.just(Map.of("pparker", serializedPerson)));
+        when(mockedStash.mGet(anyCollection())).thenReturn(Mono.just(Map.of("pparker", serializedPerson)));
+
+        Mono<Map<String, Person>> op = cache.mSave(Map.of("pparker", p))
+                .then(cache.mGet(List.of("pparker", "mj"), Person.class));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext(Map.of("pparker", p))
+                .expectComplete()
+                .verify();
+
+        verify(mockedStash).mSave(Map.of("pparker", serializedPerson), -1);
+        verify(mockedStash).mGet(List.of("pparker", "mj"));
+
+        StepVerifier.create(cache.mSave(null))
+                .expectSubscription()
+                .expectErrorMessage("Value cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("evict several elements in batch")
+    void testMultiKeyEvict() {
+        when(mockedStash.mEvict(anyCollection())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(cache.mEvict(List.of("pparker", "mj")))
+                .expectSubscription()
+                .expectNext(true)
+                .expectComplete()
+                .verify();
+
+        verify(mockedStash).mEvict(List.of("pparker", "mj"));
+    }
+
+    @Test
+    @DisplayName("get from cache or load on miss")
+    void testGetOrLoad() {
+        when(mockedStash.get(anyString())).thenReturn(Mono.empty());
+        when(mockedStash.save(anyString(), anyString(), eq(60))).thenReturn(Mono.just(serializedPerson));
+
+        StepVerifier.create(cache.getOrLoad("pparker", Person.class, key -> Mono.just(p), 60))
+                .expectSubscription()
+                .expectNext(p)
+                .expectComplete()
+                .verify();
+
+        verify(mockedStash).save("pparker", serializedPerson, 60);
+    }
 }
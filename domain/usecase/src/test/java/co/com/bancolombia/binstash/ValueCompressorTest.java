@@ -0,0 +1,85 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.demo.Address;
+import co.com.bancolombia.binstash.demo.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValueCompressorTest {
+
+    private static final String LARGE_VALUE = "{\"name\":\"Peter Parker\",\"street\":\"some-street\"},".repeat(100);
+
+    @Test
+    @DisplayName("Should compress text values over the threshold")
+    void testCompressText() {
+        ValueCompressor compressor = new ValueCompressor(1024);
+
+        String compressed = compressor.compress(LARGE_VALUE);
+
+        assertTrue(compressed.startsWith(ValueCompressor.TEXT_HEADER));
+        assertTrue(compressed.length() < LARGE_VALUE.length() / 4);
+        assertEquals(LARGE_VALUE, compressor.decompress(compressed));
+    }
+
+    @Test
+    @DisplayName("Should keep values under the threshold, or not getting smaller, as they are")
+    void testKeepSmallValues() {
+        ValueCompressor compressor = new ValueCompressor(1024);
+        byte[] random = new byte[2048];
+        new Random(7).nextBytes(random);
+
+        assertSame("{\"name\":\"Peter\"}", compressor.compress("{\"name\":\"Peter\"}"));
+        assertSame(random, compressor.compress(random));
+        assertNull(compressor.compress((String) null));
+        assertFalse(ValueCompressor.DISABLED.isEnabled());
+        assertSame(LARGE_VALUE, ValueCompressor.DISABLED.compress(LARGE_VALUE));
+    }
+
+    @Test
+    @DisplayName("Should read uncompressed values, and compressed ones with compression disabled")
+    void testDecompressMixedValues() {
+        String compressed = new ValueCompressor(1).compress(LARGE_VALUE);
+
+        assertEquals(LARGE_VALUE, ValueCompressor.DISABLED.decompress(LARGE_VALUE));
+        assertEquals(LARGE_VALUE, ValueCompressor.DISABLED.decompress(compressed));
+    }
+
+    @Test
+    @DisplayName("Should compress binary values")
+    void testCompressBinary() {
+        ValueCompressor compressor = new ValueCompressor(1024);
+        byte[] value = LARGE_VALUE.getBytes();
+
+        byte[] compressed = compressor.compress(value);
+
+        assertEquals(ValueCompressor.BINARY_HEADER[1], compressed[1]);
+        assertTrue(compressed.length < value.length / 4);
+        assertArrayEquals(value, compressor.decompress(compressed));
+        assertArrayEquals(new byte[]{1, 2}, compressor.decompress(new byte[]{1, 2}));
+    }
+
+    @Test
+    @DisplayName("Should serialize values compressed")
+    void testSerializeCompressed() {
+        Person person = new Person();
+        person.setName("Peter Parker".repeat(200));
+        person.setAddress(new Address("some-street", "NY"));
+        SerializatorHelper<Person> helper = new SerializatorHelper<>(new ObjectMapper(), new ValueCompressor(1024));
+
+        String serialized = helper.serialize(person);
+
+        assertTrue(serialized.startsWith(ValueCompressor.TEXT_HEADER));
+        assertEquals(person, helper.deserializeTo(serialized, Person.class));
+        assertNull(helper.deserializeTo(ValueCompressor.TEXT_HEADER + "bm90IGRlZmxhdGVk", Person.class));
+    }
+}
@@ -0,0 +1,165 @@
+package co.com.bancolombia.binstash;
+
+import co.com.bancolombia.binstash.model.OverflowPolicy;
+import co.com.bancolombia.binstash.model.WriteBehindConfig;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindQueueTest {
+
+    @Mock
+    private ObjectCache<String> centralizedCache;
+
+    @Test
+    @DisplayName("merge writes to the same key and flush them in batches")
+    void testCoalesceAndBatch() {
+        when(centralizedCache.saveIfAbsent(anyString(), anyString(), anyInt())).thenReturn(Mono.just(true));
+        WriteBehindQueue<String> queue = new WriteBehindQueue<>(centralizedCache,
+                new WriteBehindConfig(100, 3, Duration.ofMinutes(1), OverflowPolicy.DROP_OLDEST));
+
+        queue.offer("k1", "v1", 60);
+        queue.offer("k1", "v1.1", 60);
+        queue.offer("k2", "v2", 60);
+        assertEquals(2, queue.depth());
+
+        // a full batch is flushed without waiting for the interval
+        queue.offer("k3", "v3", 60);
+
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k1", "v1.1", 60);
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k2", "v2", 60);
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k3", "v3", 60);
+        verify(centralizedCache, never()).saveIfAbsent("k1", "v1", 60);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    @DisplayName("flush the queue after the flush interval")
+    void testFlushInterval() {
+        when(centralizedCache.saveIfAbsent(anyString(), anyString(), anyInt())).thenReturn(Mono.just(true));
+        WriteBehindQueue<String> queue = new WriteBehindQueue<>(centralizedCache,
+                new WriteBehindConfig(100, 10, Duration.ofMillis(100), OverflowPolicy.DROP_OLDEST));
+
+        queue.offer("k1", "v1", -1);
+        queue.offer("k2", "v2", -1);
+        queue.offer("k3", "v3", 30);
+
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k1", "v1", -1);
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k2", "v2", -1);
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k3", "v3", 30);
+    }
+
+    @Test
+    @DisplayName("drop the newest writes when full")
+    void testDropNewest() {
+        when(centralizedCache.saveIfAbsent(anyString(), anyString(), anyInt())).thenReturn(Mono.just(true));
+        WriteBehindQueue<String> queue = new WriteBehindQueue<>(centralizedCache,
+                new WriteBehindConfig(2, 10, Duration.ofMinutes(1), OverflowPolicy.DROP_NEWEST));
+
+        queue.offer("k1", "v1", 60);
+        queue.offer("k2", "v2", 60);
+        queue.offer("k3", "v3", 60);
+        // keys already queued are still updated
+        queue.offer("k2", "v2.1", 60);
+
+        assertEquals(2, queue.depth());
+        assertEquals(1, queue.droppedCount());
+        StepVerifier.create(queue.flush())
+                .verifyComplete();
+        verify(centralizedCache).saveIfAbsent("k1", "v1", 60);
+        verify(centralizedCache).saveIfAbsent("k2", "v2.1", 60);
+        verify(centralizedCache, never()).saveIfAbsent("k3", "v3", 60);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    @DisplayName("drop the oldest writes when full")
+    void testDropOldest() {
+        when(centralizedCache.saveIfAbsent(anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.error(new RuntimeException("down")));
+        WriteBehindQueue<String> queue = new WriteBehindQueue<>(centralizedCache,
+                new WriteBehindConfig(2, 10, Duration.ofMinutes(1), OverflowPolicy.DROP_OLDEST));
+
+        queue.offer("k1", "v1", 60);
+        queue.offer("k2", "v2", 60);
+        queue.offer("k3", "v3", 60);
+
+        assertEquals(1, queue.droppedCount());
+        // failed batches are not retried
+        StepVerifier.create(queue.flush())
+                .verifyComplete();
+        verify(centralizedCache, never()).saveIfAbsent("k1", "v1", 60);
+        assertEquals(0, queue.depth());
+        assertEquals(2, queue.failedCount());
+    }
+
+    @Test
+    @DisplayName("write the rest of a batch when a key fails")
+    void testFailedWrite() {
+        when(centralizedCache.saveIfAbsent("k1", "v1", 60)).thenReturn(Mono.error(new RuntimeException("down")));
+        when(centralizedCache.saveIfAbsent("k2", "v2", 60)).thenReturn(Mono.just(true));
+        when(centralizedCache.save("k3", "v3", 60)).thenReturn(Mono.just("v3"));
+        WriteBehindQueue<String> queue = new WriteBehindQueue<>(centralizedCache,
+                new WriteBehindConfig(100, 10, Duration.ofMinutes(1), OverflowPolicy.DROP_OLDEST));
+
+        Mono<Boolean> k1 = queue.offer("k1", "v1", 60);
+        Mono<Boolean> k2 = queue.offer("k2", "v2", 60);
+        Mono<Boolean> k3 = queue.offer("k3", "v3", 60, true);
+        StepVerifier.create(queue.flush())
+                .verifyComplete();
+
+        StepVerifier.create(Mono.zip(k1, k2, k3))
+                .expectNextMatches(written -> !written.getT1() && written.getT2() && written.getT3())
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        assertEquals(1, queue.failedCount());
+        assertEquals(0, queue.droppedCount());
+    }
+
+    @Test
+    @DisplayName("flush after the batch already being written")
+    void testFlushWaitsForBatchInFlight() {
+        AtomicBoolean k1Written = new AtomicBoolean();
+        when(centralizedCache.saveIfAbsent("k1", "v1", 60)).thenReturn(Mono.delay(Duration.ofMillis(300))
+                .doOnNext(tick -> k1Written.set(true))
+                .thenReturn(true));
+        // k2 is written only once k1 is
+        when(centralizedCache.saveIfAbsent("k2", "v2", 60)).thenAnswer(invocation -> Mono.just(k1Written.get()));
+        WriteBehindQueue<String> queue = new WriteBehindQueue<>(centralizedCache,
+                new WriteBehindConfig(100, 1, Duration.ofMinutes(1), OverflowPolicy.DROP_OLDEST));
+
+        // a full batch, written right away
+        Mono<Boolean> k1 = queue.offer("k1", "v1", 60);
+        verify(centralizedCache, timeout(1000)).saveIfAbsent("k1", "v1", 60);
+        // waits for the batch in flight
+        Mono<Boolean> k2 = queue.offer("k2", "v2", 60);
+
+        StepVerifier.create(queue.flush())
+                .verifyComplete();
+
+        assertTrue(k1Written.get());
+        assertEquals(0, queue.depth());
+        StepVerifier.create(Mono.zip(k1, k2))
+                .expectNextMatches(written -> written.getT1() && written.getT2())
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+}
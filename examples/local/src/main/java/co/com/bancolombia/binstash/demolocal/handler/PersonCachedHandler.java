@@ -10,9 +10,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
-import reactor.cache.CacheMono;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Signal;
 
 import java.util.Optional;
 
@@ -37,12 +35,8 @@ public class PersonCachedHandler {
         String key = Optional.of(request.pathVariable("name"))
                 .orElse("Jhon Smith");
 
-        Mono<Person> cached = CacheMono
-            .lookup(k -> objectCache.get(k, Person.class)
-                     .map(Signal::next), key)
-                .onCacheMissResume(dummyRepo.findByName(key))
-                // save in cache and expire after 10 seconds
-                .andWriteWith((k, sig) -> objectCache.save(k, sig.get(), EXPIRE_AFTER).then());
+        // save in cache and expire after 10 seconds
+        Mono<Person> cached = objectCache.getOrLoad(key, Person.class, dummyRepo::findByName, EXPIRE_AFTER);
 
         return cached
                 .flatMap(person -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,149 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap storage of byte arrays, over direct buffers (slabs) split in fixed size blocks. Each value takes a chain
+ * of blocks, every block starting with the index of the next one, so values of any size share the same blocks and
+ * freed space is reused without compaction.
+ * <p>
+ * Slabs are allocated lazily, up to the capacity, and kept for reuse once allocated. Not thread safe, callers
+ * serialize the access.
+ */
+final class BlockStore {
+
+    static final int NO_BLOCK = -1;
+    private static final int HEADER = Integer.BYTES;
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final int maxBlocks;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int nextFresh;
+    private int freeHead = NO_BLOCK;
+    private int freeBlocks;
+
+    /**
+     * @param capacity maximum bytes of direct memory to allocate
+     * @param blockSize size of each block, including a 4 bytes header
+     * @param slabSize size of each direct buffer allocated, rounded down to whole blocks
+     */
+    BlockStore(long capacity, int blockSize, int slabSize) {
+        this.blockSize = blockSize;
+        this.blocksPerSlab = Math.max(1, slabSize / blockSize);
+        this.maxBlocks = (int) Math.min(capacity / blockSize, Integer.MAX_VALUE);
+    }
+
+    boolean fits(int length) {
+        return blocksFor(length) <= maxBlocks;
+    }
+
+    boolean hasRoomFor(int length) {
+        return blocksFor(length) <= freeBlocks + (maxBlocks - nextFresh);
+    }
+
+    /**
+     * @return bytes taken by the blocks in use.
+     */
+    long usedBytes() {
+        return (long) (nextFresh - freeBlocks) * blockSize;
+    }
+
+    /**
+     * Copies data into a chain of blocks. Callers check there is room for it first.
+     * @return index of the first block of the chain
+     */
+    int write(byte[] data) {
+        final int payload = blockSize - HEADER;
+        final int needed = blocksFor(data.length);
+        int first = NO_BLOCK;
+        int previous = NO_BLOCK;
+        int offset = 0;
+        for (int i = 0; i < needed; i++) {
+            final int block = take();
+            if (previous == NO_BLOCK) {
+                first = block;
+            } else {
+                setNext(previous, block);
+            }
+            final int chunk = Math.min(payload, data.length - offset);
+            slab(block).put(position(block) + HEADER, data, offset, chunk);
+            offset += chunk;
+            previous = block;
+        }
+        setNext(previous, NO_BLOCK);
+        return first;
+    }
+
+    byte[] read(int first, int length) {
+        final int payload = blockSize - HEADER;
+        final byte[] data = new byte[length];
+        int block = first;
+        int offset = 0;
+        while (offset < length) {
+            final int chunk = Math.min(payload, length - offset);
+            slab(block).get(position(block) + HEADER, data, offset, chunk);
+            offset += chunk;
+            block = next(block);
+        }
+        return data;
+    }
+
+    void free(int first) {
+        int block = first;
+        while (block != NO_BLOCK) {
+            final int following = next(block);
+            setNext(block, freeHead);
+            freeHead = block;
+            freeBlocks++;
+            block = following;
+        }
+    }
+
+    /**
+     * Frees every block at once, keeping the slabs already allocated.
+     */
+    void clear() {
+        nextFresh = 0;
+        freeHead = NO_BLOCK;
+        freeBlocks = 0;
+    }
+
+    private int blocksFor(int length) {
+        final int payload = blockSize - HEADER;
+        return Math.max(1, (length + payload - 1) / payload);
+    }
+
+    private int take() {
+        if (freeHead != NO_BLOCK) {
+            final int block = freeHead;
+            freeHead = next(block);
+            freeBlocks--;
+            return block;
+        }
+        final int block = nextFresh++;
+        if (block / blocksPerSlab == slabs.size()) {
+            final int blocks = Math.min(blocksPerSlab, maxBlocks - block);
+            slabs.add(ByteBuffer.allocateDirect(blocks * blockSize));
+        }
+        return block;
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs.get(block / blocksPerSlab);
+    }
+
+    private int position(int block) {
+        return (block % blocksPerSlab) * blockSize;
+    }
+
+    private int next(int block) {
+        return slab(block).getInt(position(block));
+    }
+
+    private void setNext(int block, int next) {
+        slab(block).putInt(position(block), next);
+    }
+}
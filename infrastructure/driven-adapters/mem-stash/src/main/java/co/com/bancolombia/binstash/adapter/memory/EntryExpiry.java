@@ -0,0 +1,31 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires each entry of a <pre>MemoryStash</pre> at its own <pre>expiresAt</pre>, so caffeine drops it (and frees its
+ * capacity) on time instead of waiting for it to be read or pushed out by size. Reads don't extend the expiration.
+ */
+final class EntryExpiry implements Expiry<String, MemoryStash.Entry> {
+
+    @Override
+    public long expireAfterCreate(String key, MemoryStash.Entry entry, long currentTime) {
+        return remaining(entry);
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, MemoryStash.Entry entry, long currentTime, long currentDuration) {
+        return remaining(entry);
+    }
+
+    @Override
+    public long expireAfterRead(String key, MemoryStash.Entry entry, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+    private static long remaining(MemoryStash.Entry entry) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.getExpiresAt() - System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,47 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import java.util.Map;
+
+/**
+ * Estimates the heap bytes an entry of a <pre>MemoryStash</pre> takes: its key, its value (or the fields of a hash)
+ * and the bookkeeping around them. Strings are assumed to hold one byte per char, as compact strings of Latin-1 text
+ * (eg. JSON documents) do.
+ */
+final class EntryWeigher implements Weigher<String, MemoryStash.Entry> {
+
+    static final int DEFAULT_OBJECT_WEIGHT = 1024;
+
+    // String instance plus its backing array header
+    private static final int STRING_OVERHEAD = 40;
+    // Entry instance plus the caffeine node holding it
+    private static final int ENTRY_OVERHEAD = 88;
+    // node of the map holding the fields of a hash
+    private static final int FIELD_OVERHEAD = 32;
+
+    private final int objectWeight;
+
+    EntryWeigher(int objectWeight) {
+        this.objectWeight = objectWeight;
+    }
+
+    @Override
+    public int weigh(String key, MemoryStash.Entry entry) {
+        long weight = ENTRY_OVERHEAD + sizeOf(key);
+        if (entry.isHash()) {
+            for (Map.Entry<String, MemoryStash.Entry> field : entry.getFields().entrySet()) {
+                weight += FIELD_OVERHEAD + ENTRY_OVERHEAD + sizeOf(field.getKey()) + sizeOf(field.getValue().getData());
+            }
+        } else if (entry.isObject()) {
+            weight += objectWeight;
+        } else {
+            weight += sizeOf(entry.getData());
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
@@ -0,0 +1,99 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Sorted index of the keys stored in a <pre>MemoryStash</pre>, used to resolve glob patterns without scanning
+ * the whole cache. Patterns with a literal prefix (eg. <pre>session:*</pre>) only visit the keys sharing such prefix,
+ * any other pattern is matched against a glob compiled once per lookup.
+ */
+final class KeyIndex {
+
+    private static final String GLOB_CHARS = "*?[\\";
+    private static final String REGEX_CHARS = "\\.[]{}()<>*+-=!?^$|&";
+
+    private final NavigableSet<String> keys = new ConcurrentSkipListSet<>();
+
+    void add(String key) {
+        keys.add(key);
+    }
+
+    void remove(String key) {
+        keys.remove(key);
+    }
+
+    /**
+     * Streams the indexed keys matching a Redis-like glob pattern (<pre>*</pre>, <pre>?</pre>, <pre>[...]</pre> and
+     * <pre>\</pre> escapes are supported). A blank pattern matches every key.
+     * @param pattern glob pattern to match keys against
+     * @return a lazy stream of matching keys, in lexicographic order.
+     */
+    Stream<String> match(String pattern) {
+        if (pattern == null || pattern.isBlank() || "*".equals(pattern)) {
+            return keys.stream();
+        }
+        final String prefix = literalPrefix(pattern);
+        final Stream<String> candidates = prefix.isEmpty() ? keys.stream() :
+                keys.tailSet(prefix, true).stream().takeWhile(k -> k.startsWith(prefix));
+        if (pattern.length() == prefix.length()) {
+            return candidates.filter(prefix::equals);
+        }
+        if (pattern.length() == prefix.length() + 1 && pattern.endsWith("*")) {
+            return candidates;
+        }
+        return candidates.filter(compileGlob(pattern));
+    }
+
+    private static String literalPrefix(String pattern) {
+        int i = 0;
+        while (i < pattern.length() && GLOB_CHARS.indexOf(pattern.charAt(i)) < 0) {
+            i++;
+        }
+        return pattern.substring(0, i);
+    }
+
+    private static Predicate<String> compileGlob(String glob) {
+        final StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                appendLiteral(regex, glob.charAt(++i));
+            } else if (c == '[' && glob.indexOf(']', i + 1) > i + 1) {
+                int close = glob.indexOf(']', i + 1);
+                String charClass = glob.substring(i + 1, close);
+                regex.append('[');
+                if (charClass.startsWith("^")) {
+                    regex.append('^');
+                    charClass = charClass.substring(1);
+                }
+                for (char member : charClass.toCharArray()) {
+                    if (member == '-') {
+                        regex.append(member);
+                    } else {
+                        appendLiteral(regex, member);
+                    }
+                }
+                regex.append(']');
+                i = close;
+            } else {
+                appendLiteral(regex, c);
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).asMatchPredicate();
+    }
+
+    private static void appendLiteral(StringBuilder regex, char c) {
+        if (REGEX_CHARS.indexOf(c) >= 0) {
+            regex.append('\\');
+        }
+        regex.append(c);
+    }
+}
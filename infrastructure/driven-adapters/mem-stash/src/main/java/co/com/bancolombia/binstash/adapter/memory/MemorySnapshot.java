@@ -0,0 +1,161 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary snapshot of the string and hash entries of a <pre>MemoryStash</pre>, so a new instance can warm up with the
+ * entries of the previous one. Entries keep their absolute expiration, being loaded with what is left of their ttl.
+ * <p>
+ * Layout: a magic number, then one record per entry, each one made of its kind, expiration, key, and either its value
+ * or the count of its fields followed by the name, expiration and value of each. Strings are written as their UTF-8
+ * length and bytes.
+ */
+final class MemorySnapshot {
+
+    private static final int MAGIC = 0x42535331; // BSS1
+    private static final byte STRING = 0;
+    private static final byte HASH = 1;
+
+    private final Path file;
+
+    MemorySnapshot(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the live entries to a temporary file of its own, next to the snapshot, then moves it over the snapshot,
+     * so readers never see a partial one. Objects held as they are can't be written, and are skipped.
+     * @return number of entries written
+     */
+    int write(Iterable<Map.Entry<String, MemoryStash.Entry>> entries, long currentTime) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            int written = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                for (Map.Entry<String, MemoryStash.Entry> entry : entries) {
+                    if (writeEntry(out, entry.getKey(), entry.getValue(), currentTime)) {
+                        written++;
+                    }
+                }
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps the snapshot in memory and hands each entry not yet expired to the loader. A missing snapshot holds no
+     * entries, and a truncated one the entries before the cut.
+     * @return number of entries loaded
+     */
+    int read(long currentTime, BiConsumer<String, MemoryStash.Entry> loader) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a memory stash snapshot: " + file);
+            }
+            int loaded = 0;
+            try {
+                while (buffer.hasRemaining()) {
+                    final byte kind = buffer.get();
+                    final long expiresAt = buffer.getLong();
+                    final String key = readString(buffer);
+                    final MemoryStash.Entry entry = kind == HASH ? readHash(buffer, expiresAt, currentTime) :
+                            MemoryStash.Entry.of(readString(buffer), expiresAt);
+                    if (entry != null && !entry.amIExpired(currentTime)) {
+                        loader.accept(key, entry);
+                        loaded++;
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                // truncated snapshot, keeps the entries read so far
+            }
+            return loaded;
+        }
+    }
+
+    private static boolean writeEntry(DataOutputStream out, String key, MemoryStash.Entry entry, long currentTime)
+            throws IOException {
+        if (entry.amIExpired(currentTime)) {
+            return false;
+        }
+        if (entry.isString()) {
+            out.writeByte(STRING);
+            out.writeLong(entry.getExpiresAt());
+            writeString(out, key);
+            writeString(out, entry.getData());
+            return true;
+        }
+        if (entry.isHash()) {
+            final Map<String, MemoryStash.Entry> fields = Map.copyOf(entry.getFields());
+            final long live = fields.values().stream().filter(field -> !field.amIExpired(currentTime)).count();
+            if (live == 0) {
+                return false;
+            }
+            out.writeByte(HASH);
+            out.writeLong(entry.getExpiresAt());
+            writeString(out, key);
+            out.writeInt((int) live);
+            for (Map.Entry<String, MemoryStash.Entry> field : fields.entrySet()) {
+                if (!field.getValue().amIExpired(currentTime)) {
+                    writeString(out, field.getKey());
+                    out.writeLong(field.getValue().getExpiresAt());
+                    writeString(out, field.getValue().getData());
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static MemoryStash.Entry readHash(ByteBuffer buffer, long expiresAt, long currentTime) {
+        final int count = buffer.getInt();
+        final Map<String, MemoryStash.Entry> fields = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String name = readString(buffer);
+            final long fieldExpiresAt = buffer.getLong();
+            final MemoryStash.Entry field = MemoryStash.Entry.of(readString(buffer), fieldExpiresAt);
+            if (!field.amIExpired(currentTime)) {
+                fields.put(name, field);
+            }
+        }
+        return fields.isEmpty() ? null : MemoryStash.Entry.ofFields(fields, expiresAt);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -2,37 +2,62 @@ package co.com.bancolombia.binstash.adapter.memory;
 
 import co.com.bancolombia.binstash.model.InvalidKeyException;
 import co.com.bancolombia.binstash.model.InvalidValueException;
+import co.com.bancolombia.binstash.model.api.ObjectStash;
 import co.com.bancolombia.binstash.model.api.Stash;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import lombok.Data;
+import lombok.extern.java.Log;
 import org.apache.commons.lang3.StringUtils;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuples;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
-public class MemoryStash implements Stash {
+/**
+ * In-memory stash over Caffeine. Besides strings and hashes, it holds objects as they are (see <pre>ObjectStash</pre>),
+ * string and object values being looked up separately: a key holding an object is missing for <pre>get</pre>.
+ */
+@Log
+public class MemoryStash implements Stash, ObjectStash, AutoCloseable {
 
-    private static final int DEFAULT_BASE_EXPIRATION_SECONDS = Integer.MAX_VALUE;
-    private static final int DEFAULT_PER_KEY_EXPIRATION_SECONDS = 300;
     private static final String ERROR_KEY_MSG = "Caching key cannot be null";
     private static final String ERROR_VALUE_MSG = "Caching empty or null value not allowed";
-    private static final String KEY_SEP = "#";
     private final ConcurrentHashMap<String, Set<String>> indexKeyMap = new ConcurrentHashMap<>();
+    private final KeyIndex keyIndex = new KeyIndex();
+    private final LongAdder evictions = new LongAdder();
 
     private final Cache<String, MemoryStash.Entry> caffeineCache;
-    private final int expireAfter;
-
-    private MemoryStash(Cache<String, MemoryStash.Entry> caffeineCache, int expireAfter) {
-        this.caffeineCache = caffeineCache;
-        this.expireAfter = expireAfter;
+    private final MemoryTtl expirations;
+    private final Object snapshotLock = new Object();
+    private Path snapshotFile;
+    private Disposable snapshots;
+
+    private MemoryStash(Caffeine<String, Entry> cacheBuilder, int expireAfter, double ttlJitter) {
+        // eviction listener runs atomically with the removal, keeping the key index in sync with caffeine
+        this.caffeineCache = cacheBuilder
+                .evictionListener((String key, Entry value, RemovalCause cause) -> {
+                    if (key != null)
+                        keyIndex.remove(key);
+                    evictions.increment();
+                })
+                .build();
+        this.expirations = new MemoryTtl(expireAfter, ttlJitter);
     }
 
     @Override
@@ -45,11 +70,35 @@ public class MemoryStash implements Stash {
         return Mono.fromSupplier(() -> {
             if (StringUtils.isBlank(key))
                 throw new InvalidKeyException(ERROR_KEY_MSG);
-            caffeineCache.put(key, new Entry(value, computeTtl(ttl)));
+            putEntry(key, new Entry(value, expirations.compute(ttl)));
             return value;
         });
     }
 
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return putEntryIfAbsent(key, new Entry(value, expirations.compute(ttl)));
+        });
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values) {
+        return mSave(values, -1);
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (values == null || values.keySet().stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            values.forEach((key, value) -> putEntry(key, new Entry(value, expirations.compute(ttl))));
+            return values;
+        });
+    }
+
     @Override
     public Mono<Map<String, String>> hSave(String key, Map<String, String> value) {
         return hSave(key, value, -1);
@@ -63,8 +112,7 @@ public class MemoryStash implements Stash {
             if (value == null || value.isEmpty()) {
                 throw new InvalidValueException(ERROR_VALUE_MSG);
             }
-            value.forEach((name, item) -> caffeineCache.put(key + KEY_SEP + name,
-                    new Entry(item, computeTtl(ttl))));
+            putFields(key, value, ttl);
             return value;
         });
     }
@@ -82,12 +130,41 @@ public class MemoryStash implements Stash {
             if (StringUtils.isBlank(value)) {
                 throw new InvalidValueException(ERROR_KEY_MSG);
             }
-            caffeineCache.put(key + KEY_SEP + name,
-                    new Entry(value, computeTtl(ttl)));
+            putFields(key, Map.of(name, value), ttl);
             return value;
         });
     }
 
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, Map<String, String> value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            }
+            if (value == null || value.isEmpty()) {
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            }
+            // as in redis, any live key is kept
+            return putFields(key, value, ttl, current -> !current.isHash() || hasLiveFields(current));
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, String name, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isAnyBlank(key, name)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            }
+            if (StringUtils.isBlank(value)) {
+                throw new InvalidValueException(ERROR_KEY_MSG);
+            }
+            return putFields(key, Map.of(name, value), ttl, current -> {
+                final Entry field = current.isHash() ? current.getFields().get(name) : null;
+                return field != null && !field.amIExpired(System.currentTimeMillis());
+            });
+        });
+    }
+
     @Override
     public Mono<String> get(String key) {
         return Mono.fromSupplier(() -> {
@@ -95,30 +172,95 @@ public class MemoryStash implements Stash {
                 throw new InvalidKeyException(ERROR_KEY_MSG);
             return caffeineCache.getIfPresent(key);
         })
-        .filter(entry -> !entry.amIExpired(System.currentTimeMillis()))
+        .filter(Entry::isString)
         .map(Entry::getData);
     }
 
+    @Override
+    public Mono<Map<String, String>> mGet(Collection<String> keys) {
+        return Mono.fromSupplier(() -> {
+            if (keys == null || keys.stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            final Map<String, String> found = new HashMap<>();
+            caffeineCache.getAllPresent(keys).forEach((key, entry) -> {
+                if (entry.isString())
+                    found.put(key, entry.getData());
+            });
+            return found;
+        });
+    }
+
+    @Override
+    public <T> Mono<T> saveObject(String key, T value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            if (value == null)
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            putEntry(key, Entry.ofObject(value, expirations.compute(ttl)));
+            return value;
+        });
+    }
+
+    @Override
+    public <T> Mono<Boolean> saveObjectIfAbsent(String key, T value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            if (value == null)
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            return putEntryIfAbsent(key, Entry.ofObject(value, expirations.compute(ttl)));
+        });
+    }
+
+    @Override
+    public Mono<Object> getObject(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return caffeineCache.getIfPresent(key);
+        })
+        .filter(Entry::isObject)
+        .map(Entry::getObject);
+    }
+
+    @Override
+    public <T> Mono<Map<String, T>> mSaveObjects(Map<String, T> values, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (values == null || values.keySet().stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            if (values.values().stream().anyMatch(Objects::isNull))
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            values.forEach((key, value) -> putEntry(key, Entry.ofObject(value, expirations.compute(ttl))));
+            return values;
+        });
+    }
+
+    @Override
+    public Mono<Map<String, Object>> mGetObjects(Collection<String> keys) {
+        return Mono.fromSupplier(() -> {
+            if (keys == null || keys.stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            final Map<String, Object> found = new HashMap<>();
+            caffeineCache.getAllPresent(keys).forEach((key, entry) -> {
+                if (entry.isObject())
+                    found.put(key, entry.getObject());
+            });
+            return found;
+        });
+    }
+
     @Override
     public Mono<Set<String>> keySet() {
-        long currentTime = System.currentTimeMillis();
-        return Mono.fromSupplier(() -> caffeineCache.asMap().entrySet()
-                .stream()
-                .filter(e -> !e.getValue().amIExpired(currentTime))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet())
-        );
+        // caffeine's views already skip the expired entries not yet reclaimed
+        return Mono.fromSupplier(() -> Set.copyOf(caffeineCache.asMap().keySet()));
     }
 
     @Override
     public Flux<String> keys(String pattern, int limit) {
-        long currentTime = System.currentTimeMillis();
-        String curatedPattern = StringUtils.isBlank(pattern) ? ".*" : pattern.replace("*", ".*");
-        return Flux.fromStream(() -> caffeineCache.asMap().entrySet()
-                .stream()
-                .filter(e -> !e.getValue().amIExpired(currentTime))
-                .filter(e -> e.getKey().matches(curatedPattern))
-                .map(Map.Entry::getKey)
+        // the map view skips the expired entries too, without counting the check as a read of the key
+        return Flux.fromStream(() -> keyIndex.match(pattern)
+                .filter(caffeineCache.asMap()::containsKey)
                 .limit(limit <= 0 ? Integer.MAX_VALUE : limit)
         );
     }
@@ -127,7 +269,13 @@ public class MemoryStash implements Stash {
     public Mono<String> hGet(String key, String name) {
         if (StringUtils.isAnyBlank(key, name))
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
-        return this.get(key + KEY_SEP + name);
+        return Mono.fromSupplier(() -> {
+            Entry hash = getHash(key);
+            if (hash == null)
+                return null;
+            Entry field = hash.getFields().get(name);
+            return (field == null || field.amIExpired(System.currentTimeMillis())) ? null : field.getData();
+        });
     }
 
     @Override
@@ -135,26 +283,75 @@ public class MemoryStash implements Stash {
         if (StringUtils.isBlank(key))
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         else {
-            final String prefix = key + KEY_SEP;
-            return keySet().map(keys -> keys.stream().filter(k -> k.startsWith(prefix)).toList())
-                    .map(keys -> Tuples.of(keys, caffeineCache.getAllPresent(keys)))
-                    .map(tuple2 -> {
-                        final Map<String, String> newMap = new HashMap<>();
-                        tuple2.getT1().forEach(k -> {
-                            final String _k = k.substring(prefix.length());
-                            newMap.put(_k, tuple2.getT2().get(k).getData());
-                        });
-                        return newMap;
-                    })
-                    .filter(dataMap -> !dataMap.isEmpty());
+            return Mono.fromSupplier(() -> {
+                long currentTime = System.currentTimeMillis();
+                Entry hash = getHash(key);
+                if (hash == null)
+                    return null;
+                final Map<String, String> newMap = new HashMap<>();
+                hash.getFields().forEach((name, field) -> {
+                    if (!field.amIExpired(currentTime))
+                        newMap.put(name, field.getData());
+                });
+                if (newMap.isEmpty()) {
+                    // every field is expired, reclaim the whole hash
+                    caffeineCache.asMap().computeIfPresent(key, (k, current) ->
+                            current == hash ? unindexed(k) : current);
+                    return null;
+                }
+                return newMap;
+            });
         }
     }
 
+    @Override
+    public Mono<Boolean> hExists(String key) {
+        if (StringUtils.isBlank(key))
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        return Mono.fromSupplier(() -> {
+            Entry hash = getHash(key);
+            return hash != null && hasLiveFields(hash);
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key, String name) {
+        if (StringUtils.isAnyBlank(key, name))
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        return Mono.fromSupplier(() -> {
+            Entry hash = getHash(key);
+            Entry field = hash == null ? null : hash.getFields().get(name);
+            return field != null && !field.amIExpired(System.currentTimeMillis());
+        });
+    }
+
     @Override
     public Mono<Boolean> exists(String key) {
-        return this.get(key)
-                .map(r -> true)
-                .defaultIfEmpty(false);
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return caffeineCache.getIfPresent(key);
+        })
+        .map(entry -> !entry.isHash() || hasLiveFields(entry))
+        .defaultIfEmpty(false);
+    }
+
+    private boolean hasLiveFields(Entry hash) {
+        final long currentTime = System.currentTimeMillis();
+        return hash.getFields().values().stream()
+                .anyMatch(field -> !field.amIExpired(currentTime));
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return caffeineCache.getIfPresent(key);
+        })
+        .filter(entry -> !entry.isHash())
+        .map(entry -> Duration.ofMillis(entry.getExpiresAt() - System.currentTimeMillis()))
+        .filter(remaining -> !remaining.isNegative());
     }
 
     @Override
@@ -162,53 +359,134 @@ public class MemoryStash implements Stash {
         return Mono.fromSupplier(() -> {
             if (StringUtils.isBlank(key))
                 return false;
-            caffeineCache.invalidate(key);
+            removeEntry(key);
             return true;
         });
     }
 
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return Mono.fromSupplier(() -> {
+            if (keys == null || keys.stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return keys.stream()
+                    .map(this::removeEntry)
+                    .reduce(false, Boolean::logicalOr);
+        });
+    }
+
     @Override
     public Mono<Boolean> hDelete(String key, String name) {
         if (StringUtils.isAnyBlank(key, name))
             return Mono.just(false);
-        return this.evict(key + KEY_SEP + name);
+        return Mono.fromSupplier(() -> {
+            caffeineCache.asMap().computeIfPresent(key, (k, current) -> {
+                if (!current.isHash())
+                    return current;
+                current.getFields().remove(name);
+                // a new holder instance lets caffeine weigh the smaller hash again
+                return current.getFields().isEmpty() ? unindexed(k) : new Entry(current.getFields(), current.getExpiresAt());
+            });
+            return true;
+        });
     }
 
     @Override
     public Mono<Boolean> hDelete(String key) {
-        final String prefix = key + KEY_SEP;
         return Mono.fromSupplier(() -> {
             if (StringUtils.isBlank(key))
                 throw new InvalidKeyException(ERROR_KEY_MSG);
-            return caffeineCache.asMap().keySet().stream()
-                    .filter(k -> k.startsWith(prefix))
-                    .toList();
-        }).flatMapMany(Flux::fromIterable)
-        .flatMap(this::evict)
-        .all(result -> result)
-        .defaultIfEmpty(true);
+            caffeineCache.asMap().computeIfPresent(key, (k, current) -> current.isHash() ? unindexed(k) : current);
+            return true;
+        });
     }
 
     @Override
     public Mono<Boolean> evictAll() {
         return Mono.fromSupplier(() -> {
-            caffeineCache.invalidateAll();
+            caffeineCache.asMap().keySet().forEach(this::removeEntry);
             return true;
         });
     }
 
-    private int computeTtl(int cadidateTtl) {
-        int computed;
-        if (cadidateTtl > 0) {
-            computed = cadidateTtl;
-        }
-        else if (cadidateTtl < 0 && this.expireAfter > 0) {
-            computed = this.expireAfter;
-        }
-        else {
-            computed = DEFAULT_PER_KEY_EXPIRATION_SECONDS;
-        }
-        return computed;
+    /**
+     * Adds/updates fields of the hash stored under key. Each field keeps its own expiration, while the hash entry
+     * itself expires with its longest living field.
+     */
+    private void putFields(String key, Map<String, String> fields, int ttl) {
+        putFields(key, fields, ttl, current -> false);
+    }
+
+    /*
+     * Puts the fields, unless the current entry of the key is to be kept as it is. Checked and written within the
+     * same atomic operation.
+     */
+    private boolean putFields(String key, Map<String, String> fields, int ttl, Predicate<Entry> keep) {
+        final int computedTtl = expirations.compute(ttl);
+        final boolean[] saved = {false};
+        // caffeine hands expired entries to compute functions as absent ones
+        caffeineCache.asMap().compute(key, (k, current) -> {
+            if (current != null && keep.test(current)) {
+                return current;
+            }
+            saved[0] = true;
+            Map<String, Entry> hashFields;
+            long expiresAt;
+            if (current == null || !current.isHash()) {
+                hashFields = new ConcurrentHashMap<>();
+                expiresAt = 0;
+            } else {
+                hashFields = current.getFields();
+                expiresAt = current.getExpiresAt();
+            }
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                Entry fieldEntry = new Entry(field.getValue(), computedTtl);
+                hashFields.put(field.getKey(), fieldEntry);
+                expiresAt = Math.max(expiresAt, fieldEntry.getExpiresAt());
+            }
+            // a new holder instance (sharing the same fields map) lets caffeine register the write
+            return indexed(k, new Entry(hashFields, expiresAt));
+        });
+        return saved[0];
+    }
+
+    private void putEntry(String key, Entry entry) {
+        caffeineCache.asMap().compute(key, (k, current) -> indexed(k, entry));
+    }
+
+    /*
+     * Expired entries not yet reclaimed count as absent, caffeine hides them from its map view.
+     */
+    private boolean putEntryIfAbsent(String key, Entry entry) {
+        return caffeineCache.asMap().computeIfAbsent(key, k -> indexed(k, entry)) == entry;
+    }
+
+    private boolean removeEntry(String key) {
+        final boolean[] removed = {false};
+        caffeineCache.asMap().computeIfPresent(key, (k, current) -> {
+            removed[0] = true;
+            return unindexed(k);
+        });
+        return removed[0];
+    }
+
+    /*
+     * Index maintenance happens inside caffeine's compute functions, so it is serialized with any other write
+     * or eviction of the same key.
+     */
+    private Entry indexed(String key, Entry entry) {
+        keyIndex.add(key);
+        return entry;
+    }
+
+    private Entry unindexed(String key) {
+        keyIndex.remove(key);
+        return null;
+    }
+
+    private Entry getHash(String key) {
+        Entry entry = caffeineCache.getIfPresent(key);
+        return (entry == null || !entry.isHash()) ? null : entry;
     }
 
     @Override
@@ -217,14 +495,30 @@ public class MemoryStash implements Stash {
             if (StringUtils.isAnyBlank(indexKey, key, value)) {
                 throw new InvalidKeyException(ERROR_KEY_MSG);
             } else {
-                caffeineCache.put(key, new Entry(value, computeTtl(ttl)));
-                indexKeyMap.computeIfAbsent(indexKey, k ->
-                        ConcurrentHashMap.newKeySet()).add(key);
+                putMember(indexKey, key, new Entry(value, expirations.compute(ttl)));
                 return value;
             }
         });
     }
 
+    @Override
+    public <T> Mono<T> setSaveObject(String indexKey, String key, T value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isAnyBlank(indexKey, key) || value == null) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            } else {
+                putMember(indexKey, key, Entry.ofObject(value, expirations.compute(ttl)));
+                return value;
+            }
+        });
+    }
+
+    private void putMember(String indexKey, String key, Entry entry) {
+        putEntry(key, entry);
+        indexKeyMap.computeIfAbsent(indexKey, k ->
+                ConcurrentHashMap.newKeySet()).add(key);
+    }
+
     @Override
     public Mono<String> setSave(String indexKey, String key, String value) {
         return setSave(indexKey, key, value, -1);
@@ -232,15 +526,27 @@ public class MemoryStash implements Stash {
 
     @Override
     public Flux<String> setGetAll(String indexKey) {
+        return members(indexKey, Entry::isString, Entry::getData);
+    }
+
+    @Override
+    public Flux<Object> setGetAllObjects(String indexKey) {
+        return members(indexKey, Entry::isObject, Entry::getObject);
+    }
+
+    /*
+     * Values of the live members of a set holding the given kind of value, dropping from the set the members
+     * already gone.
+     */
+    private <V> Flux<V> members(String indexKey, Predicate<Entry> kind, Function<Entry, V> value) {
         if (StringUtils.isAnyBlank(indexKey)) {
             return Flux.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            Set<String> keys = indexKeyMap.getOrDefault(indexKey, Set.of());
-            return Flux.fromIterable(keys)
+            return Flux.defer(() -> Flux.fromIterable(indexKeyMap.getOrDefault(indexKey, Set.of())))
                     .flatMap(key -> {
                         Entry entry = caffeineCache.getIfPresent(key);
-                        if (entry != null && !entry.amIExpired(System.currentTimeMillis())) {
-                            return Mono.just(entry.getData());
+                        if (entry != null && kind.test(entry)) {
+                            return Mono.just(value.apply(entry));
                         } else {
                             indexKeyMap.computeIfPresent(indexKey, (k, set) -> {
                                 set.remove(key);
@@ -258,22 +564,158 @@ public class MemoryStash implements Stash {
             if (StringUtils.isAnyBlank(indexKey, key)) {
                 throw new InvalidKeyException(ERROR_KEY_MSG);
             } else {
-                caffeineCache.invalidate(key);
+                removeEntry(key);
                 return indexKeyMap.getOrDefault(indexKey, Set.of()).remove(key);
             }
         });
     }
 
+    /**
+     * Writes the live string and hash entries, with their expiration, to a snapshot file a new stash can warm up
+     * from (see <pre>loadSnapshot</pre>). Objects held as they are are skipped. Snapshots are written one at a
+     * time, so the last one saved is the newest.
+     * @param file where the snapshot is written, replacing any previous one
+     * @return number of entries written
+     */
+    public Mono<Integer> saveSnapshot(Path file) {
+        return Mono.fromCallable(() -> {
+                    synchronized (snapshotLock) {
+                        return new MemorySnapshot(file)
+                                .write(caffeineCache.asMap().entrySet(), System.currentTimeMillis());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Loads the entries of a snapshot not yet expired, with what is left of their ttl. Keys saved meanwhile are
+     * newer, and are kept.
+     * @param file snapshot to load, a missing one holds no entries
+     * @return number of entries read from the snapshot
+     */
+    public Mono<Integer> loadSnapshot(Path file) {
+        return Mono.fromCallable(() -> new MemorySnapshot(file).read(System.currentTimeMillis(), (key, entry) ->
+                        caffeineCache.asMap().computeIfAbsent(key, k -> indexed(k, entry))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Stops the periodic snapshots, writing a last one, when the stash was built with a snapshot file.
+     */
+    @Override
+    public void close() {
+        if (snapshotFile == null) {
+            return;
+        }
+        snapshots.dispose();
+        try {
+            saveSnapshot(snapshotFile).block();
+        } catch (RuntimeException e) {
+            log.warning("Could not save memory snapshot: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Warms up from the snapshot in background, then saves a new one every interval, if any.
+     */
+    private void startSnapshots(Path file, int intervalSeconds) {
+        this.snapshotFile = file;
+        final Flux<Integer> periodic = intervalSeconds <= 0 ? Flux.empty() :
+                Flux.interval(Duration.ofSeconds(intervalSeconds))
+                        .onBackpressureDrop()
+                        .concatMap(tick -> saveSnapshot(file)
+                                .onErrorResume(e -> {
+                                    log.warning("Could not save memory snapshot: " + e.getMessage());
+                                    return Mono.empty();
+                                }));
+        this.snapshots = loadSnapshot(file)
+                .onErrorResume(e -> {
+                    log.warning("Could not load memory snapshot: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .thenMany(periodic)
+                .subscribe();
+    }
+
+    /**
+     * @return approximate number of entries held in memory, including hashes.
+     */
+    public long size() {
+        return caffeineCache.estimatedSize();
+    }
+
+    /**
+     * @return estimated heap bytes taken by the entries, when bounded by <pre>maxBytes</pre>, -1 otherwise.
+     */
+    public long weightedSize() {
+        // applies the pending writes first, caffeine weighs them asynchronously
+        caffeineCache.cleanUp();
+        return caffeineCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(-1L))
+                .orElse(-1L);
+    }
+
+    /**
+     * @return whether the stash is bounded by the estimated memory of its entries.
+     */
+    public boolean isWeighted() {
+        return caffeineCache.policy().eviction()
+                .map(Policy.Eviction::isWeighted)
+                .orElse(false);
+    }
+
+    /**
+     * @return number of entries dropped by caffeine, either because the cache was full or they expired.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
     @Data
     public static final class Entry {
         private String data;
+        private Object object;
         private long expiresAt;
+        private Map<String, Entry> fields;
 
         public Entry(String data, int ttlSecods) {
             this.data = data;
             this.expiresAt = System.currentTimeMillis() + (ttlSecods * 1_000L);
         }
 
+        private Entry(Map<String, Entry> fields, long expiresAt) {
+            this.fields = fields;
+            this.expiresAt = expiresAt;
+        }
+
+        static Entry of(String data, long expiresAt) {
+            final Entry entry = new Entry(data, 0);
+            entry.expiresAt = expiresAt;
+            return entry;
+        }
+
+        static Entry ofFields(Map<String, Entry> fields, long expiresAt) {
+            return new Entry(fields, expiresAt);
+        }
+
+        private static Entry ofObject(Object object, int ttlSeconds) {
+            final Entry entry = new Entry((String) null, ttlSeconds);
+            entry.object = object;
+            return entry;
+        }
+
+        public boolean isHash() {
+            return this.fields != null;
+        }
+
+        public boolean isObject() {
+            return this.object != null;
+        }
+
+        public boolean isString() {
+            return this.data != null;
+        }
+
         public boolean amIExpired(long timestamp) {
             return timestamp > this.expiresAt;
         }
@@ -282,6 +724,11 @@ public class MemoryStash implements Stash {
     public static final class Builder {
         private int expireAfter = -1; // seconds
         private int maxSize = 1_000;
+        private long maxBytes = 0;
+        private int objectWeight = EntryWeigher.DEFAULT_OBJECT_WEIGHT;
+        private double ttlJitter = 0;
+        private Path snapshotFile;
+        private int snapshotInterval = 0; // seconds
 
         public Builder expireAfter(int seconds) {
             this.expireAfter  = seconds;
@@ -293,15 +740,76 @@ public class MemoryStash implements Stash {
             return this;
         }
 
+        /**
+         * Bounds the stash by the estimated memory its entries take, instead of by their number. When set,
+         * <pre>maxSize</pre> is ignored.
+         * @param bytes estimated heap bytes entries may take, equal or less than 0 to bound by <pre>maxSize</pre>
+         * @return this builder
+         */
+        public Builder maxBytes(long bytes) {
+            this.maxBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Estimated weight of each object held as it is (see <pre>saveObject</pre>), whose actual size can't be
+         * measured. Only used when bounded by <pre>maxBytes</pre>.
+         * @param bytes estimated heap bytes of a held object
+         * @return this builder
+         */
+        public Builder objectWeight(int bytes) {
+            this.objectWeight = bytes;
+            return this;
+        }
+
+        /**
+         * Randomly shortens each key ttl by up to the given fraction (eg. 0.1 for 10%), to spread out the
+         * expiration of keys saved at the same time.
+         * @param fraction value between 0 (no jitter) and 1
+         * @return this builder
+         */
+        public Builder ttlJitter(double fraction) {
+            this.ttlJitter = Math.max(0, Math.min(fraction, 1));
+            return this;
+        }
+
+        /**
+         * Warms up the stash from a snapshot of a previous instance, loaded in background, and keeps it up to date
+         * every <pre>snapshotInterval</pre> and when the stash is closed. Only string and hash entries are saved, so
+         * object caches holding objects in this stash start empty.
+         * @param path snapshot file, blank to disable snapshots
+         * @return this builder
+         */
+        public Builder snapshotFile(String path) {
+            this.snapshotFile = StringUtils.isBlank(path) ? null : Path.of(path);
+            return this;
+        }
+
+        /**
+         * @param seconds time between snapshots, equal or less than 0 to only save one when closed
+         * @return this builder
+         */
+        public Builder snapshotInterval(int seconds) {
+            this.snapshotInterval = seconds;
+            return this;
+        }
+
         public MemoryStash build() {
-            return new MemoryStash(
-                    Caffeine.newBuilder()
-                            .maximumSize(this.maxSize)
-                            .expireAfterWrite((this.expireAfter<=0) ?
-                                    DEFAULT_BASE_EXPIRATION_SECONDS:this.expireAfter, TimeUnit.SECONDS)
-                            .build(),
-                    this.expireAfter
-            );
+            // each entry expires at its own time, the scheduler reclaims it then even if it is never read again
+            final Caffeine<String, Entry> cacheBuilder = Caffeine.newBuilder()
+                    .expireAfter(new EntryExpiry())
+                    .scheduler(Scheduler.systemScheduler());
+            if (this.maxBytes > 0) {
+                cacheBuilder.maximumWeight(this.maxBytes)
+                        .weigher(new EntryWeigher(this.objectWeight));
+            } else {
+                cacheBuilder.maximumSize(this.maxSize);
+            }
+            final MemoryStash stash = new MemoryStash(cacheBuilder, this.expireAfter, this.ttlJitter);
+            if (this.snapshotFile != null) {
+                stash.startSnapshots(this.snapshotFile, this.snapshotInterval);
+            }
+            return stash;
         }
     }
 }
@@ -0,0 +1,47 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Resolves the expiration of saved keys, from the ttl given to each operation or the default one.
+ */
+final class MemoryTtl {
+
+    static final int DEFAULT_PER_KEY_EXPIRATION_SECONDS = 300;
+
+    private final int expireAfter;
+    private final double ttlJitter;
+
+    MemoryTtl(int expireAfter, double ttlJitter) {
+        this.expireAfter = expireAfter;
+        this.ttlJitter = ttlJitter;
+    }
+
+    /**
+     * @return ttl in seconds for a key, never above expireAfter when it is set.
+     */
+    int compute(int cadidateTtl) {
+        int computed;
+        if (cadidateTtl > 0) {
+            computed = this.expireAfter > 0 ? Math.min(cadidateTtl, this.expireAfter) : cadidateTtl;
+        }
+        else if (cadidateTtl < 0 && this.expireAfter > 0) {
+            computed = this.expireAfter;
+        }
+        else {
+            computed = DEFAULT_PER_KEY_EXPIRATION_SECONDS;
+        }
+        return withJitter(computed);
+    }
+
+    /*
+     * Shortens the ttl by a random fraction of up to ttlJitter, so keys written together don't expire together,
+     * without ever outliving the requested ttl.
+     */
+    private int withJitter(int ttl) {
+        if (this.ttlJitter <= 0) {
+            return ttl;
+        }
+        return Math.max(1, ttl - (int) (ThreadLocalRandom.current().nextDouble(this.ttlJitter) * ttl));
+    }
+}
@@ -0,0 +1,118 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Slice of an <pre>OffHeapStash</pre>: values live in its own <pre>BlockStore</pre>, while an access ordered map
+ * keeps where each key's value is, so the least recently used keys are evicted first when the blocks run out.
+ * Expired keys are dropped when found, or evicted as any other key.
+ * <p>
+ * Every method must run inside <pre>locked</pre>, which serializes the access to the segment.
+ */
+final class OffHeapSegment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private final BlockStore store;
+    private final KeyIndex keyIndex;
+    private final LongAdder evictions;
+
+    OffHeapSegment(BlockStore store, KeyIndex keyIndex, LongAdder evictions) {
+        this.store = store;
+        this.keyIndex = keyIndex;
+        this.evictions = evictions;
+    }
+
+    <R> R locked(Supplier<R> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a value, evicting the least recently used keys if needed. A value larger than the whole segment is not
+     * stored, though it still replaces the previous one.
+     */
+    void write(String key, byte[] data, long expiresAt, boolean hash) {
+        remove(key);
+        if (!store.fits(data.length)) {
+            return;
+        }
+        final Iterator<Map.Entry<String, Slot>> eldest = slots.entrySet().iterator();
+        while (!store.hasRoomFor(data.length) && eldest.hasNext()) {
+            final Map.Entry<String, Slot> evicted = eldest.next();
+            eldest.remove();
+            store.free(evicted.getValue().firstBlock());
+            keyIndex.remove(evicted.getKey());
+            evictions.increment();
+        }
+        slots.put(key, new Slot(store.write(data), data.length, expiresAt, hash));
+        keyIndex.add(key);
+    }
+
+    /**
+     * @return the live slot under key, marking it as recently used, or null.
+     */
+    Slot slot(String key, long currentTime) {
+        final Slot slot = slots.get(key);
+        if (slot != null && slot.isExpired(currentTime)) {
+            remove(key);
+            evictions.increment();
+            return null;
+        }
+        return slot;
+    }
+
+    byte[] read(Slot slot) {
+        return store.read(slot.firstBlock(), slot.length());
+    }
+
+    boolean remove(String key) {
+        final Slot slot = slots.remove(key);
+        if (slot == null) {
+            return false;
+        }
+        store.free(slot.firstBlock());
+        keyIndex.remove(key);
+        return true;
+    }
+
+    List<String> liveKeys(long currentTime) {
+        final List<String> keys = new ArrayList<>(slots.size());
+        slots.forEach((key, slot) -> {
+            if (!slot.isExpired(currentTime))
+                keys.add(key);
+        });
+        return keys;
+    }
+
+    void clear() {
+        slots.keySet().forEach(keyIndex::remove);
+        slots.clear();
+        store.clear();
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    long usedBytes() {
+        return store.usedBytes();
+    }
+
+    record Slot(int firstBlock, int length, long expiresAt, boolean hash) {
+        boolean isExpired(long timestamp) {
+            return timestamp > this.expiresAt;
+        }
+    }
+}
@@ -0,0 +1,642 @@
+package co.com.bancolombia.binstash.adapter.memory;
+
+import co.com.bancolombia.binstash.model.InvalidKeyException;
+import co.com.bancolombia.binstash.model.InvalidValueException;
+import co.com.bancolombia.binstash.model.api.Stash;
+import org.apache.commons.lang3.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory stash keeping its values out of the java heap, in direct buffers, so large local caches don't add to GC
+ * pauses. Only the keys and a small record per key stay on the heap.
+ * <p>
+ * Keys are spread over segments, each one with its own lock and share of the capacity, evicting its least recently
+ * used keys when full. Each key expires at its own time, as in <pre>MemoryStash</pre>. Values larger than a segment
+ * are not stored.
+ * <p>
+ * Direct memory is limited by the JVM (see <pre>-XX:MaxDirectMemorySize</pre>), which must allow for
+ * <pre>maxBytes</pre>.
+ */
+public class OffHeapStash implements Stash {
+
+    private static final String ERROR_KEY_MSG = "Caching key cannot be null";
+    private static final String ERROR_VALUE_MSG = "Caching empty or null value not allowed";
+    private final ConcurrentHashMap<String, Set<String>> indexKeyMap = new ConcurrentHashMap<>();
+    private final KeyIndex keyIndex = new KeyIndex();
+    private final LongAdder evictions = new LongAdder();
+
+    private final OffHeapSegment[] segments;
+    private final MemoryTtl expirations;
+
+    private OffHeapStash(Builder builder) {
+        this.segments = new OffHeapSegment[builder.segments];
+        final long segmentCapacity = builder.maxBytes / builder.segments;
+        final int slabSize = (int) Math.min(segmentCapacity, Builder.MAX_SLAB_SIZE);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new OffHeapSegment(new BlockStore(segmentCapacity, builder.blockSize, slabSize),
+                    keyIndex, evictions);
+        }
+        this.expirations = new MemoryTtl(builder.expireAfter, builder.ttlJitter);
+    }
+
+    @Override
+    public Mono<String> save(String key, String value) {
+        return save(key, value, -1);
+    }
+
+    @Override
+    public Mono<String> save(String key, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            putValue(key, value, ttl);
+            return value;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            if (value == null)
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            final OffHeapSegment segment = segmentOf(key);
+            final byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            final long expiresAt = expiresAt(ttl);
+            return segment.locked(() -> {
+                if (segment.slot(key, System.currentTimeMillis()) != null) {
+                    return false;
+                }
+                segment.write(key, data, expiresAt, false);
+                return true;
+            });
+        });
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values) {
+        return mSave(values, -1);
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (values == null || values.keySet().stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            values.forEach((key, value) -> putValue(key, value, ttl));
+            return values;
+        });
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return readValue(key);
+        });
+    }
+
+    @Override
+    public Mono<Map<String, String>> mGet(Collection<String> keys) {
+        return Mono.fromSupplier(() -> {
+            if (keys == null || keys.stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            final Map<String, String> found = new HashMap<>();
+            keys.forEach(key -> {
+                String value = readValue(key);
+                if (value != null)
+                    found.put(key, value);
+            });
+            return found;
+        });
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return Mono.fromSupplier(() -> {
+            final long currentTime = System.currentTimeMillis();
+            final Set<String> keys = new HashSet<>();
+            for (OffHeapSegment segment : segments) {
+                keys.addAll(segment.locked(() -> segment.liveKeys(currentTime)));
+            }
+            return keys;
+        });
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        return Flux.fromStream(() -> keyIndex.match(pattern)
+                .filter(key -> {
+                    final long currentTime = System.currentTimeMillis();
+                    final OffHeapSegment segment = segmentOf(key);
+                    return segment.locked(() -> segment.slot(key, currentTime) != null);
+                })
+                .limit(limit <= 0 ? Integer.MAX_VALUE : limit)
+        );
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            final OffHeapSegment.Slot slot = liveSlot(key);
+            return slot != null && (!slot.hash() || hasLiveFields(readFields(key)));
+        });
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return liveSlot(key);
+        })
+        .filter(slot -> !slot.hash())
+        .map(slot -> Duration.ofMillis(slot.expiresAt() - System.currentTimeMillis()))
+        .filter(remaining -> !remaining.isNegative());
+    }
+
+    @Override
+    public Mono<Boolean> evict(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                return false;
+            removeEntry(key);
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return Mono.fromSupplier(() -> {
+            if (keys == null || keys.stream().anyMatch(StringUtils::isBlank))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            return keys.stream()
+                    .map(this::removeEntry)
+                    .reduce(false, Boolean::logicalOr);
+        });
+    }
+
+    @Override
+    public Mono<Boolean> evictAll() {
+        return Mono.fromSupplier(() -> {
+            for (OffHeapSegment segment : segments) {
+                segment.locked(() -> {
+                    segment.clear();
+                    return true;
+                });
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<String> setSave(String indexKey, String key, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isAnyBlank(indexKey, key, value)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            } else {
+                putValue(key, value, ttl);
+                indexKeyMap.computeIfAbsent(indexKey, k ->
+                        ConcurrentHashMap.newKeySet()).add(key);
+                return value;
+            }
+        });
+    }
+
+    @Override
+    public Mono<String> setSave(String indexKey, String key, String value) {
+        return setSave(indexKey, key, value, -1);
+    }
+
+    @Override
+    public Flux<String> setGetAll(String indexKey) {
+        if (StringUtils.isAnyBlank(indexKey)) {
+            return Flux.error(new InvalidKeyException(ERROR_KEY_MSG));
+        }
+        return Flux.defer(() -> Flux.fromIterable(indexKeyMap.getOrDefault(indexKey, Set.of())))
+                .flatMap(key -> {
+                    String value = readValue(key);
+                    if (value != null) {
+                        return Mono.just(value);
+                    }
+                    // drops from the set the members already gone
+                    indexKeyMap.computeIfPresent(indexKey, (k, set) -> {
+                        set.remove(key);
+                        return set.isEmpty() ? null : set;
+                    });
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isAnyBlank(indexKey, key)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            } else {
+                removeEntry(key);
+                return indexKeyMap.getOrDefault(indexKey, Set.of()).remove(key);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Map<String, String>> hSave(String key, Map<String, String> value) {
+        return hSave(key, value, -1);
+    }
+
+    @Override
+    public Mono<Map<String, String>> hSave(String key, Map<String, String> value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            }
+            if (value == null || value.isEmpty()) {
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            }
+            putFields(key, value, ttl);
+            return value;
+        });
+    }
+
+    @Override
+    public Mono<String> hSave(String key, String name, String value) {
+        return hSave(key, name, value, -1);
+    }
+
+    @Override
+    public Mono<String> hSave(String key, String name, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isAnyBlank(key, name)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            }
+            if (StringUtils.isBlank(value)) {
+                throw new InvalidValueException(ERROR_KEY_MSG);
+            }
+            putFields(key, Map.of(name, value), ttl);
+            return value;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, Map<String, String> value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            }
+            if (value == null || value.isEmpty()) {
+                throw new InvalidValueException(ERROR_VALUE_MSG);
+            }
+            // as in redis, any live key is kept
+            return putFields(key, value, ttl, fields -> fields == null || hasLiveFields(fields));
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, String name, String value, int ttl) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isAnyBlank(key, name)) {
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            }
+            if (StringUtils.isBlank(value)) {
+                throw new InvalidValueException(ERROR_KEY_MSG);
+            }
+            return putFields(key, Map.of(name, value), ttl, fields -> {
+                final Field field = fields == null ? null : fields.get(name);
+                return field != null && !field.isExpired(System.currentTimeMillis());
+            });
+        });
+    }
+
+    @Override
+    public Mono<String> hGet(String key, String name) {
+        if (StringUtils.isAnyBlank(key, name))
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        return Mono.fromSupplier(() -> {
+            final Map<String, Field> fields = readFields(key);
+            final Field field = fields == null ? null : fields.get(name);
+            return (field == null || field.isExpired(System.currentTimeMillis())) ? null : field.value();
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key) {
+        if (StringUtils.isBlank(key))
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        return Mono.fromSupplier(() -> {
+            return hasLiveFields(readFields(key));
+        });
+    }
+
+    private static boolean hasLiveFields(Map<String, Field> fields) {
+        final long currentTime = System.currentTimeMillis();
+        return fields != null && fields.values().stream().anyMatch(field -> !field.isExpired(currentTime));
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key, String name) {
+        if (StringUtils.isAnyBlank(key, name))
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        return Mono.fromSupplier(() -> {
+            final Map<String, Field> fields = readFields(key);
+            final Field field = fields == null ? null : fields.get(name);
+            return field != null && !field.isExpired(System.currentTimeMillis());
+        });
+    }
+
+    @Override
+    public Mono<Map<String, String>> hGetAll(String key) {
+        if (StringUtils.isBlank(key))
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        return Mono.fromSupplier(() -> {
+            final Map<String, Field> fields = readFields(key);
+            if (fields == null)
+                return null;
+            final long currentTime = System.currentTimeMillis();
+            final Map<String, String> live = fields.entrySet().stream()
+                    .filter(field -> !field.getValue().isExpired(currentTime))
+                    .collect(Collectors.toMap(Map.Entry::getKey, field -> field.getValue().value()));
+            return live.isEmpty() ? null : live;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hDelete(String key, String name) {
+        if (StringUtils.isAnyBlank(key, name))
+            return Mono.just(false);
+        return Mono.fromSupplier(() -> {
+            final OffHeapSegment segment = segmentOf(key);
+            return segment.locked(() -> {
+                final OffHeapSegment.Slot slot = segment.slot(key, System.currentTimeMillis());
+                if (slot == null || !slot.hash())
+                    return true;
+                final Map<String, Field> fields = decodeFields(segment.read(slot));
+                fields.remove(name);
+                if (fields.isEmpty()) {
+                    segment.remove(key);
+                } else {
+                    segment.write(key, encodeFields(fields), slot.expiresAt(), true);
+                }
+                return true;
+            });
+        });
+    }
+
+    @Override
+    public Mono<Boolean> hDelete(String key) {
+        return Mono.fromSupplier(() -> {
+            if (StringUtils.isBlank(key))
+                throw new InvalidKeyException(ERROR_KEY_MSG);
+            final OffHeapSegment segment = segmentOf(key);
+            return segment.locked(() -> {
+                final OffHeapSegment.Slot slot = segment.slot(key, System.currentTimeMillis());
+                if (slot != null && slot.hash())
+                    segment.remove(key);
+                return true;
+            });
+        });
+    }
+
+    /**
+     * @return number of keys held, including hashes.
+     */
+    public long size() {
+        long size = 0;
+        for (OffHeapSegment segment : segments) {
+            size += segment.locked(segment::size);
+        }
+        return size;
+    }
+
+    /**
+     * @return bytes of direct memory taken by the values held.
+     */
+    public long usedBytes() {
+        long used = 0;
+        for (OffHeapSegment segment : segments) {
+            used += segment.locked(segment::usedBytes);
+        }
+        return used;
+    }
+
+    /**
+     * @return number of keys dropped, either because their segment was full or they expired.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void putValue(String key, String value, int ttl) {
+        final OffHeapSegment segment = segmentOf(key);
+        if (value == null) {
+            segment.locked(() -> segment.remove(key));
+            return;
+        }
+        final byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        final long expiresAt = expiresAt(ttl);
+        segment.locked(() -> {
+            segment.write(key, data, expiresAt, false);
+            return true;
+        });
+    }
+
+    private String readValue(String key) {
+        final OffHeapSegment segment = segmentOf(key);
+        final byte[] data = segment.locked(() -> {
+            final OffHeapSegment.Slot slot = segment.slot(key, System.currentTimeMillis());
+            return (slot == null || slot.hash()) ? null : segment.read(slot);
+        });
+        return data == null ? null : new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds/updates fields of the hash stored under key. Each field keeps its own expiration, while the hash itself
+     * expires with its longest living field.
+     */
+    private void putFields(String key, Map<String, String> values, int ttl) {
+        putFields(key, values, ttl, fields -> false);
+    }
+
+    /*
+     * Puts the fields under the segment lock, unless the live key is to be kept as it is. The fields of the key are
+     * handed to keep, or null when it holds something else than a hash.
+     */
+    private boolean putFields(String key, Map<String, String> values, int ttl, Predicate<Map<String, Field>> keep) {
+        final long fieldExpiresAt = expiresAt(ttl);
+        final OffHeapSegment segment = segmentOf(key);
+        return segment.locked(() -> {
+            final OffHeapSegment.Slot slot = segment.slot(key, System.currentTimeMillis());
+            if (slot != null && keep.test(slot.hash() ? decodeFields(segment.read(slot)) : null)) {
+                return false;
+            }
+            Map<String, Field> fields;
+            long expiresAt;
+            if (slot == null || !slot.hash()) {
+                fields = new LinkedHashMap<>();
+                expiresAt = 0;
+            } else {
+                fields = decodeFields(segment.read(slot));
+                expiresAt = slot.expiresAt();
+            }
+            values.forEach((name, value) -> fields.put(name, new Field(value, fieldExpiresAt)));
+            segment.write(key, encodeFields(fields), Math.max(expiresAt, fieldExpiresAt), true);
+            return true;
+        });
+    }
+
+    private Map<String, Field> readFields(String key) {
+        final OffHeapSegment segment = segmentOf(key);
+        final byte[] data = segment.locked(() -> {
+            final OffHeapSegment.Slot slot = segment.slot(key, System.currentTimeMillis());
+            return (slot == null || !slot.hash()) ? null : segment.read(slot);
+        });
+        return data == null ? null : decodeFields(data);
+    }
+
+    private OffHeapSegment.Slot liveSlot(String key) {
+        final OffHeapSegment segment = segmentOf(key);
+        return segment.locked(() -> segment.slot(key, System.currentTimeMillis()));
+    }
+
+    private boolean removeEntry(String key) {
+        final OffHeapSegment segment = segmentOf(key);
+        return segment.locked(() -> segment.remove(key));
+    }
+
+    private OffHeapSegment segmentOf(String key) {
+        // spreads the hash bits, as HashMap does, before picking a segment
+        final int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    private long expiresAt(int ttl) {
+        return System.currentTimeMillis() + expirations.compute(ttl) * 1_000L;
+    }
+
+    // count, then for each field: name length, name, expiration, value length, value
+    private static byte[] encodeFields(Map<String, Field> fields) {
+        final List<byte[]> names = new ArrayList<>(fields.size());
+        final List<byte[]> values = new ArrayList<>(fields.size());
+        int size = Integer.BYTES;
+        for (Map.Entry<String, Field> field : fields.entrySet()) {
+            names.add(field.getKey().getBytes(StandardCharsets.UTF_8));
+            values.add(field.getValue().value().getBytes(StandardCharsets.UTF_8));
+            size += Integer.BYTES * 2 + Long.BYTES + names.get(names.size() - 1).length
+                    + values.get(values.size() - 1).length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size).putInt(fields.size());
+        int i = 0;
+        for (Field field : fields.values()) {
+            buffer.putInt(names.get(i).length).put(names.get(i))
+                    .putLong(field.expiresAt())
+                    .putInt(values.get(i).length).put(values.get(i));
+            i++;
+        }
+        return buffer.array();
+    }
+
+    private static Map<String, Field> decodeFields(byte[] data) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        final int count = buffer.getInt();
+        final Map<String, Field> fields = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String name = readString(buffer);
+            final long expiresAt = buffer.getLong();
+            fields.put(name, new Field(readString(buffer), expiresAt));
+        }
+        return fields;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Field(String value, long expiresAt) {
+        boolean isExpired(long timestamp) {
+            return timestamp > this.expiresAt;
+        }
+    }
+
+    public static final class Builder {
+        // direct buffers are indexed by int, slabs stay well below that
+        private static final int MAX_SLAB_SIZE = 64 * 1024 * 1024;
+
+        private int expireAfter = -1; // seconds
+        private long maxBytes = 64L * 1024 * 1024;
+        private int blockSize = 128;
+        private int segments = 16;
+        private double ttlJitter = 0;
+
+        public Builder expireAfter(int seconds) {
+            this.expireAfter = seconds;
+            return this;
+        }
+
+        /**
+         * @param bytes direct memory the stash may take, split evenly among its segments
+         * @return this builder
+         */
+        public Builder maxBytes(long bytes) {
+            this.maxBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Size of the blocks values are stored in, each one taking whole blocks. Smaller blocks waste less memory on
+         * small values, larger ones make reading large values cheaper.
+         * @param bytes block size, at least 16
+         * @return this builder
+         */
+        public Builder blockSize(int bytes) {
+            this.blockSize = Math.max(16, bytes);
+            return this;
+        }
+
+        /**
+         * @param count number of independently locked segments keys are spread over
+         * @return this builder
+         */
+        public Builder segments(int count) {
+            this.segments = Math.max(1, count);
+            return this;
+        }
+
+        /**
+         * Randomly shortens each key ttl by up to the given fraction (eg. 0.1 for 10%), to spread out the
+         * expiration of keys saved at the same time.
+         * @param fraction value between 0 (no jitter) and 1
+         * @return this builder
+         */
+        public Builder ttlJitter(double fraction) {
+            this.ttlJitter = Math.max(0, Math.min(fraction, 1));
+            return this;
+        }
+
+        public OffHeapStash build() {
+            return new OffHeapStash(this);
+        }
+    }
+}
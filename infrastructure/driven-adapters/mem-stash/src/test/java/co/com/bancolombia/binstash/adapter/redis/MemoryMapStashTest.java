@@ -8,12 +8,10 @@ import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -115,6 +113,54 @@ class MemoryMapStashTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("Should check hashes and fields exist")
+    void testHashExists() {
+        StepVerifier.create(stash.hSave("h32", "email", "pparker@avengers.com", 1)
+                        .then(stash.hExists("h32").zipWith(stash.hExists("h32", "email"))))
+                .expectNextMatches(result -> result.getT1() && result.getT2())
+                .verifyComplete();
+
+        StepVerifier.create(stash.hExists("h32", "location").zipWith(stash.hExists("h33")))
+                .expectNextMatches(result -> !result.getT1() && !result.getT2())
+                .verifyComplete();
+
+        // string values are not hashes, though any live key exists, as in redis
+        StepVerifier.create(stash.save("s32", "value").then(stash.hExists("s32")).zipWith(stash.exists("h32")))
+                .expectNextMatches(result -> !result.getT1() && result.getT2())
+                .verifyComplete();
+
+        StepVerifier.create(stash.hExists("h32", null))
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should save hashes and fields only if absent")
+    void testSaveHashIfAbsent() {
+        StepVerifier.create(stash.hSaveIfAbsent("h40", demoMap, 1)
+                        .zipWith(stash.hSaveIfAbsent("h40", Map.of("name", "Miles"), 1)))
+                .expectNextMatches(saved -> saved.getT1() && !saved.getT2())
+                .verifyComplete();
+
+        StepVerifier.create(stash.hSaveIfAbsent("h40", "name", "Miles", 1)
+                        .zipWith(stash.hSaveIfAbsent("h40", "city", "NY", 1))
+                        .zipWith(stash.hGetAll("h40")))
+                .expectNextMatches(result -> !result.getT1().getT1() && result.getT1().getT2()
+                        && Map.of("name", "Peter", "lastName", "Parker", "city", "NY").equals(result.getT2()))
+                .verifyComplete();
+
+        // expired hashes count as absent
+        StepVerifier.create(Mono.delay(Duration.ofMillis(1_500))
+                        .then(stash.hSaveIfAbsent("h40", Map.of("name", "Miles"), 1)))
+                .expectNext(true)
+                .verifyComplete();
+
+        StepVerifier.create(stash.hSaveIfAbsent(null, demoMap, 1))
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
     @Test
     @DisplayName("Should get hash map")
     void testGetHashMap() {
@@ -186,13 +232,51 @@ class MemoryMapStashTest {
         Mono<Set<String>> keysMono = stash.hSave("h6", demoMap)
                 .then(stash.keySet());
 
-        List<String> expectedKeys = demoMap.keySet().stream()
-                .map(key -> "h6#"+key)
-                .collect(Collectors.toList());
-
         StepVerifier.create(keysMono)
                 .expectSubscription()
-                .expectNext(new HashSet<>(expectedKeys))
+                .expectNext(Set.of("h6"))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should expire map fields independently")
+    void testFieldExpiration() {
+        MemoryStash stash2 = new MemoryStash.Builder()
+                .expireAfter(5)
+                .maxSize(10)
+                .build();
+        Mono<Map<String, String>> op = stash2.hSave("h7", "name", "Peter", 1)
+                .then(stash2.hSave("h7", "lastName", "Parker", 3))
+                .delayElement(Duration.ofMillis(1500))
+                .then(stash2.hGetAll("h7"));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext(Map.of("lastName", "Parker"))
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash2.hGet("h7", "name"))
+                .expectSubscription()
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should not mix maps and single values")
+    void testMapIsNotAValue() {
+        Mono<String> op = stash.hSave("h8", demoMap)
+                .then(stash.get("h8"));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.save("v8", "value").then(stash.hDelete("v8")).then(stash.get("v8")))
+                .expectSubscription()
+                .expectNext("value")
                 .expectComplete()
                 .verify();
     }
@@ -5,18 +5,27 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -85,6 +94,26 @@ class MemoryStringStashTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("Should save element only if absent")
+    void testSaveIfAbsent() {
+        StepVerifier.create(stash.saveIfAbsent(TEST_KEY, TEST_VALUE, 1))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(stash.saveIfAbsent(TEST_KEY, "other", 1).zipWith(stash.get(TEST_KEY)))
+                .expectNextMatches(result -> !result.getT1() && TEST_VALUE.equals(result.getT2()))
+                .verifyComplete();
+        assertEquals(Set.of(TEST_KEY), stash.keySet().block());
+
+        // an expired key is absent
+        StepVerifier.create(Mono.delay(Duration.ofMillis(1_500)).then(stash.saveIfAbsent(TEST_KEY, "other", 1)))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(stash.saveObjectIfAbsent(TEST_KEY, List.of(1), 1))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("Should not save with null key")
     void testSaveWithNullKey() {
@@ -138,6 +167,33 @@ class MemoryStringStashTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("Should reclaim expired elements without reading them")
+    void testExpiredReclaimed() {
+        Flux.range(1, 5)
+                .concatMap(i -> stash.save("key" + i, TEST_VALUE))
+                .blockLast();
+
+        // the scheduler drops each entry when it expires, no read needed
+        StepVerifier.create(Mono.fromSupplier(stash::size)
+                        .filter(size -> size == 0)
+                        .repeatWhenEmpty(50, attempts -> attempts.delayElements(Duration.ofMillis(100))))
+                .expectNext(0L)
+                .verifyComplete();
+        assertTrue(stash.evictionCount() >= 5);
+    }
+
+    @Test
+    @DisplayName("Should cap key ttl at expireAfter")
+    void testTtlCappedAtExpireAfter() {
+        Mono<Duration> op = stash.save(TEST_KEY, TEST_VALUE, 60)
+                .then(stash.expiresIn(TEST_KEY));
+
+        StepVerifier.create(op)
+                .expectNextMatches(left -> left.compareTo(Duration.ofSeconds(1)) <= 0)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("Should save, evict, then try to get element")
     void testPutEvictGet() {
@@ -175,6 +231,47 @@ class MemoryStringStashTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("Should get time left before key expires")
+    void testExpiresIn() {
+        Mono<Duration> op = stash.save(TEST_KEY, TEST_VALUE)
+                .then(stash.expiresIn(TEST_KEY));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNextMatches(left -> !left.isNegative() && left.compareTo(Duration.ofSeconds(1)) <= 0)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.expiresIn("unexistent-key"))
+                .expectSubscription()
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should spread out expiration with ttl jitter")
+    void testTtlJitter() {
+        MemoryStash jitteredStash = new MemoryStash.Builder()
+                .expireAfter(1000)
+                .maxSize(100)
+                .ttlJitter(0.5)
+                .build();
+
+        Mono<Set<Long>> op = Flux.range(0, 50)
+                .concatMap(i -> jitteredStash.save("key" + i, TEST_VALUE, 1000)
+                        .then(jitteredStash.expiresIn("key" + i)))
+                .map(Duration::toSeconds)
+                .collect(Collectors.toSet());
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNextMatches(lefts -> lefts.size() > 1 &&
+                        lefts.stream().allMatch(left -> left >= 499 && left <= 1000))
+                .expectComplete()
+                .verify();
+    }
+
 
     @Test
     @DisplayName("Should handle null key on evit")
@@ -238,6 +335,188 @@ class MemoryStringStashTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("Should evict entries once the estimated bytes exceed maxBytes")
+    void testMaxBytes() {
+        MemoryStash stash2 = new MemoryStash.Builder()
+                .expireAfter(10)
+                .maxBytes(4_096)
+                .build();
+        String value = "x".repeat(512);
+
+        Flux.range(1, 50)
+                .concatMap(i -> stash2.save("key:" + i, value))
+                .blockLast();
+
+        assertTrue(stash2.isWeighted());
+        // caffeine evicts asynchronously, right after the writes
+        StepVerifier.create(Mono.fromSupplier(stash2::weightedSize)
+                        .filter(size -> size <= 4_096)
+                        .repeatWhenEmpty(50, attempts -> attempts.delayElements(Duration.ofMillis(100))))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertTrue(stash2.weightedSize() > 0);
+        assertTrue(stash2.size() < 50);
+        assertTrue(stash2.evictionCount() > 0);
+        assertFalse(stash.isWeighted());
+    }
+
+    @Test
+    @DisplayName("Should warm up from the snapshot of another stash")
+    void testSnapshot(@TempDir Path dir) {
+        Path file = dir.resolve("stash.snapshot");
+        MemoryStash source = new MemoryStash.Builder()
+                .expireAfter(60)
+                .build();
+        source.save("k1", TEST_VALUE, 30)
+                .then(source.save("short", TEST_VALUE, 1))
+                .then(source.hSave("h1", Map.of("name", "Peter")))
+                .then(source.saveObject("o1", List.of(1, 2), 30))
+                .block();
+
+        // the object can't be written
+        StepVerifier.create(source.saveSnapshot(file))
+                .expectNext(3)
+                .verifyComplete();
+
+        MemoryStash target = new MemoryStash.Builder()
+                .expireAfter(60)
+                .build();
+        StepVerifier.create(target.save("k1", "newer")
+                        .then(Mono.delay(Duration.ofMillis(1_100)))
+                        .then(target.loadSnapshot(file)))
+                .expectNext(2)
+                .verifyComplete();
+
+        StepVerifier.create(target.mGet(List.of("k1", "short")))
+                .expectNext(Map.of("k1", "newer"))
+                .verifyComplete();
+        StepVerifier.create(target.hGetAll("h1"))
+                .expectNext(Map.of("name", "Peter"))
+                .verifyComplete();
+        StepVerifier.create(target.keys("h*", -1))
+                .expectNext("h1")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should write whole snapshots when saved concurrently")
+    void testConcurrentSnapshots(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("stash.snapshot");
+        MemoryStash source = new MemoryStash.Builder()
+                .expireAfter(60)
+                .build();
+        Flux.range(0, 1_000)
+                .flatMap(i -> source.save("k" + i, TEST_VALUE + i))
+                .blockLast();
+
+        StepVerifier.create(Flux.range(0, 8)
+                        .flatMap(i -> source.saveSnapshot(file))
+                        .all(written -> written == 1_000))
+                .expectNext(true)
+                .verifyComplete();
+
+        MemoryStash target = new MemoryStash.Builder()
+                .expireAfter(60)
+                .build();
+        StepVerifier.create(target.loadSnapshot(file))
+                .expectNext(1_000)
+                .verifyComplete();
+        // temporary files are gone
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should save a snapshot when closed, and load it when built")
+    void testSnapshotLifecycle(@TempDir Path dir) {
+        String file = dir.resolve("stash.snapshot").toString();
+        MemoryStash first = new MemoryStash.Builder()
+                .expireAfter(60)
+                .snapshotFile(file)
+                .build();
+        first.save(TEST_KEY, TEST_VALUE).block();
+        first.close();
+
+        MemoryStash second = new MemoryStash.Builder()
+                .expireAfter(60)
+                .snapshotFile(file)
+                .build();
+        // loaded in background
+        StepVerifier.create(second.get(TEST_KEY)
+                        .repeatWhenEmpty(50, attempts -> attempts.delayElements(Duration.ofMillis(100))))
+                .expectNext(TEST_VALUE)
+                .verifyComplete();
+        second.close();
+    }
+
+    @Test
+    @DisplayName("Should get keys given a prefix or glob pattern")
+    void testGetKeysGlobPattern() {
+        MemoryStash stash2 = new MemoryStash.Builder()
+                .expireAfter(10)
+                .maxSize(100)
+                .build();
+        Flux.range(1, 20)
+                .flatMap(i -> stash2.save("session:" + i, TEST_VALUE))
+                .then(stash2.save("sessions", TEST_VALUE))
+                .then(stash2.save("user.1", TEST_VALUE))
+                .then(stash2.save("userx1", TEST_VALUE))
+                .block();
+
+        StepVerifier.create(stash2.keys("session:*", 5))
+                .expectSubscription()
+                .expectNextCount(5)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash2.keys("session:*", -1))
+                .expectSubscription()
+                .expectNextCount(20)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash2.keys("session:1?", -1))
+                .expectSubscription()
+                .expectNextCount(10)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash2.keys("*s", -1))
+                .expectSubscription()
+                .expectNext("sessions")
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash2.keys("user.1", -1))
+                .expectSubscription()
+                .expectNext("user.1")
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash2.keys("user[a-z]1", -1))
+                .expectSubscription()
+                .expectNext("userx1")
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should not get evicted keys given a pattern")
+    void testGetKeysPatternAfterEvict() {
+        Flux<String> op = stash.save("session:1", TEST_VALUE)
+                .then(stash.save("session:2", TEST_VALUE))
+                .then(stash.evict("session:1"))
+                .thenMany(stash.keys("session:*", -1));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext("session:2")
+                .expectComplete()
+                .verify();
+    }
+
     @Test
     @DisplayName("Should save element with indexKey and retrieve it")
     void testSSaveAndSetGetAll() {
@@ -330,4 +609,66 @@ class MemoryStringStashTest {
                 .expectErrorMessage("Caching key cannot be null")
                 .verify();
     }
+
+    @Test
+    @DisplayName("Should save, get and evict several elements in batch")
+    void testMultiKeyOperations() {
+        Mono<Map<String, String>> op = stash.mSave(Map.of("k1", "v1", "k2", "v2"))
+                .then(stash.mGet(List.of("k1", "k2", "k3")));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext(Map.of("k1", "v1", "k2", "v2"))
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.mEvict(List.of("k1", "k3")).then(stash.mGet(List.of("k1", "k2"))))
+                .expectSubscription()
+                .expectNext(Map.of("k2", "v2"))
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.mEvict(List.of("k3")))
+                .expectSubscription()
+                .expectNext(false)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.mGet(Arrays.asList("k1", null)))
+                .expectSubscription()
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should hold objects as they are, apart from strings")
+    void testObjects() {
+        List<String> value = List.of("Peter", "Parker");
+
+        StepVerifier.create(stash.saveObject("obj1", value, 10)
+                        .then(stash.getObject("obj1")))
+                .expectNextMatches(found -> found == value)
+                .verifyComplete();
+
+        StepVerifier.create(stash.get("obj1").then(stash.exists("obj1")))
+                .expectNext(true)
+                .verifyComplete();
+
+        StepVerifier.create(stash.save(TEST_KEY, TEST_VALUE).then(stash.getObject(TEST_KEY)))
+                .verifyComplete();
+
+        StepVerifier.create(stash.mSaveObjects(Map.of("obj2", 2), 10)
+                        .then(stash.mGetObjects(List.of("obj1", "obj2", TEST_KEY))))
+                .expectNext(Map.of("obj1", value, "obj2", 2))
+                .verifyComplete();
+
+        StepVerifier.create(stash.setSaveObject("objects", "obj3", 3, 10)
+                        .thenMany(stash.setGetAllObjects("objects")))
+                .expectNext(3)
+                .verifyComplete();
+
+        StepVerifier.create(stash.saveObject("obj4", null, 10))
+                .expectError()
+                .verify();
+    }
 }
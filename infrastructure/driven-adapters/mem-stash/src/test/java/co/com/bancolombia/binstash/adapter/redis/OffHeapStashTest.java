@@ -0,0 +1,225 @@
+package co.com.bancolombia.binstash.adapter.redis;
+
+import co.com.bancolombia.binstash.adapter.memory.OffHeapStash;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapStashTest {
+
+    private static final String TEST_KEY = "key1";
+    private static final String TEST_VALUE = "Hello World";
+
+    private OffHeapStash stash;
+
+    @BeforeEach
+    void prepare() {
+        stash = new OffHeapStash.Builder()
+                .expireAfter(1)
+                .maxBytes(1024 * 1024)
+                .segments(4)
+                .build();
+    }
+
+    @AfterEach
+    void clean() {
+        stash.evictAll().block();
+    }
+
+    @Test
+    @DisplayName("Should save, get and evict elements")
+    void testSaveGetEvict() {
+        StepVerifier.create(stash.save(TEST_KEY, TEST_VALUE).then(stash.get(TEST_KEY)))
+                .expectNext(TEST_VALUE)
+                .verifyComplete();
+
+        StepVerifier.create(stash.exists(TEST_KEY))
+                .expectNext(true)
+                .verifyComplete();
+
+        StepVerifier.create(stash.evict(TEST_KEY).then(stash.get(TEST_KEY)))
+                .verifyComplete();
+
+        StepVerifier.create(stash.save(null, TEST_VALUE))
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should save elements only if absent")
+    void testSaveIfAbsent() {
+        StepVerifier.create(stash.saveIfAbsent(TEST_KEY, TEST_VALUE, 1))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(stash.saveIfAbsent(TEST_KEY, "other", 1).then(stash.get(TEST_KEY)))
+                .expectNext(TEST_VALUE)
+                .verifyComplete();
+        StepVerifier.create(Mono.delay(Duration.ofMillis(1_500)).then(stash.saveIfAbsent(TEST_KEY, "other", 1)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should store values spanning several blocks")
+    void testLargeValues() {
+        String value = "\u00f1and\u00fa ".repeat(1_000);
+
+        StepVerifier.create(stash.save(TEST_KEY, value).then(stash.get(TEST_KEY)))
+                .expectNext(value)
+                .verifyComplete();
+
+        // replacing a value reuses the blocks freed
+        long used = stash.usedBytes();
+        StepVerifier.create(stash.save(TEST_KEY, value).then(stash.get(TEST_KEY)))
+                .expectNext(value)
+                .verifyComplete();
+        assertEquals(used, stash.usedBytes());
+    }
+
+    @Test
+    @DisplayName("Should save then get several elements in batch")
+    void testBatch() {
+        Map<String, String> values = Map.of("k1", "v1", "k2", "v2");
+
+        StepVerifier.create(stash.mSave(values).then(stash.mGet(List.of("k1", "k2", "k3"))))
+                .expectNext(values)
+                .verifyComplete();
+
+        StepVerifier.create(stash.mEvict(List.of("k1", "k2")).then(stash.keySet()))
+                .expectNext(Set.of())
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should expire each element at its own time")
+    void testExpire() {
+        Mono<String> op = stash.save(TEST_KEY, TEST_VALUE)
+                .delayElement(Duration.ofMillis(1_500))
+                .then(stash.get(TEST_KEY));
+
+        StepVerifier.create(op)
+                .verifyComplete();
+
+        StepVerifier.create(stash.save(TEST_KEY, TEST_VALUE, 60).then(stash.expiresIn(TEST_KEY)))
+                .expectNextMatches(left -> left.compareTo(Duration.ofSeconds(1)) <= 0)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used elements when full")
+    void testLruEviction() {
+        OffHeapStash small = new OffHeapStash.Builder()
+                .maxBytes(4 * 1024)
+                .blockSize(64)
+                .segments(1)
+                .build();
+        String value = "x".repeat(500);
+
+        small.save("first", value).block();
+        Flux.range(1, 8)
+                .concatMap(i -> small.save("key" + i, value)
+                        // keeps the first key in use
+                        .then(small.get("first")))
+                .blockLast();
+
+        StepVerifier.create(small.get("first"))
+                .expectNext(value)
+                .verifyComplete();
+        StepVerifier.create(small.get("key1"))
+                .verifyComplete();
+        assertTrue(small.evictionCount() > 0);
+        assertTrue(small.usedBytes() <= 4 * 1024);
+
+        // values larger than a segment are not stored
+        StepVerifier.create(small.save("large", "x".repeat(5_000)).then(small.get("large")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should get keys given a pattern")
+    void testKeys() {
+        Flux.range(1, 12)
+                .concatMap(i -> stash.save("session:" + i, TEST_VALUE))
+                .then(stash.save("user.1", TEST_VALUE))
+                .block();
+
+        StepVerifier.create(stash.keys("session:1?", -1))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        StepVerifier.create(stash.keys("session:*", 5))
+                .expectNextCount(5)
+                .verifyComplete();
+
+        StepVerifier.create(stash.keySet())
+                .expectNextMatches(keys -> keys.size() == 13)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should save, get and delete hashes")
+    void testHashes() {
+        Map<String, String> demoMap = Map.of("name", "Peter", "lastName", "Parker");
+
+        StepVerifier.create(stash.hSave("h1", demoMap)
+                        .then(stash.hSave("h1", "location", "NJ"))
+                        .then(stash.hGetAll("h1")))
+                .expectNext(Map.of("name", "Peter", "lastName", "Parker", "location", "NJ"))
+                .verifyComplete();
+
+        StepVerifier.create(stash.hGet("h1", "name"))
+                .expectNext("Peter")
+                .verifyComplete();
+
+        StepVerifier.create(stash.hExists("h1").zipWith(stash.hExists("h1", "location")))
+                .expectNext(Tuples.of(true, true))
+                .verifyComplete();
+
+        // a hash is not a string value
+        StepVerifier.create(stash.get("h1"))
+                .verifyComplete();
+
+        StepVerifier.create(stash.hDelete("h1", "name").then(stash.hGet("h1", "name")))
+                .verifyComplete();
+
+        StepVerifier.create(stash.hDelete("h1").then(stash.hGetAll("h1")))
+                .verifyComplete();
+
+        StepVerifier.create(stash.hExists("h1").zipWith(stash.hExists("h1", "location")))
+                .expectNext(Tuples.of(false, false))
+                .verifyComplete();
+
+        StepVerifier.create(stash.hSave("h1", Map.of()))
+                .expectErrorMessage("Caching empty or null value not allowed")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should save, get and remove set members")
+    void testSets() {
+        StepVerifier.create(stash.setSave("set1", "k1", "v1")
+                        .then(stash.setSave("set1", "k2", "v2"))
+                        .thenMany(stash.setGetAll("set1"))
+                        .collectList()
+                        .map(Set::copyOf))
+                .expectNext(Set.of("v1", "v2"))
+                .verifyComplete();
+
+        StepVerifier.create(stash.setRemove("set1", "k1").thenMany(stash.setGetAll("set1")))
+                .expectNext("v2")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,265 @@
+package co.com.bancolombia.binstash.adapter.redis;
+
+import co.com.bancolombia.binstash.model.InvalidKeyException;
+import co.com.bancolombia.binstash.model.api.BinaryStash;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.SetArgs;
+import org.apache.commons.lang3.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>BinaryStash</pre> over connections with a <pre>ByteArrayCodec</pre> for values, so they are written to and read
+ * from Redis as given, without a <pre>String</pre> in between.
+ */
+public class RedisBinaryStash implements BinaryStash {
+
+    private static final String ERROR_KEY_MSG = "Caching key cannot be null";
+    private static final String INVALID_PATTERN_MSG = "Invalid pattern for keys";
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int MAX_CONCURRENT_BATCHES = 4;
+
+    private final RedisConnections<byte[]> connections;
+    private final RedisConnections<byte[]> primaryConnections;
+
+    private final int expireAfter;
+    private final int batchSize;
+    private final RedisTtl expirations;
+
+    RedisBinaryStash(RedisConnections<byte[]> connections, RedisProperties properties) {
+        this(connections, null, properties);
+    }
+
+    /**
+     * @param connections connections for every command
+     * @param primaryConnections connections to the master, for reads that must see the latest writes, or null to use
+     *                           the regular ones
+     * @param properties redis properties
+     */
+    RedisBinaryStash(RedisConnections<byte[]> connections, RedisConnections<byte[]> primaryConnections,
+                     RedisProperties properties) {
+        this.connections = connections;
+        this.primaryConnections = primaryConnections == null ? connections : primaryConnections;
+        this.expireAfter = properties.getExpireTime();
+        this.batchSize = properties.getBatchSize() > 0 ? properties.getBatchSize() : DEFAULT_BATCH_SIZE;
+        this.expirations = new RedisTtl(properties);
+    }
+
+    @Override
+    public Mono<byte[]> save(String key, byte[] value, int ttl) {
+        if (StringUtils.isBlank(key) || isEmpty(value)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return connections.mono(commands -> commands.set(key, value, SetArgs.Builder.ex(computeTtl(ttl))))
+                    .map(r -> value);
+        }
+    }
+
+    @Override
+    public Mono<byte[]> save(String key, byte[] value) {
+        return save(key, value, this.expireAfter);
+    }
+
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, byte[] value, int ttl) {
+        if (StringUtils.isBlank(key) || isEmpty(value)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // SET NX replies nothing when the key already exists
+            return connections.mono(commands -> commands.set(key, value,
+                            SetArgs.Builder.ex(computeTtl(ttl)).nx()))
+                    .map(r -> true)
+                    .defaultIfEmpty(false);
+        }
+    }
+
+    @Override
+    public Mono<Map<String, byte[]>> mSave(Map<String, byte[]> values, int ttl) {
+        if (values == null || values.entrySet().stream()
+                .anyMatch(entry -> StringUtils.isBlank(entry.getKey()) || isEmpty(entry.getValue()))) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // commands are written to the connection without awaiting previous replies, so lettuce pipelines them
+            return connections.flux(commands -> Flux.fromIterable(values.entrySet())
+                            .flatMap(entry -> commands.set(entry.getKey(), entry.getValue(),
+                                    SetArgs.Builder.ex(computeTtl(ttl)))))
+                    .then(Mono.just(values));
+        }
+    }
+
+    @Override
+    public Mono<Map<String, byte[]>> mSave(Map<String, byte[]> values) {
+        return mSave(values, this.expireAfter);
+    }
+
+    @Override
+    public Mono<byte[]> get(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return connections.mono(commands -> commands.get(key));
+        }
+    }
+
+    @Override
+    public Mono<Map<String, byte[]>> mGet(Collection<String> keys) {
+        if (keys == null || keys.stream().anyMatch(StringUtils::isBlank)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else if (keys.isEmpty()) {
+            return Mono.just(new HashMap<>());
+        } else {
+            return connections.flux(commands -> commands.mget(keys.toArray(new String[0])))
+                    .filter(KeyValue::hasValue)
+                    .collectMap(KeyValue::getKey, KeyValue::getValue);
+        }
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return connections.bulk(commands -> commands.keys("*")).collectList()
+                .map(HashSet::new);
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        if (StringUtils.isBlank(pattern)) {
+            return Flux.error(new IllegalArgumentException(INVALID_PATTERN_MSG));
+        }
+        return connections.scan(pattern, limit);
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        }
+        // checked right after writes, so it is read from the master when replicas may lag behind
+        return primaryConnections.mono(commands -> commands.exists(key))
+                .map(count -> count > 0);
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // negative replies stand for missing keys (-2) or keys without expiration (-1)
+            return connections.mono(commands -> commands.pttl(key))
+                    .filter(millis -> millis >= 0)
+                    .map(Duration::ofMillis);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> evict(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return connections.mono(commands -> commands.del(key))
+                    .map(num -> num > 0);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        if (keys == null || keys.stream().anyMatch(StringUtils::isBlank)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else if (keys.isEmpty()) {
+            return Mono.just(false);
+        } else {
+            return connections.mono(commands -> commands.del(keys.toArray(new String[0])))
+                    .map(num -> num > 0);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> evictAll() {
+        // on cluster connections FLUSHDB is sent to every master
+        return connections.mono(commands -> commands.flushdb())
+                .map(reply -> true);
+    }
+
+    @Override
+    public Mono<byte[]> setSave(String indexKey, String key, byte[] value, int ttl) {
+        if (StringUtils.isAnyBlank(indexKey, key) || isEmpty(value)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return connections.mono(commands -> commands.set(key, value, SetArgs.Builder.ex(computeTtl(ttl)))
+                            .flatMap(r -> commands.sadd(indexKey, asMember(key))))
+                    .map(r -> value);
+        }
+    }
+
+    @Override
+    public Mono<byte[]> setSave(String indexKey, String key, byte[] value) {
+        return this.setSave(indexKey, key, value, this.expireAfter);
+    }
+
+    @Override
+    public Flux<byte[]> setGetAll(String indexKey) {
+        if (StringUtils.isBlank(indexKey)) {
+            return Flux.error(new InvalidKeyException(ERROR_KEY_MSG));
+        }
+        return Flux.defer(() -> {
+            final List<String> dangling = new ArrayList<>();
+            return connections.bulk(commands -> commands.smembers(indexKey))
+                    .map(RedisBinaryStash::asKey)
+                    .buffer(batchSize)
+                    .flatMapSequential(members -> connections.flux(commands ->
+                                    commands.mget(members.toArray(new String[0]))),
+                            MAX_CONCURRENT_BATCHES)
+                    .filter(keyValue -> {
+                        if (!keyValue.hasValue()) {
+                            dangling.add(keyValue.getKey());
+                        }
+                        return keyValue.hasValue();
+                    })
+                    .map(KeyValue::getValue)
+                    .concatWith(Mono.defer(() -> dangling.isEmpty() ? Mono.empty() :
+                            connections.mono(commands -> commands.srem(indexKey, dangling.stream()
+                                            .map(RedisBinaryStash::asMember).toArray(byte[][]::new)))
+                                    .then(Mono.empty())));
+        });
+    }
+
+    @Override
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        if (StringUtils.isAnyBlank(indexKey, key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return connections.mono(commands -> commands.srem(indexKey, asMember(key))
+                            .filter(result -> result == 1)
+                            .flatMap(unused -> commands.del(key)))
+                    .map(count -> count == 1)
+                    .defaultIfEmpty(Boolean.FALSE);
+        }
+    }
+
+    private int computeTtl(int candidateTtl) {
+        return expirations.compute(candidateTtl);
+    }
+
+    // set members are keys of other entries, kept as values by the codec, so they are encoded as keys are
+    private static byte[] asMember(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String asKey(byte[] member) {
+        return new String(member, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isEmpty(byte[] value) {
+        return value == null || value.length == 0;
+    }
+}
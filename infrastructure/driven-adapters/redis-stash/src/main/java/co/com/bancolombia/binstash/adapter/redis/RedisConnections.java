@@ -0,0 +1,153 @@
+package co.com.bancolombia.binstash.adapter.redis;
+
+import co.com.bancolombia.binstash.adapter.redis.RedisProperties.Pool.Selection;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Set of multiplexed connections a <pre>RedisStash</pre> spreads its commands over, so a large reply doesn't hold
+ * back every other command queued on the same connection. Commands replying with whole collections (KEYS, SCAN,
+ * HGETALL, SMEMBERS) can go through a dedicated bulk connection, keeping them apart from point reads and writes.
+ * <p>
+ * Each command (or chain of commands given to a single call) runs on one connection, so they keep their order.
+ * Connections may be standalone, master/replica or cluster ones, the latter routing each command to the node holding
+ * its keys.
+ *
+ * @param <V> type of the values, as given by the codec of the connections
+ */
+class RedisConnections<V> {
+
+    private final List<RedisClusterReactiveCommands<String, V>> connections;
+    private final RedisClusterReactiveCommands<String, V> bulkConnection;
+    private final Selection selection;
+    private final AtomicLong turn = new AtomicLong();
+    private final AtomicInteger[] pending;
+
+    RedisConnections(RedisClusterReactiveCommands<String, V> connection) {
+        this(List.of(connection), null, Selection.ROUND_ROBIN);
+    }
+
+    /**
+     * @param connections connections for regular commands, at least one
+     * @param bulkConnection connection for bulk commands, or null to share the regular ones
+     * @param selection how a regular connection is picked for each command
+     */
+    RedisConnections(List<RedisClusterReactiveCommands<String, V>> connections,
+                     RedisClusterReactiveCommands<String, V> bulkConnection,
+                     Selection selection) {
+        this.connections = List.copyOf(connections);
+        this.bulkConnection = bulkConnection;
+        this.selection = selection == null ? Selection.ROUND_ROBIN : selection;
+        this.pending = new AtomicInteger[this.connections.size()];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * @return any connection, for commands without a server round-trip, like computing script digests.
+     */
+    RedisClusterReactiveCommands<String, V> any() {
+        return connections.get(0);
+    }
+
+    int size() {
+        return connections.size();
+    }
+
+    boolean hasBulkConnection() {
+        return bulkConnection != null;
+    }
+
+    <T> Mono<T> mono(Function<RedisClusterReactiveCommands<String, V>, Mono<T>> command) {
+        if (connections.size() == 1) {
+            return command.apply(connections.get(0));
+        }
+        if (selection == Selection.ROUND_ROBIN) {
+            return Mono.defer(() -> command.apply(nextInTurn()));
+        }
+        return Mono.defer(() -> {
+            final int index = leastLoaded();
+            pending[index].incrementAndGet();
+            return command.apply(connections.get(index))
+                    .doFinally(signal -> pending[index].decrementAndGet());
+        });
+    }
+
+    <T> Flux<T> flux(Function<RedisClusterReactiveCommands<String, V>, Flux<T>> command) {
+        if (connections.size() == 1) {
+            return command.apply(connections.get(0));
+        }
+        if (selection == Selection.ROUND_ROBIN) {
+            return Flux.defer(() -> command.apply(nextInTurn()));
+        }
+        return Flux.defer(() -> {
+            final int index = leastLoaded();
+            pending[index].incrementAndGet();
+            return command.apply(connections.get(index))
+                    .doFinally(signal -> pending[index].decrementAndGet());
+        });
+    }
+
+    /**
+     * Runs commands replying with whole collections, on the bulk connection when there is one.
+     */
+    <T> Flux<T> bulk(Function<RedisClusterReactiveCommands<String, V>, Flux<T>> command) {
+        return bulkConnection == null ? flux(command) : command.apply(bulkConnection);
+    }
+
+    /**
+     * Scans the keys matching a pattern, batch by batch, on the bulk connection when there is one.
+     * @param pattern pattern keys must match
+     * @param limit maximum number of keys to scan, no limit if equal or less than 0
+     */
+    Flux<String> scan(String pattern, int limit) {
+        final ScanArgs scanArgs = new ScanArgs().match(pattern).limit(limit <= 0 ? Long.MAX_VALUE : limit);
+        final int[] emitted = {0};
+        return scanRecursive(ScanCursor.INITIAL, scanArgs, emitted, limit);
+    }
+
+    // the cursor returned by each call is passed as is to the next one, on cluster connections it also tracks
+    // which master is being scanned, so every master is visited
+    private Flux<String> scanRecursive(ScanCursor cursor, ScanArgs scanArgs, int[] emitted, int limit) {
+        return Flux.defer(() ->
+                bulk(commands -> commands.scan(cursor, scanArgs).flux())
+                        .flatMap(scanResult -> {
+                            List<String> keys = scanResult.getKeys();
+                            emitted[0] += keys.size();
+                            Flux<String> currentBatch = Flux.fromIterable(keys);
+                            if (scanResult.isFinished() || (limit > 0 && emitted[0] >= limit)) {
+                                return currentBatch;
+                            }
+                            return currentBatch.concatWith(
+                                    scanRecursive(scanResult, scanArgs, emitted, limit)
+                            );
+                        })
+        );
+    }
+
+    private RedisClusterReactiveCommands<String, V> nextInTurn() {
+        return connections.get((int) Math.floorMod(turn.getAndIncrement(), (long) connections.size()));
+    }
+
+    private int leastLoaded() {
+        // starts from a rotating index, so ties don't always go to the first connection
+        final int start = (int) Math.floorMod(turn.getAndIncrement(), (long) pending.length);
+        int best = start;
+        for (int i = 1; i < pending.length; i++) {
+            final int candidate = (start + i) % pending.length;
+            if (pending[candidate].get() < pending[best].get()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,103 @@
+package co.com.bancolombia.binstash.adapter.redis;
+
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.pubsub.api.reactive.ChannelMessage;
+import io.lettuce.core.pubsub.api.reactive.RedisPubSubReactiveCommands;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Invalidation bus over Redis pub/sub. Each message carries the id of the publishing instance on its first line, so
+ * instances can skip their own messages, followed by the keys, each one prefixed by its length and a colon, as keys
+ * may hold any character.
+ */
+@Log
+public class RedisInvalidationBus implements InvalidationBus {
+
+    private static final String SEPARATOR = "\n";
+    private static final char LENGTH_SEPARATOR = ':';
+    private static final int DEFAULT_MAX_BATCH = 100;
+    private static final Duration EMIT_RETRY = Duration.ofMillis(100);
+    private static final Duration SUBSCRIBE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final String channel;
+    private final Sinks.Many<String> pending = Sinks.many().unicast().onBackpressureBuffer();
+    private final Flux<List<String>> invalidations;
+
+    RedisInvalidationBus(RedisReactiveCommands<String, String> commands,
+                         RedisPubSubReactiveCommands<String, String> pubSubCommands,
+                         RedisProperties properties) {
+        this.channel = properties.getInvalidationChannel();
+        final Duration window = Duration.ofMillis(Math.max(1, properties.getInvalidationWindow()));
+        pending.asFlux()
+                .bufferTimeout(DEFAULT_MAX_BATCH, window)
+                .concatMap(keys -> commands.publish(channel, encode(keys))
+                        .onErrorResume(e -> {
+                            log.warning("Could not publish invalidations: " + e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        this.invalidations = pubSubCommands.observeChannels()
+                .filter(message -> channel.equals(message.getChannel()))
+                .map(ChannelMessage::getMessage)
+                .filter(message -> !message.startsWith(instanceId + SEPARATOR))
+                .map(RedisInvalidationBus::decode)
+                .filter(keys -> !keys.isEmpty())
+                .share();
+        // while redis is unreachable, lettuce keeps the subscription queued and sends it once reconnected
+        pubSubCommands.subscribe(channel)
+                .timeout(SUBSCRIBE_TIMEOUT)
+                .onErrorResume(e -> {
+                    log.warning("Could not subscribe to invalidations yet: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .block();
+    }
+
+    @Override
+    public void publish(Collection<String> keys) {
+        if (keys == null)
+            return;
+        // unicast sinks reject concurrent emissions, busy looping serializes them
+        keys.forEach(key -> pending.emitNext(key, Sinks.EmitFailureHandler.busyLooping(EMIT_RETRY)));
+    }
+
+    @Override
+    public Flux<List<String>> invalidations() {
+        return invalidations;
+    }
+
+    private String encode(List<String> keys) {
+        final StringBuilder message = new StringBuilder(instanceId).append(SEPARATOR);
+        new LinkedHashSet<>(keys).forEach(key -> message.append(key.length()).append(LENGTH_SEPARATOR).append(key));
+        return message.toString();
+    }
+
+    private static List<String> decode(String message) {
+        final List<String> keys = new ArrayList<>();
+        try {
+            int position = message.indexOf(SEPARATOR) + 1;
+            while (position > 0 && position < message.length()) {
+                final int colon = message.indexOf(LENGTH_SEPARATOR, position);
+                final int end = colon + 1 + Integer.parseInt(message.substring(position, colon));
+                keys.add(message.substring(colon + 1, end));
+                position = end;
+            }
+        } catch (RuntimeException e) {
+            log.warning("Skipping malformed invalidation message: " + e.getMessage());
+            return List.of();
+        }
+        return keys;
+    }
+}
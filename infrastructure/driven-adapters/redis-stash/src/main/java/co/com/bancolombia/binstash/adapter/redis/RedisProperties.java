@@ -1,5 +1,6 @@
 package co.com.bancolombia.binstash.adapter.redis;
 
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisURI;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -18,15 +19,37 @@ public class RedisProperties {
     private String password;
     private String host;
     private String hostReplicas;
+    private String clusterNodes;
+    private ReadPolicy readFrom = ReadPolicy.REPLICA;
+    private boolean readYourWrites;
     private int port;
     private int database;
     private boolean useSsl;
     private int expireTime;
+    private int batchSize = 100;
+    private int compressionThreshold;
+    private boolean useScripts;
+    private boolean distributedLoad;
+    private long loadLeaseTime = 2000;
+    private long loadWaitTime = 2000;
+    private double ttlJitter;
+    private double refreshBeta;
+    private String invalidationChannel;
+    private long invalidationWindow = 10;
+    private Pool pool = new Pool();
 
     public boolean isMasterReplica() {
         return this.hostReplicas != null && !this.hostReplicas.isEmpty();
     }
 
+    public boolean isCluster() {
+        return this.clusterNodes != null && !this.clusterNodes.isBlank();
+    }
+
+    public boolean isInvalidationEnabled() {
+        return this.invalidationChannel != null && !this.invalidationChannel.isBlank();
+    }
+
     public boolean isRbac() {
         return (this.username != null && !this.username.isBlank()) &&
                 (this.password != null && !this.password.isBlank());
@@ -50,10 +73,33 @@ public class RedisProperties {
         }
     }
 
+    /**
+     * @return seed nodes of the cluster, given as <pre>host</pre> or <pre>host:port</pre>, the port defaults to
+     * <pre>port</pre>.
+     */
+    public List<RedisURI> getClusterURIs() {
+        if (!isCluster()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(this.clusterNodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .map(node -> {
+                    int separator = node.lastIndexOf(':');
+                    return separator < 0 ? getURI(node) :
+                            getURI(node.substring(0, separator), Integer.parseInt(node.substring(separator + 1)));
+                })
+                .collect(Collectors.toList());
+    }
+
     private RedisURI getURI(String host) {
+        return getURI(host, this.port);
+    }
+
+    private RedisURI getURI(String host, int port) {
         var builder = RedisURI.builder()
                 .withHost(host)
-                .withPort(this.port);
+                .withPort(port);
 
         if (isRbac()) {
             builder = builder.withAuthentication(this.username, this.password.toCharArray());
@@ -69,4 +115,49 @@ public class RedisProperties {
         builder = builder.withSsl(this.useSsl);
         return builder.build();
     }
+
+    /**
+     * Nodes reads are served from, when connecting to a master/replica.
+     */
+    public enum ReadPolicy {
+        /** replicas only, failing when none is reachable */
+        REPLICA(ReadFrom.REPLICA),
+        /** replicas, falling back to the master when none is reachable */
+        REPLICA_PREFERRED(ReadFrom.REPLICA_PREFERRED),
+        /** the node with the lowest measured latency, master or replica */
+        LOWEST_LATENCY(ReadFrom.LOWEST_LATENCY),
+        /** any node, master or replica */
+        ANY(ReadFrom.ANY),
+        /** the master only */
+        UPSTREAM(ReadFrom.UPSTREAM),
+        /** the master, falling back to replicas when it is not reachable */
+        UPSTREAM_PREFERRED(ReadFrom.UPSTREAM_PREFERRED);
+
+        private final ReadFrom readFrom;
+
+        ReadPolicy(ReadFrom readFrom) {
+            this.readFrom = readFrom;
+        }
+
+        public ReadFrom toReadFrom() {
+            return readFrom;
+        }
+    }
+
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class Pool {
+
+        public enum Selection {
+            /** connections take commands in turns */
+            ROUND_ROBIN,
+            /** commands go to the connection with fewer replies pending */
+            LEAST_LOADED
+        }
+
+        private int size = 1;
+        private Selection selection = Selection.ROUND_ROBIN;
+        private boolean dedicatedBulk;
+    }
 }
@@ -1,36 +1,128 @@
 package co.com.bancolombia.binstash.adapter.redis;
 
 import co.com.bancolombia.binstash.model.InvalidKeyException;
+import co.com.bancolombia.binstash.model.api.DistributedLease;
 import co.com.bancolombia.binstash.model.api.Stash;
 import io.lettuce.core.KeyValue;
-import io.lettuce.core.ScanArgs;
-import io.lettuce.core.ScanCursor;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.SetArgs;
 import io.lettuce.core.api.reactive.RedisReactiveCommands;
 import org.apache.commons.lang3.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class RedisStash implements Stash {
+public class RedisStash implements Stash, DistributedLease {
 
     private static final String ERROR_KEY_MSG = "Caching key cannot be null";
     private static final String INVALID_PATTERN_MSG = "Invalid pattern for keys";
 
-    private static final int DEFAULT_PER_KEY_EXPIRATION_SECONDS = 300;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int MAX_CONCURRENT_BATCHES = 4;
+    private static final long DEFAULT_LOAD_LEASE_MILLIS = 2000;
+    private static final String LEASE_SUFFIX = ":lease";
 
-    private final RedisReactiveCommands<String, String> redisReactiveCommands;
+    /*
+     * Fetches all live members of a set in a single call, removing the dangling ones (members whose key already
+     * expired) from the set.
+     */
+    private static final String SET_GET_ALL_SCRIPT = """
+            local members = redis.call('SMEMBERS', KEYS[1])
+            local values = {}
+            local dangling = {}
+            for _, member in ipairs(members) do
+                local value = redis.call('GET', member)
+                if value then
+                    values[#values + 1] = value
+                else
+                    dangling[#dangling + 1] = member
+                end
+            end
+            for i = 1, #dangling, 1000 do
+                redis.call('SREM', KEYS[1], unpack(dangling, i, math.min(i + 999, #dangling)))
+            end
+            return values
+            """;
+
+    /*
+     * Deletes a lease only if it is still held by the given token, so an expired lease taken over by another
+     * process is never released by the former holder.
+     */
+    private static final String RELEASE_LEASE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """;
+
+    /*
+     * Saves a hash only if the key doesn't exist, fields and values taking turns after the ttl. Fields are set in
+     * chunks, as unpack can't take too many of them at once.
+     */
+    private static final String HASH_SAVE_IF_ABSENT_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            for i = 2, #ARGV, 1000 do
+                redis.call('HSET', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """;
+
+    private final RedisConnections<String> connections;
+    private final RedisConnections<String> primaryConnections;
 
     private final int expireAfter;
+    private final int batchSize;
+    private final RedisTtl expirations;
+    private final boolean useScripts;
+    private final String setGetAllDigest;
+    private final String releaseLeaseDigest;
+    private final String hashSaveIfAbsentDigest;
+    private final long loadLeaseTime;
+    private final Duration loadWaitTime;
 
     RedisStash(RedisReactiveCommands<String, String> redisReactiveCommands,
-                       int expireAfter) {
-        this.redisReactiveCommands = redisReactiveCommands;
-        this.expireAfter = expireAfter;
+               RedisProperties properties) {
+        this(new RedisConnections<>(redisReactiveCommands), properties);
+    }
+
+    RedisStash(RedisConnections<String> connections, RedisProperties properties) {
+        this(connections, null, properties);
+    }
+
+    /**
+     * @param connections connections for every command
+     * @param primaryConnections connections to the master, for reads that must see the latest writes, or null to use
+     *                           the regular ones
+     * @param properties redis properties
+     */
+    RedisStash(RedisConnections<String> connections, RedisConnections<String> primaryConnections,
+               RedisProperties properties) {
+        this.connections = connections;
+        this.primaryConnections = primaryConnections == null ? connections : primaryConnections;
+        this.expireAfter = properties.getExpireTime();
+        this.batchSize = properties.getBatchSize() > 0 ? properties.getBatchSize() : DEFAULT_BATCH_SIZE;
+        // member keys of a set may live on other cluster nodes than the set itself, out of reach of a script
+        this.useScripts = properties.isUseScripts() && !properties.isCluster();
+        this.expirations = new RedisTtl(properties);
+        this.setGetAllDigest = connections.any().digest(SET_GET_ALL_SCRIPT);
+        this.releaseLeaseDigest = connections.any().digest(RELEASE_LEASE_SCRIPT);
+        this.hashSaveIfAbsentDigest = connections.any().digest(HASH_SAVE_IF_ABSENT_SCRIPT);
+        this.loadLeaseTime = properties.getLoadLeaseTime() > 0 ?
+                properties.getLoadLeaseTime() : DEFAULT_LOAD_LEASE_MILLIS;
+        this.loadWaitTime = Duration.ofMillis(properties.getLoadWaitTime() > 0 ?
+                properties.getLoadWaitTime() : DEFAULT_LOAD_LEASE_MILLIS);
     }
 
     @Override
@@ -38,7 +130,7 @@ public class RedisStash implements Stash {
         if (StringUtils.isAnyBlank(key, value)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.set(key, value, SetArgs.Builder.ex(computeTtl(ttl)))
+            return connections.mono(commands -> commands.set(key, value, SetArgs.Builder.ex(computeTtl(ttl))))
                     .map(r -> value);
         }
     }
@@ -48,18 +140,63 @@ public class RedisStash implements Stash {
         return save(key, value, this.expireAfter); // with default expire ttl
     }
 
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, String value, int ttl) {
+        if (StringUtils.isAnyBlank(key, value)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // SET NX replies nothing when the key already exists
+            return connections.mono(commands -> commands.set(key, value,
+                            SetArgs.Builder.ex(computeTtl(ttl)).nx()))
+                    .map(r -> true)
+                    .defaultIfEmpty(false);
+        }
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values, int ttl) {
+        if (values == null || values.entrySet().stream()
+                .anyMatch(entry -> StringUtils.isAnyBlank(entry.getKey(), entry.getValue()))) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // commands are written to the connection without awaiting previous replies, so lettuce pipelines them
+            return connections.flux(commands -> Flux.fromIterable(values.entrySet())
+                            .flatMap(entry -> commands.set(entry.getKey(), entry.getValue(),
+                                    SetArgs.Builder.ex(computeTtl(ttl)))))
+                    .then(Mono.just(values));
+        }
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values) {
+        return mSave(values, this.expireAfter);
+    }
+
     @Override
     public Mono<String> get(String key) {
         if (StringUtils.isBlank(key)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.get(key);
+            return connections.mono(commands -> commands.get(key));
+        }
+    }
+
+    @Override
+    public Mono<Map<String, String>> mGet(Collection<String> keys) {
+        if (keys == null || keys.stream().anyMatch(StringUtils::isBlank)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else if (keys.isEmpty()) {
+            return Mono.just(new HashMap<>());
+        } else {
+            return connections.flux(commands -> commands.mget(keys.toArray(new String[0])))
+                    .filter(KeyValue::hasValue)
+                    .collectMap(KeyValue::getKey, KeyValue::getValue);
         }
     }
 
     @Override
     public Mono<Set<String>> keySet() {
-        return redisReactiveCommands.keys("*").collectList()
+        return connections.bulk(commands -> commands.keys("*")).collectList()
                 .map(HashSet::new);
     }
 
@@ -68,33 +205,29 @@ public class RedisStash implements Stash {
         if (StringUtils.isBlank(pattern)) {
             return Flux.error(new IllegalArgumentException(INVALID_PATTERN_MSG));
         }
-        final ScanArgs scanArgs = new ScanArgs().match(pattern).limit(limit <= 0 ? Long.MAX_VALUE : limit);
-        final int[] emitted = {0};
-        return scanRecursive("0", scanArgs, emitted, limit);
+        return connections.scan(pattern, limit);
     }
 
-    private Flux<String> scanRecursive(String cursor, ScanArgs scanArgs, int[] emitted, int limit) {
-        return Flux.defer(() ->
-                redisReactiveCommands.scan(ScanCursor.of(cursor), scanArgs)
-                        .flatMapMany(scanResult -> {
-                            List<String> keys = scanResult.getKeys();
-                            emitted[0] += keys.size();
-                            Flux<String> currentBatch = Flux.fromIterable(keys);
-                            if (scanResult.isFinished() || emitted[0] >= limit) {
-                                return currentBatch;
-                            }
-                            return currentBatch.concatWith(
-                                    scanRecursive(scanResult.getCursor(), scanArgs, emitted, limit)
-                            );
-                        })
-        );
+    @Override
+    public Mono<Boolean> exists(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        }
+        // checked right after writes, so it is read from the master when replicas may lag behind
+        return primaryConnections.mono(commands -> commands.exists(key))
+                .map(count -> count > 0);
     }
 
     @Override
-    public Mono<Boolean> exists(String key) {
-        return this.get(key)
-                .map(r -> true)
-                .defaultIfEmpty(false);
+    public Mono<Duration> expiresIn(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // negative replies stand for missing keys (-2) or keys without expiration (-1)
+            return connections.mono(commands -> commands.pttl(key))
+                    .filter(millis -> millis >= 0)
+                    .map(Duration::ofMillis);
+        }
     }
 
     @Override
@@ -102,20 +235,33 @@ public class RedisStash implements Stash {
         if (StringUtils.isBlank(key)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.del(key)
+            return connections.mono(commands -> commands.del(key))
+                    .map(num -> num > 0);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        if (keys == null || keys.stream().anyMatch(StringUtils::isBlank)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else if (keys.isEmpty()) {
+            return Mono.just(false);
+        } else {
+            return connections.mono(commands -> commands.del(keys.toArray(new String[0])))
                     .map(num -> num > 0);
         }
     }
 
     @Override
     public Mono<Boolean> evictAll() {
-        return redisReactiveCommands.flushdb()
+        // on cluster connections FLUSHDB is sent to every master
+        return connections.mono(commands -> commands.flushdb())
                 .map(reply -> true);
     }
 
     @Override
     public Mono<Map<String, String>> hSave(String key, Map<String, String> value) {
-        return hSave(key, value, DEFAULT_PER_KEY_EXPIRATION_SECONDS);
+        return hSave(key, value, RedisTtl.DEFAULT_PER_KEY_EXPIRATION_SECONDS);
     }
 
     @Override
@@ -123,15 +269,15 @@ public class RedisStash implements Stash {
         if (StringUtils.isBlank(key) || value == null) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.hmset(key, value)
-                    .zipWith(redisReactiveCommands.expire(key, computeTtl(ttl)))
+            return connections.mono(commands -> commands.hmset(key, value)
+                            .zipWith(commands.expire(key, computeTtl(ttl))))
                     .map(r -> value);
         }
     }
 
     @Override
     public Mono<String> hSave(String key, String field, String value) {
-        return hSave(key, field, value, DEFAULT_PER_KEY_EXPIRATION_SECONDS);
+        return hSave(key, field, value, RedisTtl.DEFAULT_PER_KEY_EXPIRATION_SECONDS);
     }
 
     @Override
@@ -139,19 +285,70 @@ public class RedisStash implements Stash {
         if (StringUtils.isAnyBlank(key, field, value)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.hset(key, field, value)
-                    .zipWith(redisReactiveCommands.expire(key, computeTtl(ttl)))
+            return connections.mono(commands -> commands.hset(key, field, value)
+                            .zipWith(commands.expire(key, computeTtl(ttl))))
                     .map(r -> value);
         }
     }
 
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, Map<String, String> value, int ttl) {
+        if (StringUtils.isBlank(key) || value == null || value.isEmpty()) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            final List<String> args = new ArrayList<>(value.size() * 2 + 1);
+            args.add(String.valueOf(computeTtl(ttl)));
+            value.forEach((field, fieldValue) -> {
+                args.add(field);
+                args.add(fieldValue);
+            });
+            return this.<Long>runScript(HASH_SAVE_IF_ABSENT_SCRIPT, hashSaveIfAbsentDigest,
+                            ScriptOutputType.INTEGER, new String[]{key}, args.toArray(new String[0]))
+                    .next()
+                    .map(saved -> saved > 0)
+                    .defaultIfEmpty(false);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, String field, String value, int ttl) {
+        if (StringUtils.isAnyBlank(key, field, value)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            // the ttl is only renewed when the field is saved
+            return connections.mono(commands -> commands.hsetnx(key, field, value)
+                    .flatMap(saved -> Boolean.TRUE.equals(saved) ?
+                            commands.expire(key, computeTtl(ttl)).thenReturn(true) :
+                            Mono.just(false)));
+        }
+    }
+
     @Override
     public Mono<String> hGet(String key, String field) {
         if (StringUtils.isAnyBlank(key, field)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.hget(key, field);
+            return connections.mono(commands -> commands.hget(key, field));
+        }
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key) {
+        if (StringUtils.isBlank(key)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        }
+        // checked right after writes, so it is read from the master when replicas may lag behind. Other kinds of
+        // keys are not hashes, as on the memory stashes
+        return primaryConnections.mono(commands -> commands.type(key))
+                .map("hash"::equals);
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key, String field) {
+        if (StringUtils.isAnyBlank(key, field)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         }
+        return primaryConnections.mono(commands -> commands.hexists(key, field));
     }
 
     @Override
@@ -159,7 +356,7 @@ public class RedisStash implements Stash {
         if (StringUtils.isBlank(key)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.hgetall(key)
+            return connections.bulk(commands -> commands.hgetall(key))
                     .collectMap(KeyValue::getKey, KeyValue::getValue);
         }
     }
@@ -169,7 +366,7 @@ public class RedisStash implements Stash {
         if (StringUtils.isAnyBlank(key, field)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.hdel(key, field).map(count -> count == 1);
+            return connections.mono(commands -> commands.hdel(key, field)).map(count -> count == 1);
         }
     }
 
@@ -178,26 +375,16 @@ public class RedisStash implements Stash {
         if (StringUtils.isBlank(key)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.hgetall(key).map(KeyValue::getKey)
+            return connections.bulk(commands -> commands.hgetall(key)).map(KeyValue::getKey)
                     .collectList()
                     .map(fields -> fields.toArray(new String[]{}))
-                    .flatMap(fields -> redisReactiveCommands.hdel(key, fields))
+                    .flatMap(fields -> connections.mono(commands -> commands.hdel(key, fields)))
                     .map(count -> count >= 1);
         }
     }
 
-    private int computeTtl(int cadidateTtl) {
-        int computed;
-        if (cadidateTtl > 0) {
-            computed = cadidateTtl;
-        }
-        else if (cadidateTtl < 0 && this.expireAfter > 0) {
-            computed = this.expireAfter;
-        }
-        else {
-            computed = DEFAULT_PER_KEY_EXPIRATION_SECONDS;
-        }
-        return computed;
+    private int computeTtl(int candidateTtl) {
+        return expirations.compute(candidateTtl);
     }
 
     @Override
@@ -205,8 +392,8 @@ public class RedisStash implements Stash {
         if (StringUtils.isAnyBlank(indexKey, key, value)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.set(key, value, SetArgs.Builder.ex(computeTtl(ttl)))
-                    .flatMap(r -> redisReactiveCommands.sadd(indexKey, key))
+            return connections.mono(commands -> commands.set(key, value, SetArgs.Builder.ex(computeTtl(ttl)))
+                            .flatMap(r -> commands.sadd(indexKey, key)))
                     .map(r -> value);
         }
     }
@@ -220,11 +407,29 @@ public class RedisStash implements Stash {
     public Flux<String> setGetAll(String indexKey) {
         if (StringUtils.isAnyBlank(indexKey)) {
             return Flux.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else if (useScripts) {
+            return this.<List<String>>runScript(SET_GET_ALL_SCRIPT, setGetAllDigest, ScriptOutputType.MULTI,
+                            new String[]{indexKey})
+                    .flatMapIterable(values -> values);
         } else {
-            return redisReactiveCommands.smembers(indexKey)
-                    .flatMap(key -> redisReactiveCommands.get(key)
-                            .switchIfEmpty(redisReactiveCommands.srem(indexKey, key)
-                                    .then(Mono.empty())));
+            return Flux.defer(() -> {
+                final List<String> dangling = new ArrayList<>();
+                return connections.bulk(commands -> commands.smembers(indexKey))
+                        .buffer(batchSize)
+                        .flatMapSequential(members -> connections.flux(commands ->
+                                        commands.mget(members.toArray(new String[0]))),
+                                MAX_CONCURRENT_BATCHES)
+                        .filter(keyValue -> {
+                            if (!keyValue.hasValue()) {
+                                dangling.add(keyValue.getKey());
+                            }
+                            return keyValue.hasValue();
+                        })
+                        .map(KeyValue::getValue)
+                        .concatWith(Mono.defer(() -> dangling.isEmpty() ? Mono.empty() :
+                                connections.mono(commands -> commands.srem(indexKey, dangling.toArray(new String[0])))
+                                        .then(Mono.empty())));
+            });
         }
     }
 
@@ -233,11 +438,47 @@ public class RedisStash implements Stash {
         if (StringUtils.isAnyBlank(indexKey, key)) {
             return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
         } else {
-            return redisReactiveCommands.srem(indexKey, key)
-                    .filter(result -> result == 1)
-                    .flatMap( unused -> redisReactiveCommands.del(key))
+            return connections.mono(commands -> commands.srem(indexKey, key)
+                            .filter(result -> result == 1)
+                            .flatMap( unused -> commands.del(key)))
                     .map(count -> count == 1)
                     .defaultIfEmpty(Boolean.FALSE);
         }
     }
+
+    @Override
+    public Mono<Boolean> tryAcquire(String key, String token) {
+        if (StringUtils.isAnyBlank(key, token)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return connections.mono(commands ->
+                            commands.set(key + LEASE_SUFFIX, token, SetArgs.Builder.nx().px(loadLeaseTime)))
+                    .map("OK"::equals)
+                    .defaultIfEmpty(false);
+        }
+    }
+
+    @Override
+    public Mono<Boolean> release(String key, String token) {
+        if (StringUtils.isAnyBlank(key, token)) {
+            return Mono.error(new InvalidKeyException(ERROR_KEY_MSG));
+        } else {
+            return this.<Long>runScript(RELEASE_LEASE_SCRIPT, releaseLeaseDigest,
+                            ScriptOutputType.INTEGER, new String[]{key + LEASE_SUFFIX}, token)
+                    .next()
+                    .map(count -> count > 0)
+                    .defaultIfEmpty(false);
+        }
+    }
+
+    @Override
+    public Duration getWaitTime() {
+        return loadWaitTime;
+    }
+
+    private <T> Flux<T> runScript(String script, String digest, ScriptOutputType type, String[] keys,
+                                  String... args) {
+        return connections.flux(commands -> commands.<T>evalsha(digest, type, keys, args)
+                .onErrorResume(RedisNoScriptException.class, e -> commands.eval(script, type, keys, args)));
+    }
 }
@@ -1,50 +1,192 @@
 package co.com.bancolombia.binstash.adapter.redis;
 
+import co.com.bancolombia.binstash.model.api.DistributedLease;
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
+import co.com.bancolombia.binstash.model.api.Stash;
 import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.masterreplica.MasterReplica;
 import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
 public class RedisStashFactory {
 
+    private static final RedisCodec<String, byte[]> BINARY_CODEC =
+            RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+    private static final Duration ADAPTIVE_REFRESH_TIMEOUT = Duration.ofSeconds(5);
+
     private RedisStashFactory() {
         // private constructor
     }
 
     public static RedisStash redisStash(RedisProperties properties) {
-        if (properties.isMasterReplica()) {
+        if (properties.isCluster()) {
+            return redisStashCluster(properties);
+        } else if (properties.isMasterReplica()) {
             return redisStashMasterReplica(properties);
         } else {
             return redisStashSingle(properties);
         }
     }
 
+    /**
+     * Connects to a master and its replicas, reading from the nodes chosen by <pre>readFrom</pre>. When
+     * <pre>readYourWrites</pre> is enabled, reads checking a key right after writing it (as <pre>exists</pre> does on
+     * hybrid caches before syncing a key upstream) go to the master over a connection of their own, so replication lag
+     * doesn't make them miss.
+     * @param properties redis properties
+     * @return the stash
+     */
     public static RedisStash redisStashMasterReplica(RedisProperties properties) {
 
         RedisClient redisClient = RedisClient.create(
                 properties.getPrimaryURI()
         );
 
-        StatefulRedisMasterReplicaConnection<String, String> primaryAndReplicaConnection = MasterReplica.connect(
+        return new RedisStash(connections(properties,
+                () -> masterReplica(redisClient, properties, StringCodec.UTF8, readFrom(properties))),
+                primaryConnections(redisClient, properties, StringCodec.UTF8), properties);
+    }
+
+    public static RedisStash redisStashSingle(RedisProperties properties) {
+
+        RedisClient redisClient =
+                RedisClient.create(properties.getPrimaryURI());
+
+        return new RedisStash(connections(properties, () -> redisClient.connect().reactive()), properties);
+    }
+
+    /**
+     * Connects to a sharded Redis Cluster, starting from the nodes in <pre>clusterNodes</pre>. Commands are routed to
+     * the node holding their key, multi-key ones (MGET, DEL) are split by hash slot, and KEYS, SCAN and FLUSHDB are
+     * sent to every master. The topology is refreshed when redirections or reconnections show it changed.
+     * @param properties redis properties
+     * @return the stash
+     */
+    public static RedisStash redisStashCluster(RedisProperties properties) {
+
+        RedisClusterClient redisClusterClient = clusterClient(properties);
+
+        return new RedisStash(connections(properties, () -> redisClusterClient.connect().reactive()), properties);
+    }
+
+    /**
+     * Creates a stash keeping values as <pre>byte[]</pre>, for values serialized in a binary format. It connects as
+     * <pre>redisStash</pre> does (single node, master/replica or cluster), over connections of its own.
+     * @param properties redis properties
+     * @return the stash
+     */
+    public static RedisBinaryStash redisBinaryStash(RedisProperties properties) {
+        if (properties.isCluster()) {
+            RedisClusterClient redisClusterClient = clusterClient(properties);
+            return new RedisBinaryStash(connections(properties,
+                    () -> redisClusterClient.connect(BINARY_CODEC).reactive()), properties);
+        }
+        RedisClient redisClient = RedisClient.create(properties.getPrimaryURI());
+        if (properties.isMasterReplica()) {
+            return new RedisBinaryStash(connections(properties,
+                    () -> masterReplica(redisClient, properties, BINARY_CODEC, readFrom(properties))),
+                    primaryConnections(redisClient, properties, BINARY_CODEC), properties);
+        }
+        return new RedisBinaryStash(connections(properties,
+                () -> redisClient.connect(BINARY_CODEC).reactive()), properties);
+    }
+
+    private static RedisClusterClient clusterClient(RedisProperties properties) {
+        RedisClusterClient redisClusterClient = RedisClusterClient.create(properties.getClusterURIs());
+        redisClusterClient.setOptions(ClusterClientOptions.builder()
+                .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                        // every adaptive trigger is on by default, refreshing the topology when slots move or nodes go
+                        // away, at most once per timeout
+                        .adaptiveRefreshTriggersTimeout(ADAPTIVE_REFRESH_TIMEOUT)
+                        .build())
+                .build());
+        return redisClusterClient;
+    }
+
+    private static ReadFrom readFrom(RedisProperties properties) {
+        return properties.getReadFrom() == null ? ReadFrom.REPLICA : properties.getReadFrom().toReadFrom();
+    }
+
+    /**
+     * @return a connection reading from the master when <pre>readYourWrites</pre> is enabled and reads go elsewhere,
+     * null otherwise.
+     */
+    private static <V> RedisConnections<V> primaryConnections(RedisClient redisClient, RedisProperties properties,
+                                                              RedisCodec<String, V> codec) {
+        if (properties.isReadYourWrites() && readFrom(properties) != ReadFrom.UPSTREAM) {
+            return new RedisConnections<>(masterReplica(redisClient, properties, codec, ReadFrom.UPSTREAM));
+        }
+        return null;
+    }
+
+    private static <V> RedisClusterReactiveCommands<String, V> masterReplica(RedisClient redisClient,
+                                                                             RedisProperties properties,
+                                                                             RedisCodec<String, V> codec,
+                                                                             ReadFrom readFrom) {
+        StatefulRedisMasterReplicaConnection<String, V> primaryAndReplicaConnection = MasterReplica.connect(
                 redisClient,
-                StringCodec.UTF8,
+                codec,
                 properties.getAllURIs()
         );
 
-        primaryAndReplicaConnection.setReadFrom(ReadFrom.REPLICA);
+        primaryAndReplicaConnection.setReadFrom(readFrom);
 
-        return new RedisStash(primaryAndReplicaConnection.reactive(), properties.getExpireTime());
+        return primaryAndReplicaConnection.reactive();
     }
 
-    public static RedisStash redisStashSingle(RedisProperties properties) {
-
-        RedisClient redisClient =
-                RedisClient.create(properties.getPrimaryURI());
+    /**
+     * Opens the connections set under <pre>stash.redis.pool</pre>: <pre>size</pre> multiplexed connections, plus one for
+     * bulk commands when <pre>dedicatedBulk</pre> is enabled.
+     */
+    private static <V> RedisConnections<V> connections(RedisProperties properties,
+                                                       Supplier<RedisClusterReactiveCommands<String, V>> connect) {
+        final RedisProperties.Pool pool = properties.getPool();
+        final List<RedisClusterReactiveCommands<String, V>> connections = IntStream
+                .range(0, Math.max(1, pool.getSize()))
+                .mapToObj(i -> connect.get())
+                .toList();
+        return new RedisConnections<>(connections, pool.isDedicatedBulk() ? connect.get() : null,
+                pool.getSelection());
+    }
 
-        RedisReactiveCommands<String, String> redisReactiveCommands = redisClient.connect().reactive();
+    /**
+     * Creates the bus used to invalidate local tiers across instances, over dedicated connections to the primary.
+     * @param properties redis properties
+     * @return the invalidation bus, or null when <pre>invalidationChannel</pre> is not set.
+     */
+    public static InvalidationBus invalidationBus(RedisProperties properties) {
+        if (!properties.isInvalidationEnabled()) {
+            return null;
+        }
+        // pub/sub messages are broadcast to every node of a cluster, any of them will do
+        RedisClient redisClient = RedisClient.create(properties.isCluster() ?
+                properties.getClusterURIs().get(0) : properties.getPrimaryURI());
+        return new RedisInvalidationBus(redisClient.connect().reactive(),
+                redisClient.connectPubSub().reactive(), properties);
+    }
 
-        return new RedisStash(redisReactiveCommands, properties.getExpireTime());
+    /**
+     * Resolves the lease used to coordinate loads of missing keys across processes.
+     * @param stash the centralized stash
+     * @param properties redis properties
+     * @return the stash as a lease when <pre>distributedLoad</pre> is enabled and supported by it, null otherwise.
+     */
+    public static DistributedLease loadLease(Stash stash, RedisProperties properties) {
+        if (properties.isDistributedLoad() && stash instanceof DistributedLease lease) {
+            return lease;
+        }
+        return null;
     }
 }
@@ -0,0 +1,41 @@
+package co.com.bancolombia.binstash.adapter.redis;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Resolves the expiration of saved keys, from the ttl given to each operation or the default one.
+ */
+class RedisTtl {
+
+    static final int DEFAULT_PER_KEY_EXPIRATION_SECONDS = 300;
+
+    private final int expireAfter;
+    private final double ttlJitter;
+
+    RedisTtl(RedisProperties properties) {
+        this.expireAfter = properties.getExpireTime();
+        this.ttlJitter = Math.max(0, Math.min(properties.getTtlJitter(), 1));
+    }
+
+    int compute(int cadidateTtl) {
+        int computed;
+        if (cadidateTtl > 0) {
+            computed = cadidateTtl;
+        }
+        else if (cadidateTtl < 0 && this.expireAfter > 0) {
+            computed = this.expireAfter;
+        }
+        else {
+            computed = DEFAULT_PER_KEY_EXPIRATION_SECONDS;
+        }
+        return withJitter(computed);
+    }
+
+    // jitter only shortens the ttl, keys saved in a burst get spread out expirations
+    private int withJitter(int ttl) {
+        if (this.ttlJitter <= 0) {
+            return ttl;
+        }
+        return Math.max(1, ttl - (int) (ThreadLocalRandom.current().nextDouble(this.ttlJitter) * ttl));
+    }
+}
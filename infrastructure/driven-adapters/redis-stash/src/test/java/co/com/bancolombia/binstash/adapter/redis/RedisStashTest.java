@@ -1,17 +1,31 @@
 package co.com.bancolombia.binstash.adapter.redis;
 
+import co.com.bancolombia.binstash.model.api.InvalidationBus;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
 import lombok.extern.java.Log;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.Mockito;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import redis.embedded.RedisServer;
+import redis.embedded.RedisShardedCluster;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 @Log
@@ -79,6 +93,28 @@ class RedisStashTest {
         assertNotNull(RedisStashFactory.redisStash(mrProperties));
     }
 
+    @Test
+    @DisplayName("Should read own writes from the master of a master-replica cluster")
+    void testMasterReplicaReadYourWrites() {
+        RedisProperties mrProperties = new RedisProperties();
+        mrProperties.setExpireTime(1);
+        mrProperties.setHost("localhost");
+        mrProperties.setHostReplicas("localhost");
+        mrProperties.setPort(16379);
+        mrProperties.setReadFrom(RedisProperties.ReadPolicy.REPLICA_PREFERRED);
+        mrProperties.setReadYourWrites(true);
+        RedisStash mrStash = RedisStashFactory.redisStash(mrProperties);
+
+        StepVerifier.create(mrStash.save("ownWrite", TEST_VALUE)
+                        .then(mrStash.exists("ownWrite")))
+                .expectNext(true)
+                .verifyComplete();
+
+        StepVerifier.create(mrStash.get("ownWrite"))
+                .expectNext(TEST_VALUE)
+                .verifyComplete();
+    }
+
 
     @Test
     @DisplayName("Should save element")
@@ -90,6 +126,21 @@ class RedisStashTest {
                 .verify();
     }
 
+    @Test
+    @DisplayName("Should save element only if absent")
+    void testPutIfAbsent() {
+        StepVerifier.create(stash.saveIfAbsent("absent1", TEST_VALUE, 10))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(stash.saveIfAbsent("absent1", "other", 10)
+                        .zipWith(stash.get("absent1")))
+                .expectNextMatches(result -> !result.getT1() && TEST_VALUE.equals(result.getT2()))
+                .verifyComplete();
+        StepVerifier.create(stash.saveIfAbsent(null, TEST_VALUE, 10))
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
     @Test
     @DisplayName("Should handle save with null key")
     void testPutNullKey() {
@@ -290,6 +341,23 @@ class RedisStashTest {
 
     }
 
+    @Test
+    @DisplayName("Should check maps and fields exist")
+    void testExistsMap() {
+        StepVerifier.create(stash.hSave("existsMap", demoMap)
+                        .then(stash.hExists("existsMap").zipWith(stash.hExists("existsMap", "name"))))
+                .expectNextMatches(result -> result.getT1() && result.getT2())
+                .verifyComplete();
+
+        StepVerifier.create(stash.hExists("existsMap", "missing").zipWith(stash.hExists("missingMap")))
+                .expectNextMatches(result -> !result.getT1() && !result.getT2())
+                .verifyComplete();
+
+        StepVerifier.create(stash.hExists(null))
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
     @Test
     @DisplayName("Should get field from map")
     void testGetFieldMap() {
@@ -489,4 +557,327 @@ class RedisStashTest {
                 .verify();
 
     }
+
+    @Test
+    @DisplayName("Should save, get and evict several elements in batch")
+    void testMultiKeyOperations() {
+        Mono<Map<String, String>> op = stash.mSave(Map.of("mk1", "v1", "mk2", "v2"), 10)
+                .then(stash.mGet(List.of("mk1", "mk2", "mk3")));
+
+        StepVerifier.create(op)
+                .expectSubscription()
+                .expectNext(Map.of("mk1", "v1", "mk2", "v2"))
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.mEvict(List.of("mk1", "mk3")).then(stash.mGet(List.of("mk1", "mk2"))))
+                .expectSubscription()
+                .expectNext(Map.of("mk2", "v2"))
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.mGet(List.of()))
+                .expectSubscription()
+                .expectNext(Map.of())
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.mSave(Map.of("mk1", "")))
+                .expectSubscription()
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+
+        StepVerifier.create(stash.mEvict(null))
+                .expectSubscription()
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should get all set members in batches, removing dangling members")
+    void testSetGetAllInBatches() {
+        properties.setBatchSize(3);
+        RedisStash batchedStash = RedisStashFactory.redisStash(properties);
+        verifySetGetAllInBatches(batchedStash, "batchedSet");
+    }
+
+    @Test
+    @DisplayName("Should get all set members with a server side script, removing dangling members")
+    void testSetGetAllWithScript() {
+        properties.setUseScripts(true);
+        RedisStash scriptedStash = RedisStashFactory.redisStash(properties);
+        verifySetGetAllInBatches(scriptedStash, "scriptedSet");
+        // second call is served by the cached script
+        StepVerifier.create(scriptedStash.setGetAll("scriptedSet"))
+                .expectSubscription()
+                .expectNextCount(9)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should get time left before key expires")
+    void testExpiresIn() {
+        StepVerifier.create(stash.save("expiring", "value", 10).then(stash.expiresIn("expiring")))
+                .expectSubscription()
+                .expectNextMatches(left -> !left.isNegative() && left.compareTo(Duration.ofSeconds(10)) <= 0)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.expiresIn("unexistent-key"))
+                .expectSubscription()
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.expiresIn(null))
+                .expectSubscription()
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should shorten ttl with jitter")
+    void testTtlJitter() {
+        properties.setTtlJitter(0.5);
+        RedisStash jitteredStash = RedisStashFactory.redisStash(properties);
+
+        StepVerifier.create(Flux.range(0, 20)
+                        .concatMap(i -> jitteredStash.save("jittered" + i, "value", 1000)
+                                .then(jitteredStash.expiresIn("jittered" + i)))
+                        .map(Duration::toSeconds)
+                        .collect(Collectors.toSet()))
+                .expectSubscription()
+                .expectNextMatches(lefts -> lefts.size() > 1 &&
+                        lefts.stream().allMatch(left -> left >= 499 && left <= 1000))
+                .expectComplete()
+                .verify();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RedisProperties.Pool.Selection.class)
+    @DisplayName("Should spread commands over a pool of connections, with bulk ones on their own connection")
+    void testConnectionPool(RedisProperties.Pool.Selection selection) {
+        properties.getPool().setSize(3);
+        properties.getPool().setSelection(selection);
+        properties.getPool().setDedicatedBulk(true);
+        RedisStash pooledStash = RedisStashFactory.redisStash(properties);
+
+        StepVerifier.create(Flux.range(0, 20)
+                        .flatMap(i -> pooledStash.save("pooled" + i, "value" + i, 10))
+                        .then(Mono.zip(pooledStash.mGet(List.of("pooled0", "pooled19")),
+                                pooledStash.keys("pooled*", 100).count(),
+                                pooledStash.hSave("hashOfPooled", demoMap, 10)
+                                        .then(pooledStash.hGetAll("hashOfPooled")))))
+                .expectNextMatches(result -> result.getT1().size() == 2
+                        && result.getT2() == 20
+                        && result.getT3().equals(demoMap))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should save and get binary values")
+    void testBinaryStash() {
+        RedisBinaryStash binaryStash = RedisStashFactory.redisBinaryStash(properties);
+        byte[] value = {0, 1, (byte) 0xff, 0x7f};
+        byte[] other = {(byte) 0xca, (byte) 0xfe};
+
+        StepVerifier.create(binaryStash.save("binary1", value, 10)
+                        .then(binaryStash.mSave(Map.of("binary2", other), 10))
+                        .then(binaryStash.get("binary1")))
+                .expectNextMatches(found -> Arrays.equals(value, found))
+                .verifyComplete();
+
+        StepVerifier.create(binaryStash.mGet(List.of("binary1", "binary2", "binary3")))
+                .expectNextMatches(found -> found.size() == 2 && Arrays.equals(other, found.get("binary2")))
+                .verifyComplete();
+
+        StepVerifier.create(binaryStash.exists("binary2")
+                        .zipWith(binaryStash.keys("binary?", 0).count()))
+                .expectNextMatches(result -> result.getT1() && result.getT2() == 2)
+                .verifyComplete();
+
+        StepVerifier.create(binaryStash.saveIfAbsent("binary1", other, 10)
+                        .zipWith(binaryStash.saveIfAbsent("binary3", other, 10)))
+                .expectNextMatches(result -> !result.getT1() && result.getT2())
+                .verifyComplete();
+
+        StepVerifier.create(binaryStash.save(null, value))
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should keep binary values in sets")
+    void testBinaryStashSets() {
+        RedisBinaryStash binaryStash = RedisStashFactory.redisBinaryStash(properties);
+        byte[] value = {0, 1, (byte) 0xff};
+
+        StepVerifier.create(binaryStash.setSave("binarySet", "binaryMember1", value, 10)
+                        .then(binaryStash.setSave("binarySet", "binaryMember2", value, 10))
+                        .then(binaryStash.evict("binaryMember2"))
+                        .thenMany(binaryStash.setGetAll("binarySet")))
+                .expectNextMatches(found -> Arrays.equals(value, found))
+                .verifyComplete();
+
+        StepVerifier.create(binaryStash.setRemove("binarySet", "binaryMember1")
+                        .then(binaryStash.exists("binaryMember1")))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should parse cluster nodes")
+    void testClusterURIs() {
+        RedisProperties clusterProperties = new RedisProperties();
+        clusterProperties.setPort(7000);
+        clusterProperties.setClusterNodes("node1, node2:7001,");
+
+        assertTrue(clusterProperties.isCluster());
+        assertEquals(List.of(7000, 7001),
+                clusterProperties.getClusterURIs().stream().map(RedisURI::getPort).toList());
+        assertFalse(properties.isCluster());
+        assertTrue(properties.getClusterURIs().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should operate over keys in different cluster slots")
+    void testCluster() throws IOException {
+        // ports of the cluster bus are the ports of the nodes + 10000
+        RedisShardedCluster cluster = RedisShardedCluster.newRedisCluster()
+                .serverPorts(List.of(7390, 7391, 7392))
+                .shard("a", 0)
+                .shard("b", 0)
+                .shard("c", 0)
+                .build();
+        cluster.start();
+        try {
+            awaitClusterReady(List.of(7390, 7391, 7392), Duration.ofSeconds(10));
+            RedisProperties clusterProperties = new RedisProperties();
+            clusterProperties.setClusterNodes("127.0.0.1:7390, 127.0.0.1:7391");
+            clusterProperties.setExpireTime(10);
+            clusterProperties.setUseScripts(true);
+            RedisStash clusterStash = RedisStashFactory.redisStash(clusterProperties);
+            Map<String, String> values = new HashMap<>();
+            IntStream.range(0, 50).forEach(i -> values.put("clustered" + i, "value" + i));
+
+            StepVerifier.create(clusterStash.mSave(values)
+                            .then(clusterStash.setSave("clusteredSet", "clustered0", "value0"))
+                            .then(Mono.zip(clusterStash.mGet(values.keySet()),
+                                    clusterStash.keys("clustered*", 0).collectList(),
+                                    clusterStash.setGetAll("clusteredSet").collectList())))
+                    .expectNextMatches(result -> result.getT1().equals(values)
+                            && result.getT2().size() == 51
+                            && result.getT3().equals(List.of("value0")))
+                    .expectComplete()
+                    .verify();
+
+            StepVerifier.create(clusterStash.mEvict(values.keySet())
+                            .then(clusterStash.evictAll())
+                            .then(clusterStash.keySet()))
+                    .expectNext(Set.of())
+                    .expectComplete()
+                    .verify();
+        } finally {
+            cluster.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should deliver invalidations to other instances only")
+    void testInvalidationBus() {
+        assertNull(RedisStashFactory.invalidationBus(properties));
+
+        properties.setInvalidationChannel("invalidations");
+        InvalidationBus bus1 = RedisStashFactory.invalidationBus(properties);
+        InvalidationBus bus2 = RedisStashFactory.invalidationBus(properties);
+
+        StepVerifier.create(bus2.invalidations().next())
+                .expectSubscription()
+                .then(() -> bus1.publish(List.of("k1", "k2", "k1")))
+                .expectNext(List.of("k1", "k2"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(bus1.invalidations().take(Duration.ofMillis(500)))
+                .expectSubscription()
+                .then(() -> bus1.publish(List.of("k3")))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        // keys holding separators are delivered whole
+        StepVerifier.create(bus2.invalidations().next())
+                .expectSubscription()
+                .then(() -> bus1.publish(List.of("multi\nline", "12:colon", "")))
+                .expectNext(List.of("multi\nline", "12:colon", ""))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Should acquire and release load lease")
+    void testLoadLease() {
+        StepVerifier.create(stash.tryAcquire("leased", "token1")
+                        .concatWith(stash.tryAcquire("leased", "token2"))
+                        .concatWith(stash.release("leased", "token2"))
+                        .concatWith(stash.release("leased", "token1"))
+                        .concatWith(stash.tryAcquire("leased", "token2")))
+                .expectSubscription()
+                .expectNext(true, false, false, true, true)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(stash.get("leased"))
+                .expectSubscription()
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should fail on lease with null args")
+    void testLoadLeaseNullArgs() {
+        StepVerifier.create(stash.tryAcquire(null, "token"))
+                .expectSubscription()
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+
+        StepVerifier.create(stash.release("leased", null))
+                .expectSubscription()
+                .expectErrorMessage("Caching key cannot be null")
+                .verify();
+    }
+
+    // nodes reply CLUSTERDOWN until every slot is covered and the nodes agree on it
+    private static void awaitClusterReady(List<Integer> ports, Duration timeout) {
+        ports.forEach(port -> {
+            RedisClient client = RedisClient.create(RedisURI.create("127.0.0.1", port));
+            try (StatefulRedisConnection<String, String> connection = client.connect()) {
+                Mono.defer(() -> connection.reactive().clusterInfo())
+                        .filter(info -> info.contains("cluster_state:ok"))
+                        .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(100)))
+                        .block(timeout);
+            } finally {
+                client.shutdown();
+            }
+        });
+    }
+
+    private void verifySetGetAllInBatches(RedisStash redisStash, String indexKey) {
+        Flux.range(1, 10)
+                .concatMap(i -> redisStash.setSave(indexKey, indexKey + ":" + i, "value" + i, 10))
+                .then(redisStash.evict(indexKey + ":5"))
+                .block();
+
+        StepVerifier.create(redisStash.setGetAll(indexKey).collectList())
+                .expectSubscription()
+                .expectNextMatches(values -> values.size() == 9 && !values.contains("value5"))
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(redisStash.setRemove(indexKey, indexKey + ":5"))
+                .expectSubscription()
+                .expectNext(false)
+                .expectComplete()
+                .verify();
+    }
 }
@@ -0,0 +1,16 @@
+package co.com.bancolombia.binstash.config;
+
+import co.com.bancolombia.binstash.metrics.CacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public CacheMetrics cacheMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CacheMetrics(meterRegistry.getIfUnique());
+    }
+}
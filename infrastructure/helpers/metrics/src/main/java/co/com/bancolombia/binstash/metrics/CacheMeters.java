@@ -0,0 +1,131 @@
+package co.com.bancolombia.binstash.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Meters shared by the cache decorators, all of them tagged with the name of the decorated cache. When the decorated
+ * cache is the centralized tier of a hybrid cache, its writes are also counted as upstream syncs.
+ */
+final class CacheMeters {
+
+    static final String OPERATIONS = "binstash.operations";
+    static final String GETS = "binstash.gets";
+    static final String SYNCS = "binstash.syncs";
+
+    private static final String CACHE_TAG = "cache";
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final Counter hits;
+    private final Counter misses;
+    private final boolean upstream;
+    private final Counter syncSuccesses;
+    private final Counter syncFailures;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    CacheMeters(MeterRegistry registry, String name, boolean upstream) {
+        this.registry = registry;
+        this.name = name;
+        this.hits = getsCounter("hit");
+        this.misses = getsCounter("miss");
+        this.upstream = upstream;
+        this.syncSuccesses = upstream ? syncsCounter(SUCCESS) : null;
+        this.syncFailures = upstream ? syncsCounter(FAILURE) : null;
+    }
+
+    <T> Mono<T> timed(String operation, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            final Timer.Sample sample = Timer.start(registry);
+            return call.get()
+                    .doOnSuccess(value -> sample.stop(timer(operation, SUCCESS)))
+                    .doOnError(e -> sample.stop(timer(operation, FAILURE)));
+        });
+    }
+
+    <T> Flux<T> timedMany(String operation, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            final Timer.Sample sample = Timer.start(registry);
+            return call.get()
+                    .doOnComplete(() -> sample.stop(timer(operation, SUCCESS)))
+                    .doOnError(e -> sample.stop(timer(operation, FAILURE)));
+        });
+    }
+
+    <T> Mono<T> lookup(String operation, Supplier<Mono<T>> call) {
+        return timed(operation, call)
+                .doOnSuccess(value -> (value == null ? misses : hits).increment());
+    }
+
+    /**
+     * Times a read-through lookup, counting it as a miss when the loader had to be called.
+     */
+    <T> Mono<T> loadingLookup(String operation, Function<String, Mono<T>> loader,
+                              Function<Function<String, Mono<T>>, Mono<T>> call) {
+        return Mono.defer(() -> {
+            final AtomicBoolean loaded = new AtomicBoolean();
+            final Function<String, Mono<T>> countingLoader = key -> {
+                loaded.set(true);
+                return loader.apply(key);
+            };
+            return timed(operation, () -> call.apply(countingLoader))
+                    .doOnSuccess(value -> (loaded.get() || value == null ? misses : hits).increment());
+        });
+    }
+
+    <T> Mono<Map<String, T>> multiLookup(String operation, Collection<String> keys,
+                                         Supplier<Mono<Map<String, T>>> call) {
+        return timed(operation, call)
+                .doOnSuccess(values -> {
+                    final int found = values == null ? 0 : values.size();
+                    hits.increment(found);
+                    misses.increment(Math.max(0, keys.size() - found));
+                });
+    }
+
+    <T> Mono<T> write(String operation, Supplier<Mono<T>> call) {
+        if (!upstream) {
+            return timed(operation, call);
+        }
+        return timed(operation, call)
+                .doOnSuccess(value -> syncSuccesses.increment())
+                .doOnError(e -> syncFailures.increment());
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + ':' + outcome, k -> Timer.builder(OPERATIONS)
+                .description("Time spent in cache operations")
+                .tag(CACHE_TAG, name)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private Counter getsCounter(String result) {
+        return Counter.builder(GETS)
+                .description("Cache lookups, by result")
+                .tag(CACHE_TAG, name)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter syncsCounter(String outcome) {
+        return Counter.builder(SYNCS)
+                .description("Writes synced upstream into a centralized tier, by outcome")
+                .tag(CACHE_TAG, name)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
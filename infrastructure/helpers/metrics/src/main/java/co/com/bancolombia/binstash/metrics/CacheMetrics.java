@@ -0,0 +1,157 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.ValueCompressor;
+import co.com.bancolombia.binstash.WriteBehindQueue;
+import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.adapter.memory.OffHeapStash;
+import co.com.bancolombia.binstash.model.api.MapCache;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import co.com.bancolombia.binstash.model.api.Stash;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Entry point to instrument caches with micrometer. Every meter is tagged with the name given to the instrumented
+ * cache. Built without a <pre>MeterRegistry</pre>, it leaves every cache as is.
+ */
+public class CacheMetrics {
+
+    public static final CacheMetrics NONE = new CacheMetrics(null);
+
+    static final String MEMORY_SIZE = "binstash.memory.size";
+    static final String MEMORY_EVICTIONS = "binstash.memory.evictions";
+    static final String MEMORY_WEIGHTED_SIZE = "binstash.memory.weighted.size";
+    static final String WRITE_BEHIND_DEPTH = "binstash.writebehind.depth";
+    static final String WRITE_BEHIND_DROPPED = "binstash.writebehind.dropped";
+    static final String WRITE_BEHIND_FAILED = "binstash.writebehind.failed";
+
+    private final MeterRegistry registry;
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    public Stash stash(String name, Stash stash) {
+        return isEnabled() ? new MeteredStash(stash, registry, name) : stash;
+    }
+
+    public <T> ObjectCache<T> objectCache(String name, ObjectCache<T> cache) {
+        return isEnabled() ? new MeteredObjectCache<>(cache, registry, name) : cache;
+    }
+
+    /**
+     * Instruments the centralized tier of a hybrid object cache, counting its writes as upstream syncs.
+     */
+    public <T> ObjectCache<T> upstreamObjectCache(String name, ObjectCache<T> cache) {
+        return isEnabled() ? new MeteredObjectCache<>(cache, registry, name, true) : cache;
+    }
+
+    public MapCache mapCache(String name, MapCache cache) {
+        return isEnabled() ? new MeteredMapCache(cache, registry, name) : cache;
+    }
+
+    /**
+     * Instruments the centralized tier of a hybrid map cache, counting its writes as upstream syncs.
+     */
+    public MapCache upstreamMapCache(String name, MapCache cache) {
+        return isEnabled() ? new MeteredMapCache(cache, registry, name, true) : cache;
+    }
+
+    public <T> SerializatorHelper<T> serializatorHelper(String name, ObjectMapper objectMapper) {
+        return serializatorHelper(name, objectMapper, ValueCompressor.DISABLED);
+    }
+
+    public <T> SerializatorHelper<T> serializatorHelper(String name, ObjectMapper objectMapper,
+                                                        ValueCompressor compressor) {
+        return isEnabled() ? new MeteredSerializatorHelper<>(objectMapper, compressor, registry, name) :
+                new SerializatorHelper<>(objectMapper, compressor);
+    }
+
+    /**
+     * Creates a compressor for the values of a cache, recording their compression ratio.
+     * @param threshold minimum size of the values to compress, equal or less than 0 disables compression
+     */
+    public ValueCompressor compressor(String name, int threshold) {
+        if (threshold <= 0) {
+            return ValueCompressor.DISABLED;
+        }
+        return isEnabled() ? new MeteredValueCompressor(threshold, registry, name) : new ValueCompressor(threshold);
+    }
+
+    /**
+     * Registers the size and eviction count of a memory stash, and its estimated footprint when bounded by bytes.
+     * @return the same stash
+     */
+    public MemoryStash monitor(String name, MemoryStash stash) {
+        if (isEnabled()) {
+            Gauge.builder(MEMORY_SIZE, stash, MemoryStash::size)
+                    .description("Approximate number of entries held in memory")
+                    .tag("cache", name)
+                    .register(registry);
+            FunctionCounter.builder(MEMORY_EVICTIONS, stash, MemoryStash::evictionCount)
+                    .description("Entries dropped from memory because the cache was full or they expired")
+                    .tag("cache", name)
+                    .register(registry);
+            if (stash.isWeighted()) {
+                Gauge.builder(MEMORY_WEIGHTED_SIZE, stash, MemoryStash::weightedSize)
+                        .description("Estimated heap bytes taken by the entries held in memory")
+                        .baseUnit("bytes")
+                        .tag("cache", name)
+                        .register(registry);
+            }
+        }
+        return stash;
+    }
+
+    /**
+     * Registers the size, eviction count and direct memory taken by an off-heap stash.
+     * @return the same stash
+     */
+    public OffHeapStash monitor(String name, OffHeapStash stash) {
+        if (isEnabled()) {
+            Gauge.builder(MEMORY_SIZE, stash, OffHeapStash::size)
+                    .description("Number of entries held off-heap")
+                    .tag("cache", name)
+                    .register(registry);
+            FunctionCounter.builder(MEMORY_EVICTIONS, stash, OffHeapStash::evictionCount)
+                    .description("Entries dropped from memory because the cache was full or they expired")
+                    .tag("cache", name)
+                    .register(registry);
+            Gauge.builder(MEMORY_WEIGHTED_SIZE, stash, OffHeapStash::usedBytes)
+                    .description("Direct memory bytes taken by the entries held off-heap")
+                    .baseUnit("bytes")
+                    .tag("cache", name)
+                    .register(registry);
+        }
+        return stash;
+    }
+
+    /**
+     * Registers the depth, drop count and failure count of the write-behind queue of a hybrid cache.
+     * @return the same queue
+     */
+    public <T> WriteBehindQueue<T> monitor(String name, WriteBehindQueue<T> queue) {
+        if (isEnabled()) {
+            Gauge.builder(WRITE_BEHIND_DEPTH, queue, WriteBehindQueue::depth)
+                    .description("Keys waiting to be synced to the centralized tier")
+                    .tag("cache", name)
+                    .register(registry);
+            FunctionCounter.builder(WRITE_BEHIND_DROPPED, queue, WriteBehindQueue::droppedCount)
+                    .description("Upstream syncs dropped because the write-behind queue was full")
+                    .tag("cache", name)
+                    .register(registry);
+            FunctionCounter.builder(WRITE_BEHIND_FAILED, queue, WriteBehindQueue::failedCount)
+                    .description("Upstream syncs that failed to be written to the centralized tier")
+                    .tag("cache", name)
+                    .register(registry);
+        }
+        return queue;
+    }
+}
@@ -0,0 +1,118 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.model.api.MapCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <pre>MapCache</pre> decorator recording the latency of every operation, and the hits and misses of lookups.
+ */
+public class MeteredMapCache implements MapCache {
+
+    private final MapCache delegate;
+    private final CacheMeters meters;
+
+    public MeteredMapCache(MapCache delegate, MeterRegistry registry, String name) {
+        this(delegate, registry, name, false);
+    }
+
+    /**
+     * @param delegate the decorated cache
+     * @param registry where meters are registered
+     * @param name value of the <pre>cache</pre> tag of every meter
+     * @param upstream whether the decorated cache is the centralized tier of a hybrid cache, so its writes are also
+     *                 counted as upstream syncs
+     */
+    public MeteredMapCache(MapCache delegate, MeterRegistry registry, String name, boolean upstream) {
+        this.delegate = delegate;
+        this.meters = new CacheMeters(registry, name, upstream);
+    }
+
+    @Override
+    public Mono<Map<String, String>> saveMap(String key, Map<String, String> value) {
+        return meters.write("saveMap", () -> delegate.saveMap(key, value));
+    }
+
+    @Override
+    public Mono<Map<String, String>> saveMap(String key, Map<String, String> value, int ttl) {
+        return meters.write("saveMap", () -> delegate.saveMap(key, value, ttl));
+    }
+
+    @Override
+    public Mono<String> saveMap(String key, String field, String value) {
+        return meters.write("saveMap", () -> delegate.saveMap(key, field, value));
+    }
+
+    @Override
+    public Mono<String> saveMap(String key, String field, String value, int ttl) {
+        return meters.write("saveMap", () -> delegate.saveMap(key, field, value, ttl));
+    }
+
+    @Override
+    public Mono<Boolean> saveMapIfAbsent(String key, Map<String, String> value, int ttl) {
+        return meters.write("saveMapIfAbsent", () -> delegate.saveMapIfAbsent(key, value, ttl));
+    }
+
+    @Override
+    public Mono<Boolean> saveMapIfAbsent(String key, String field, String value, int ttl) {
+        return meters.write("saveMapIfAbsent", () -> delegate.saveMapIfAbsent(key, field, value, ttl));
+    }
+
+    @Override
+    public Mono<String> getMap(String key, String field) {
+        return meters.lookup("getMap", () -> delegate.getMap(key, field));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getMap(String key) {
+        return meters.lookup("getMap", () -> delegate.getMap(key));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getOrLoadMap(String key, Function<String, Mono<Map<String, String>>> loader,
+                                                  int ttl) {
+        return meters.loadingLookup("getOrLoadMap", loader, countingLoader ->
+                delegate.getOrLoadMap(key, countingLoader, ttl));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getOrLoadMap(String key, Function<String, Mono<Map<String, String>>> loader) {
+        return meters.loadingLookup("getOrLoadMap", loader, countingLoader ->
+                delegate.getOrLoadMap(key, countingLoader));
+    }
+
+    @Override
+    public Mono<Boolean> existsMap(String key) {
+        return meters.timed("existsMap", () -> delegate.existsMap(key));
+    }
+
+    @Override
+    public Mono<Boolean> existsMap(String key, String field) {
+        return meters.timed("existsMap", () -> delegate.existsMap(key, field));
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return meters.timed("keySet", delegate::keySet);
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        return meters.timedMany("keys", () -> delegate.keys(pattern, limit));
+    }
+
+    @Override
+    public Mono<Boolean> evictMap(String key) {
+        return meters.timed("evictMap", () -> delegate.evictMap(key));
+    }
+
+    @Override
+    public Mono<Boolean> evictMap(String key, String field) {
+        return meters.timed("evictMap", () -> delegate.evictMap(key, field));
+    }
+}
@@ -0,0 +1,161 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <pre>ObjectCache</pre> decorator recording the latency of every operation, and the hits and misses of lookups.
+ *
+ * @param <T> type of the cached values
+ */
+public class MeteredObjectCache<T> implements ObjectCache<T> {
+
+    private final ObjectCache<T> delegate;
+    private final CacheMeters meters;
+
+    public MeteredObjectCache(ObjectCache<T> delegate, MeterRegistry registry, String name) {
+        this(delegate, registry, name, false);
+    }
+
+    /**
+     * @param delegate the decorated cache
+     * @param registry where meters are registered
+     * @param name value of the <pre>cache</pre> tag of every meter
+     * @param upstream whether the decorated cache is the centralized tier of a hybrid cache, so its writes are also
+     *                 counted as upstream syncs
+     */
+    public MeteredObjectCache(ObjectCache<T> delegate, MeterRegistry registry, String name, boolean upstream) {
+        this.delegate = delegate;
+        this.meters = new CacheMeters(registry, name, upstream);
+    }
+
+    @Override
+    public Mono<T> save(String key, T value) {
+        return meters.write("save", () -> delegate.save(key, value));
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int ttl) {
+        return meters.write("save", () -> delegate.save(key, value, ttl));
+    }
+
+    @Override
+    public Mono<T> saveAs(String key, T value, int ttl, Object ref) {
+        return meters.write("save", () -> delegate.saveAs(key, value, ttl, ref));
+    }
+
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, T value, int ttl) {
+        return meters.write("saveIfAbsent", () -> delegate.saveIfAbsent(key, value, ttl));
+    }
+
+    @Override
+    public Mono<T> save(String key, T value, int softTtl, int hardTtl) {
+        return meters.write("save", () -> delegate.save(key, value, softTtl, hardTtl));
+    }
+
+    @Override
+    public Mono<T> get(String key, Class<T> clazz) {
+        return meters.lookup("get", () -> delegate.get(key, clazz));
+    }
+
+    @Override
+    public Mono<T> get(String key, Object ref) {
+        return meters.lookup("get", () -> delegate.get(key, ref));
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader, int ttl) {
+        return meters.loadingLookup("getOrLoad", loader, countingLoader ->
+                delegate.getOrLoad(key, clazz, countingLoader, ttl));
+    }
+
+    @Override
+    public Mono<T> getOrLoad(String key, Class<T> clazz, Function<String, Mono<T>> loader) {
+        return meters.loadingLookup("getOrLoad", loader, countingLoader ->
+                delegate.getOrLoad(key, clazz, countingLoader));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values) {
+        return meters.write("mSave", () -> delegate.mSave(values));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mSave(Map<String, T> values, int ttl) {
+        return meters.write("mSave", () -> delegate.mSave(values, ttl));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Class<T> clazz) {
+        return meters.multiLookup("mGet", keys, () -> delegate.mGet(keys, clazz));
+    }
+
+    @Override
+    public Mono<Map<String, T>> mGet(Collection<String> keys, Object ref) {
+        return meters.multiLookup("mGet", keys, () -> delegate.mGet(keys, ref));
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return meters.timed("exists", () -> delegate.exists(key));
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return delegate.expiresIn(key);
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return meters.timed("keySet", delegate::keySet);
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        return meters.timedMany("keys", () -> delegate.keys(pattern, limit));
+    }
+
+    @Override
+    public Mono<Boolean> evict(String key) {
+        return meters.timed("evict", () -> delegate.evict(key));
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return meters.timed("mEvict", () -> delegate.mEvict(keys));
+    }
+
+    @Override
+    public Mono<Boolean> evictAll() {
+        return meters.timed("evictAll", delegate::evictAll);
+    }
+
+    @Override
+    public Mono<T> setSave(String indexKey, String key, T value, int ttl) {
+        return meters.write("setSave", () -> delegate.setSave(indexKey, key, value, ttl));
+    }
+
+    @Override
+    public Mono<T> setSave(String indexKey, String key, T value) {
+        return meters.write("setSave", () -> delegate.setSave(indexKey, key, value));
+    }
+
+    @Override
+    public Flux<T> setGetAll(String indexKey, Class<T> clazz) {
+        return meters.timedMany("setGetAll", () -> delegate.setGetAll(indexKey, clazz));
+    }
+
+    @Override
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        return meters.timed("setRemove", () -> delegate.setRemove(indexKey, key));
+    }
+}
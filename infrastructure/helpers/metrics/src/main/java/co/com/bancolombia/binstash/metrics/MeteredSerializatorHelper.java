@@ -0,0 +1,55 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.ValueCompressor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * <pre>SerializatorHelper</pre> recording the time spent serializing and deserializing cached values.
+ *
+ * @param <T> type of the cached values
+ */
+public class MeteredSerializatorHelper<T> extends SerializatorHelper<T> {
+
+    static final String SERIALIZATION = "binstash.serialization";
+
+    private final Timer serializeTimer;
+    private final Timer deserializeTimer;
+
+    public MeteredSerializatorHelper(ObjectMapper objectMapper, MeterRegistry registry, String name) {
+        this(objectMapper, ValueCompressor.DISABLED, registry, name);
+    }
+
+    public MeteredSerializatorHelper(ObjectMapper objectMapper, ValueCompressor compressor, MeterRegistry registry,
+                                     String name) {
+        super(objectMapper, compressor);
+        this.serializeTimer = timer(registry, name, "serialize");
+        this.deserializeTimer = timer(registry, name, "deserialize");
+    }
+
+    @Override
+    public String serialize(T obj) {
+        return serializeTimer.record(() -> super.serialize(obj));
+    }
+
+    @Override
+    public T deserializeTo(String obj, Class<T> clazz) {
+        return deserializeTimer.record(() -> super.deserializeTo(obj, clazz));
+    }
+
+    @Override
+    public T deserializeWith(String obj, TypeReference<? extends T> ref) {
+        return deserializeTimer.record(() -> super.deserializeWith(obj, ref));
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String operation) {
+        return Timer.builder(SERIALIZATION)
+                .description("Time spent converting cached values from and to strings")
+                .tag("cache", name)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
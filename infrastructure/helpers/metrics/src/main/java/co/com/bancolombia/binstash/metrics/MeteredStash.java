@@ -0,0 +1,175 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.model.api.Stash;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>Stash</pre> decorator recording the latency of every operation, and the hits and misses of lookups.
+ */
+public class MeteredStash implements Stash {
+
+    private final Stash delegate;
+    private final CacheMeters meters;
+
+    public MeteredStash(Stash delegate, MeterRegistry registry, String name) {
+        this.delegate = delegate;
+        this.meters = new CacheMeters(registry, name, false);
+    }
+
+    @Override
+    public Mono<String> save(String key, String value, int ttl) {
+        return meters.write("save", () -> delegate.save(key, value, ttl));
+    }
+
+    @Override
+    public Mono<String> save(String key, String value) {
+        return meters.write("save", () -> delegate.save(key, value));
+    }
+
+    @Override
+    public Mono<Boolean> saveIfAbsent(String key, String value, int ttl) {
+        return meters.write("saveIfAbsent", () -> delegate.saveIfAbsent(key, value, ttl));
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return meters.lookup("get", () -> delegate.get(key));
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values, int ttl) {
+        return meters.write("mSave", () -> delegate.mSave(values, ttl));
+    }
+
+    @Override
+    public Mono<Map<String, String>> mSave(Map<String, String> values) {
+        return meters.write("mSave", () -> delegate.mSave(values));
+    }
+
+    @Override
+    public Mono<Map<String, String>> mGet(Collection<String> keys) {
+        return meters.multiLookup("mGet", keys, () -> delegate.mGet(keys));
+    }
+
+    @Override
+    public Mono<Set<String>> keySet() {
+        return meters.timed("keySet", delegate::keySet);
+    }
+
+    @Override
+    public Flux<String> keys(String pattern, int limit) {
+        return meters.timedMany("keys", () -> delegate.keys(pattern, limit));
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return meters.timed("exists", () -> delegate.exists(key));
+    }
+
+    @Override
+    public Mono<Duration> expiresIn(String key) {
+        return delegate.expiresIn(key);
+    }
+
+    @Override
+    public Mono<Boolean> evict(String key) {
+        return meters.timed("evict", () -> delegate.evict(key));
+    }
+
+    @Override
+    public Mono<Boolean> mEvict(Collection<String> keys) {
+        return meters.timed("mEvict", () -> delegate.mEvict(keys));
+    }
+
+    @Override
+    public Mono<Boolean> evictAll() {
+        return meters.timed("evictAll", delegate::evictAll);
+    }
+
+    @Override
+    public Mono<String> setSave(String indexKey, String key, String value, int ttl) {
+        return meters.write("setSave", () -> delegate.setSave(indexKey, key, value, ttl));
+    }
+
+    @Override
+    public Mono<String> setSave(String indexKey, String key, String value) {
+        return meters.write("setSave", () -> delegate.setSave(indexKey, key, value));
+    }
+
+    @Override
+    public Flux<String> setGetAll(String indexKey) {
+        return meters.timedMany("setGetAll", () -> delegate.setGetAll(indexKey));
+    }
+
+    @Override
+    public Mono<Boolean> setRemove(String indexKey, String key) {
+        return meters.timed("setRemove", () -> delegate.setRemove(indexKey, key));
+    }
+
+    @Override
+    public Mono<Map<String, String>> hSave(String key, Map<String, String> value) {
+        return meters.write("hSave", () -> delegate.hSave(key, value));
+    }
+
+    @Override
+    public Mono<Map<String, String>> hSave(String key, Map<String, String> value, int ttl) {
+        return meters.write("hSave", () -> delegate.hSave(key, value, ttl));
+    }
+
+    @Override
+    public Mono<String> hSave(String key, String field, String value) {
+        return meters.write("hSave", () -> delegate.hSave(key, field, value));
+    }
+
+    @Override
+    public Mono<String> hSave(String key, String field, String value, int ttl) {
+        return meters.write("hSave", () -> delegate.hSave(key, field, value, ttl));
+    }
+
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, Map<String, String> value, int ttl) {
+        return meters.write("hSaveIfAbsent", () -> delegate.hSaveIfAbsent(key, value, ttl));
+    }
+
+    @Override
+    public Mono<Boolean> hSaveIfAbsent(String key, String field, String value, int ttl) {
+        return meters.write("hSaveIfAbsent", () -> delegate.hSaveIfAbsent(key, field, value, ttl));
+    }
+
+    @Override
+    public Mono<String> hGet(String key, String field) {
+        return meters.lookup("hGet", () -> delegate.hGet(key, field));
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key) {
+        return meters.timed("hExists", () -> delegate.hExists(key));
+    }
+
+    @Override
+    public Mono<Boolean> hExists(String key, String field) {
+        return meters.timed("hExists", () -> delegate.hExists(key, field));
+    }
+
+    @Override
+    public Mono<Map<String, String>> hGetAll(String key) {
+        return meters.lookup("hGetAll", () -> delegate.hGetAll(key));
+    }
+
+    @Override
+    public Mono<Boolean> hDelete(String key, String field) {
+        return meters.timed("hDelete", () -> delegate.hDelete(key, field));
+    }
+
+    @Override
+    public Mono<Boolean> hDelete(String key) {
+        return meters.timed("hDelete", () -> delegate.hDelete(key));
+    }
+}
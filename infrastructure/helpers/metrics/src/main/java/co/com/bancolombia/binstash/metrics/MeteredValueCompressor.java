@@ -0,0 +1,45 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.ValueCompressor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * <pre>ValueCompressor</pre> recording how much compressed values shrink.
+ */
+public class MeteredValueCompressor extends ValueCompressor {
+
+    static final String COMPRESSION_RATIO = "binstash.compression.ratio";
+    static final String COMPRESSION_BYTES = "binstash.compression.bytes";
+
+    private final DistributionSummary ratio;
+    private final Counter originalBytes;
+    private final Counter compressedBytes;
+
+    public MeteredValueCompressor(int threshold, MeterRegistry registry, String name) {
+        super(threshold);
+        this.ratio = DistributionSummary.builder(COMPRESSION_RATIO)
+                .description("Size of compressed values before compression, divided by their size after it")
+                .tag("cache", name)
+                .register(registry);
+        this.originalBytes = bytes(registry, name, "original");
+        this.compressedBytes = bytes(registry, name, "compressed");
+    }
+
+    @Override
+    protected void recordCompression(int originalSize, int compressedSize) {
+        ratio.record(compressedSize == 0 ? 1 : (double) originalSize / compressedSize);
+        originalBytes.increment(originalSize);
+        compressedBytes.increment(compressedSize);
+    }
+
+    private static Counter bytes(MeterRegistry registry, String name, String form) {
+        return Counter.builder(COMPRESSION_BYTES)
+                .description("Bytes of the compressed values, before and after compression")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .tag("form", form)
+                .register(registry);
+    }
+}
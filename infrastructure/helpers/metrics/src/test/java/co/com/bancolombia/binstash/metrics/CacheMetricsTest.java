@@ -0,0 +1,130 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.ValueCompressor;
+import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.adapter.memory.OffHeapStash;
+import co.com.bancolombia.binstash.model.api.MapCache;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import co.com.bancolombia.binstash.model.api.Stash;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class CacheMetricsTest {
+
+    @Mock
+    private Stash stash;
+
+    @Mock
+    private ObjectCache<String> objectCache;
+
+    @Mock
+    private MapCache mapCache;
+
+    @Test
+    void testDisabledLeavesCachesAsIs() {
+        assertFalse(CacheMetrics.NONE.isEnabled());
+        assertSame(stash, CacheMetrics.NONE.stash("test", stash));
+        assertSame(objectCache, CacheMetrics.NONE.objectCache("test", objectCache));
+        assertSame(objectCache, CacheMetrics.NONE.upstreamObjectCache("test", objectCache));
+        assertSame(mapCache, CacheMetrics.NONE.mapCache("test", mapCache));
+        assertSame(mapCache, CacheMetrics.NONE.upstreamMapCache("test", mapCache));
+        assertFalse(CacheMetrics.NONE.serializatorHelper("test", new ObjectMapper())
+                instanceof MeteredSerializatorHelper);
+    }
+
+    @Test
+    void testDecorateCaches() {
+        CacheMetrics metrics = new CacheMetrics(new SimpleMeterRegistry());
+        assertInstanceOf(MeteredStash.class, metrics.stash("test", stash));
+        assertInstanceOf(MeteredObjectCache.class, metrics.objectCache("test", objectCache));
+        assertInstanceOf(MeteredObjectCache.class, metrics.upstreamObjectCache("test", objectCache));
+        assertInstanceOf(MeteredMapCache.class, metrics.mapCache("test", mapCache));
+        assertInstanceOf(MeteredMapCache.class, metrics.upstreamMapCache("test", mapCache));
+    }
+
+    @Test
+    void testMonitorMemoryStash() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MemoryStash memoryStash = new CacheMetrics(registry).monitor("local", new MemoryStash.Builder().build());
+
+        StepVerifier.create(memoryStash.save("k1", "v1"))
+                .expectNext("v1")
+                .verifyComplete();
+
+        assertEquals(1, registry.get(CacheMetrics.MEMORY_SIZE).tags("cache", "local").gauge().value());
+        assertEquals(0, registry.get(CacheMetrics.MEMORY_EVICTIONS).tags("cache", "local")
+                .functionCounter().count());
+        assertNull(registry.find(CacheMetrics.MEMORY_WEIGHTED_SIZE).gauge());
+    }
+
+    @Test
+    void testMonitorWeightedMemoryStash() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MemoryStash memoryStash = new CacheMetrics(registry).monitor("local", new MemoryStash.Builder()
+                .maxBytes(1_000_000)
+                .build());
+
+        StepVerifier.create(memoryStash.save("k1", "v1"))
+                .expectNext("v1")
+                .verifyComplete();
+
+        assertTrue(registry.get(CacheMetrics.MEMORY_WEIGHTED_SIZE).tags("cache", "local").gauge().value() > 0);
+    }
+
+    @Test
+    void testMonitorOffHeapStash() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OffHeapStash offHeapStash = new CacheMetrics(registry).monitor("hybrid", new OffHeapStash.Builder()
+                .maxBytes(1024 * 1024)
+                .build());
+
+        StepVerifier.create(offHeapStash.save("k1", "v1"))
+                .expectNext("v1")
+                .verifyComplete();
+
+        assertEquals(1, registry.get(CacheMetrics.MEMORY_SIZE).tags("cache", "hybrid").gauge().value());
+        assertTrue(registry.get(CacheMetrics.MEMORY_WEIGHTED_SIZE).tags("cache", "hybrid").gauge().value() > 0);
+    }
+
+    @Test
+    void testSerializationTime() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SerializatorHelper<String> helper = new CacheMetrics(registry).serializatorHelper("test", new ObjectMapper());
+
+        assertEquals("v1", helper.deserializeTo(helper.serialize("v1"), String.class));
+        assertEquals(1, registry.get(MeteredSerializatorHelper.SERIALIZATION)
+                .tags("cache", "test", "operation", "serialize").timer().count());
+        assertEquals(1, registry.get(MeteredSerializatorHelper.SERIALIZATION)
+                .tags("cache", "test", "operation", "deserialize").timer().count());
+    }
+
+    @Test
+    void testCompressionRatio() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetrics metrics = new CacheMetrics(registry);
+        SerializatorHelper<String> helper = metrics.serializatorHelper("test", new ObjectMapper(),
+                metrics.compressor("test", 100));
+        String value = "compressible ".repeat(100);
+
+        assertEquals(value, helper.deserializeTo(helper.serialize(value), String.class));
+        assertEquals(1, registry.get(MeteredValueCompressor.COMPRESSION_RATIO).tags("cache", "test")
+                .summary().count());
+        assertTrue(registry.get(MeteredValueCompressor.COMPRESSION_RATIO).tags("cache", "test")
+                .summary().max() > 10);
+        assertSame(ValueCompressor.DISABLED, metrics.compressor("test", 0));
+    }
+}
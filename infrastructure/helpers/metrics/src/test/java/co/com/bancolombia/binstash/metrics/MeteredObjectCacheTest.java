@@ -0,0 +1,99 @@
+package co.com.bancolombia.binstash.metrics;
+
+import co.com.bancolombia.binstash.SerializatorHelper;
+import co.com.bancolombia.binstash.SingleTierObjectCacheUseCase;
+import co.com.bancolombia.binstash.adapter.memory.MemoryStash;
+import co.com.bancolombia.binstash.model.api.ObjectCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MeteredObjectCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private ObjectCache<String> cache;
+
+    @Mock
+    private ObjectCache<String> failingCache;
+
+    @BeforeEach
+    void before() {
+        registry = new SimpleMeterRegistry();
+        cache = new MeteredObjectCache<>(new SingleTierObjectCacheUseCase<>(new MemoryStash.Builder().build(),
+                new SerializatorHelper<>(new ObjectMapper())), registry, "test");
+    }
+
+    @Test
+    void testGetCountsHitsAndMisses() {
+        StepVerifier.create(cache.save("k1", "v1")
+                        .then(cache.get("k1", String.class))
+                        .then(cache.get("k2", String.class)))
+                .verifyComplete();
+
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+        assertEquals(2, registry.get(CacheMeters.OPERATIONS)
+                .tags("cache", "test", "operation", "get", "outcome", "success").timer().count());
+        assertEquals(1, registry.get(CacheMeters.OPERATIONS)
+                .tags("cache", "test", "operation", "save", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testMGetCountsEveryKey() {
+        StepVerifier.create(cache.mSave(Map.of("k1", "v1", "k2", "v2"))
+                        .then(cache.mGet(List.of("k1", "k2", "k3"), String.class)))
+                .expectNextMatches(values -> values.size() == 2)
+                .verifyComplete();
+
+        assertEquals(2, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void testGetOrLoadCountsLoadsAsMisses() {
+        StepVerifier.create(cache.getOrLoad("k1", String.class, key -> Mono.just("v1"))
+                        .then(cache.getOrLoad("k1", String.class, key -> Mono.just("other"))))
+                .expectNext("v1")
+                .verifyComplete();
+
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void testUpstreamWritesCountSyncs() {
+        when(failingCache.save(anyString(), any(), any(Integer.class))).thenReturn(Mono.error(new RuntimeException()));
+        ObjectCache<String> upstream = new MeteredObjectCache<>(failingCache, registry, "upstream", true);
+
+        StepVerifier.create(upstream.save("k1", "v1", 10))
+                .verifyError(RuntimeException.class);
+
+        assertEquals(0, syncs("success"));
+        assertEquals(1, syncs("failure"));
+        assertEquals(1, registry.get(CacheMeters.OPERATIONS)
+                .tags("cache", "upstream", "operation", "save", "outcome", "failure").timer().count());
+    }
+
+    private double gets(String result) {
+        return registry.get(CacheMeters.GETS).tags("cache", "test", "result", result).counter().count();
+    }
+
+    private double syncs(String outcome) {
+        return registry.get(CacheMeters.SYNCS).tags("cache", "upstream", "outcome", outcome).counter().count();
+    }
+}